@@ -0,0 +1,120 @@
+package com.freenow.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freenow.config.JacksonConfiguration;
+import com.freenow.controller.mapper.CarMapper;
+import com.freenow.controller.mapper.DriverMapper;
+import com.freenow.datatransferobject.CarDTO;
+import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response side of the driver endpoints without Spring: mapping domain objects to DTOs, building coordinates and
+ * writing JSON with the application's {@link ObjectMapper}. {@code drivers} is the page size, every other driver
+ * has a car and a coordinate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverMappingBenchmark {
+
+    @Param({"50", "500"})
+    private int drivers;
+
+    private ObjectMapper objectMapper;
+    private List<DriverDO> driverDOs;
+    private List<DriverDTO> driverDTOs;
+    private CarDO carDO;
+    private GeoCoordinate coordinate;
+    private long next;
+
+
+    @Setup
+    public void setUp() {
+        objectMapper = new JacksonConfiguration().objectMapper();
+        driverDOs = new ArrayList<>(drivers);
+        for (int i = 0; i < drivers; i++) {
+            DriverDO driverDO = new DriverDO("driver" + i, "driver" + i + "pw");
+            driverDO.setId((long) i);
+            driverDO.setOnlineStatus(i % 3 == 0 ? OnlineStatus.OFFLINE : OnlineStatus.ONLINE);
+            if (i % 2 == 0) {
+                driverDO.setCoordinate(new GeoCoordinate(52.5 + i * 0.0001, 13.4));
+                driverDO.setCarDO(car(i));
+            }
+            driverDOs.add(driverDO);
+        }
+        driverDTOs = DriverMapper.makeDriverDTOList(driverDOs);
+        carDO = car(drivers);
+        coordinate = new GeoCoordinate(52.5, 13.4);
+    }
+
+
+    @Benchmark
+    public List<DriverDTO> makeDriverDTOList() {
+        return DriverMapper.makeDriverDTOList(driverDOs);
+    }
+
+
+    @Benchmark
+    public CarDTO makeCarDTO() {
+        return CarMapper.makeCarDTO(carDO);
+    }
+
+
+    @Benchmark
+    public GeoCoordinate newGeoCoordinate() {
+        return new GeoCoordinate(52.5 + (next++ % 1000) * 0.0001, 13.4);
+    }
+
+
+    @Benchmark
+    public byte[] writeGeoCoordinate() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(coordinate);
+    }
+
+
+    @Benchmark
+    public byte[] writeDriverDTOList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(driverDTOs);
+    }
+
+
+    @Benchmark
+    public byte[] mapAndWriteDriverPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(DriverMapper.makeDriverDTOList(driverDOs));
+    }
+
+
+    private static CarDO car(int i) {
+        CarDO car = new CarDO("B-FN" + i, (short) (2 + i % 6), i % 4 == 0, EngineType.values()[i % 3],
+                Manufacturer.values()[i % 4], Rating.values()[i % 5]);
+        car.setId((long) i);
+        car.setCarSelectedByDriver(true);
+        return car;
+    }
+}
@@ -0,0 +1,113 @@
+package com.freenow.benchmark;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.event.DriverEvent;
+import com.freenow.match.DriverMatch;
+import com.freenow.match.DriverMatcher;
+import com.freenow.match.RideRequirements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link DriverMatcher#match} with {@code drivers} ONLINE drivers, each with a car, spread evenly over a
+ * city of 33 x 40 km (Berlin). Pickup points are random points in the same area.
+ * <p/>
+ * Engine types and ratings are evenly distributed, seat counts range from 2 to 8 and one car in ten is a convertible.
+ * {@code matchAny} takes any car, {@code matchSeats} asks for at least 5 seats and {@code matchRareCar} for an
+ * electric convertible rated FIVE, which fewer than one car in a hundred is, so it has to scan several rings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverMatchingBenchmark {
+
+    private static final double MIN_LATITUDE = 52.35;
+    private static final double MIN_LONGITUDE = 13.10;
+    private static final double LATITUDE_SPAN = 0.30;
+    private static final double LONGITUDE_SPAN = 0.60;
+    private static final int PICKUPS = 1024;
+    private static final Rating[] RATINGS = {Rating.TWO, Rating.THREE, Rating.FOUR, Rating.FIVE};
+
+    private static final RideRequirements SEATS = new RideRequirements(5, null, null, null);
+    private static final RideRequirements RARE_CAR = new RideRequirements(0, EngineType.ELECTRIC, true, Rating.FIVE);
+
+    @Param("100000")
+    private int drivers;
+
+    @Param({"1", "10"})
+    private int limit;
+
+    private DriverMatcher matcher;
+    private double[] pickupLatitudes;
+    private double[] pickupLongitudes;
+    private int next;
+
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        matcher = new DriverMatcher(0.01, 50);
+        EngineType[] engineTypes = EngineType.values();
+        Manufacturer[] manufacturers = Manufacturer.values();
+        for (long id = 1; id <= drivers; id++) {
+            CarProfile car = new CarProfile(engineTypes[random.nextInt(engineTypes.length)],
+                    (short) (2 + random.nextInt(7)), random.nextInt(10) == 0, RATINGS[random.nextInt(RATINGS.length)],
+                    manufacturers[random.nextInt(manufacturers.length)]);
+            GeoCoordinate coordinate = new GeoCoordinate(MIN_LATITUDE + random.nextDouble() * LATITUDE_SPAN,
+                    MIN_LONGITUDE + random.nextDouble() * LONGITUDE_SPAN);
+            matcher.onDriverEvent(new DriverEvent(DriverEvent.Type.SNAPSHOT, id, OnlineStatus.ONLINE, false,
+                    coordinate, id, car));
+        }
+        pickupLatitudes = new double[PICKUPS];
+        pickupLongitudes = new double[PICKUPS];
+        for (int i = 0; i < PICKUPS; i++) {
+            pickupLatitudes[i] = MIN_LATITUDE + random.nextDouble() * LATITUDE_SPAN;
+            pickupLongitudes[i] = MIN_LONGITUDE + random.nextDouble() * LONGITUDE_SPAN;
+        }
+    }
+
+
+    @Benchmark
+    public List<DriverMatch> matchAny() {
+        return match(RideRequirements.ANY);
+    }
+
+
+    @Benchmark
+    public List<DriverMatch> matchSeats() {
+        return match(SEATS);
+    }
+
+
+    @Benchmark
+    public List<DriverMatch> matchRareCar() {
+        return match(RARE_CAR);
+    }
+
+
+    private List<DriverMatch> match(RideRequirements requirements) {
+        int pickup = next++ & (PICKUPS - 1);
+        return matcher.match(pickupLatitudes[pickup], pickupLongitudes[pickup], requirements, limit);
+    }
+}
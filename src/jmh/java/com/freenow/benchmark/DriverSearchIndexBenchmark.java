@@ -0,0 +1,193 @@
+package com.freenow.benchmark;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.search.DriverBitmapIndex;
+import com.freenow.search.DriverPage;
+import com.freenow.service.driver.DriverService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First search page over {@code drivers} drivers and {@code cars} cars, with the search indexes of the entity mappings
+ * and, for {@code indexed=false}, with the search indexes dropped after seeding. The index on {@code car_id} stays in
+ * both cases, H2 keeps one for the foreign key anyway.
+ * <p/>
+ * One driver in ten is online and the first drivers hold one car each. {@code deleted} is the percentage of drivers and
+ * cars seeded as soft-deleted, spread evenly over the ids, e.g. {@code -p deleted=90} for a history of mostly deleted
+ * rows. {@code searchOnline} filters by status only,
+ * {@code searchCarAttributes} by engine type, seat count and convertible and {@code searchRareCar} by manufacturer
+ * and a rating only one car in a hundred has.
+ * <p/>
+ * With {@code -p bitmap=true} the same searches are answered by the in-memory {@link DriverBitmapIndex}, which is
+ * loaded from the seeded rows, and only the drivers of the page are read from the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DriverSearchIndexBenchmark {
+
+    private static final long FIRST_ID = 1000;
+    private static final int BATCH_SIZE = 5000;
+    private static final int PAGE_SIZE = 50;
+    private static final String[] ENGINE_TYPES = {"GAS", "DIESEL", "ELECTRIC"};
+    private static final String[] MANUFACTURERS = {"MERCEDES", "BMW", "AUDI", "PORSCHE"};
+    private static final String[] RATINGS = {"TWO", "THREE", "FOUR", "FIVE"};
+    private static final String[] SEARCH_INDEXES = {"idx_driver_status_id", "idx_car_engine_seats", "idx_car_seats",
+            "idx_car_manufacturer_rating", "idx_car_rating"};
+
+    @Param("1000000")
+    private int drivers;
+
+    @Param("100000")
+    private int cars;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    @Param("0")
+    private int deleted;
+
+    @Param({"false", "true"})
+    private boolean bitmap;
+
+    private ConfigurableApplicationContext context;
+    private DriverService driverService;
+    private final Map<String, String> online = new HashMap<>();
+    private final Map<String, String> carAttributes = new HashMap<>();
+    private final Map<String, String> rareCar = new HashMap<>();
+
+
+    @Setup
+    public void setUp() {
+        // without OPTIMIZE_REUSE_RESULTS=0 H2 answers the repeated search from the result of the last identical query
+        context = new SpringApplicationBuilder(FreeNowServerApplicantTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.show-sql=false",
+                        "--spring.datasource.url=jdbc:h2:mem:driversearchindex;OPTIMIZE_REUSE_RESULTS=0",
+                        "--driver.search.bitmap-index.enabled=" + bitmap,
+                        "--logging.level.root=WARN");
+        driverService = context.getBean(DriverService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        seed(jdbcTemplate);
+        if (!indexed) {
+            dropSearchIndexes(jdbcTemplate);
+        }
+        if (bitmap) {
+            loadBitmapIndex(jdbcTemplate, context.getBean(DriverBitmapIndex.class));
+        }
+
+        online.put("onlineStatus", "online");
+        carAttributes.put("engineType", "electric");
+        carAttributes.put("seatCount", "4");
+        carAttributes.put("convertible", "true");
+        rareCar.put("manufacturer", "mercedes");
+        rareCar.put("rating", "one");
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+
+    @Benchmark
+    public DriverPage searchOnline() {
+        return driverService.searchDrivers(online, null, PAGE_SIZE);
+    }
+
+
+    @Benchmark
+    public DriverPage searchCarAttributes() {
+        return driverService.searchDrivers(carAttributes, null, PAGE_SIZE);
+    }
+
+
+    @Benchmark
+    public DriverPage searchRareCar() {
+        return driverService.searchDrivers(rareCar, null, PAGE_SIZE);
+    }
+
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int heldCars = Math.min(drivers, cars);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < cars; i++) {
+            batch.add(new Object[]{FIRST_ID + i, i < heldCars, i % 4 == 0, now, i / 100 % 100 < deleted,
+                    ENGINE_TYPES[i % 3], "B-IX" + i, MANUFACTURERS[i % 4], i % 100 == 0 ? "ONE" : RATINGS[i % 4],
+                    2 + i % 6});
+            flushIfFull(jdbcTemplate, batch, "insert into car (id, car_selected_by_driver, convertible, date_car_created," +
+                    " deleted, engine_type, license_plate, manufacturer, rating, seat_count)" +
+                    " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", i == cars - 1);
+        }
+        for (int i = 0; i < drivers; i++) {
+            batch.add(new Object[]{FIRST_ID + i, 52.5 + (i % 1000) * 0.001, 13.4 + (i / 1000 % 1000) * 0.001, now, now,
+                    i / 10 % 100 < deleted, i % 10 == 0 ? "ONLINE" : "OFFLINE", "index" + i + "pw", "index" + i,
+                    i < heldCars ? FIRST_ID + i : null});
+            flushIfFull(jdbcTemplate, batch, "insert into driver (id, latitude, longitude, date_coordinate_updated," +
+                    " date_created, deleted, online_status, password, username, car_id)" +
+                    " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", i == drivers - 1);
+        }
+    }
+
+
+    // the rows were inserted behind the back of the driver service, so no driver events were published for them
+    private static void loadBitmapIndex(JdbcTemplate jdbcTemplate, DriverBitmapIndex index) {
+        jdbcTemplate.query("select d.id, d.online_status, c.id car_id, c.engine_type, c.seat_count, c.convertible," +
+                " c.rating, c.manufacturer from driver d left join car c on c.id = d.car_id and c.deleted = false" +
+                " where d.deleted = false", (ResultSet rs) -> {
+            long carId = rs.getLong("car_id");
+            CarProfile car = rs.wasNull() ? null : new CarProfile(EngineType.valueOf(rs.getString("engine_type")),
+                    rs.getShort("seat_count"), rs.getBoolean("convertible"), Rating.valueOf(rs.getString("rating")),
+                    Manufacturer.valueOf(rs.getString("manufacturer")));
+            index.put(rs.getLong("id"), OnlineStatus.valueOf(rs.getString("online_status")),
+                    car == null ? null : carId, car);
+        });
+    }
+
+
+    private static void dropSearchIndexes(JdbcTemplate jdbcTemplate) {
+        for (String index : SEARCH_INDEXES) {
+            jdbcTemplate.execute("drop index " + index);
+        }
+    }
+
+
+    private static void flushIfFull(JdbcTemplate jdbcTemplate, List<Object[]> batch, String sql, boolean last) {
+        if (batch.size() == BATCH_SIZE || last) {
+            jdbcTemplate.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.freenow.benchmark;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.search.DriverSearchFilter;
+import com.freenow.search.DriverSearchPlanCache;
+import com.freenow.search.SearchAttribute;
+import com.freenow.search.SearchCriteria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request planning cost of a driver search, from the raw query parameters to a ready to run JPA query. The
+ * query itself is not executed.
+ * <p/>
+ * {@code specificationChain} replays the former search: a string switch per parameter, a reduced chain of
+ * {@link Specification}s and a criteria query rendered by Hibernate. {@code searchCriteria} renders the single
+ * {@link SearchCriteria} specification still offered to repository callers. {@code cachedPlan} parses a
+ * {@link DriverSearchFilter} and binds it to the cached JPQL plan of its shape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverSearchPlanningBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private EntityManager entityManager;
+    private DriverSearchPlanCache planCache;
+    private Map<String, String> queryParams;
+
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FreeNowServerApplicantTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.show-sql=false", "--spring.datasource.url=jdbc:h2:mem:searchplanning",
+                        "--logging.level.root=WARN");
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        planCache = context.getBean(DriverSearchPlanCache.class);
+        queryParams = new LinkedHashMap<>();
+        queryParams.put("onlineStatus", "ONLINE");
+        queryParams.put("seatcount", "4");
+        queryParams.put("enginetype", "gas");
+        queryParams.put("convertible", "false");
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+
+    @Benchmark
+    public TypedQuery<DriverDO> specificationChain() {
+        Specification<DriverDO> specification = queryParams.keySet().stream()
+                .map(key -> legacySpecification(key, queryParams.get(key)))
+                .reduce(Specification::and)
+                .orElseThrow(IllegalArgumentException::new);
+        return criteriaQuery(specification);
+    }
+
+
+    @Benchmark
+    public TypedQuery<DriverDO> searchCriteria() {
+        return criteriaQuery(SearchCriteria.getDriversBySpecification(queryParams));
+    }
+
+
+    @Benchmark
+    public TypedQuery<DriverDO> cachedPlan() {
+        DriverSearchFilter filter = DriverSearchFilter.of(queryParams);
+        return planCache.get(filter.getAttributes(), false)
+                .createQuery(entityManager, filter, null)
+                .setMaxResults(51);
+    }
+
+
+    private TypedQuery<DriverDO> criteriaQuery(Specification<DriverDO> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DriverDO> query = criteriaBuilder.createQuery(DriverDO.class);
+        Root<DriverDO> root = query.from(DriverDO.class);
+        query.select(root)
+                .where(specification.toPredicate(root, query, criteriaBuilder))
+                .orderBy(criteriaBuilder.desc(root.get("id")));
+        return entityManager.createQuery(query).setMaxResults(51);
+    }
+
+
+    private static Specification<DriverDO> legacySpecification(String key, String value) {
+        switch (key.trim().toLowerCase()) {
+            case "onlinestatus":
+                Object onlineStatus = SearchAttribute.ONLINE_STATUS.parse(value);
+                return (root, query, cb) -> cb.equal(root.get("onlineStatus"), onlineStatus);
+            case "seatcount":
+                return legacyCarSpecification("seatCount", SearchAttribute.SEAT_COUNT.parse(value));
+            case "enginetype":
+                return legacyCarSpecification("engineType", SearchAttribute.ENGINE_TYPE.parse(value));
+            case "convertible":
+                return legacyCarSpecification("convertible", SearchAttribute.CONVERTIBLE.parse(value));
+        }
+        throw new IllegalArgumentException(key);
+    }
+
+
+    private static Specification<DriverDO> legacyCarSpecification(String field, Object value) {
+        return (root, query, cb) -> cb.equal(root.join("carDO").get(field), value);
+    }
+}
@@ -0,0 +1,160 @@
+package com.freenow.benchmark;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.search.DriverPage;
+import com.freenow.service.driver.DriverService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@link DriverService} calls, including transactions, caches and events, against an embedded H2 seeded with
+ * {@code drivers} drivers and {@code cars} cars, e.g. {@code -p drivers=100000 -p cars=10000}.
+ * <p/>
+ * Every other driver is online and the first drivers hold one car each. One car and one online driver without a car
+ * are kept aside for {@code selectAndDeselectCar}. {@code find} cycles through all drivers and mostly misses the
+ * driver cache once there are more drivers than cache entries, {@code findHot} repeats the first 100 drivers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverServiceBenchmark {
+
+    private static final long FIRST_ID = 1000;
+    private static final int BATCH_SIZE = 1000;
+    private static final int HOT_DRIVERS = 100;
+
+    @Param("10000")
+    private int drivers;
+
+    @Param("1000")
+    private int cars;
+
+    private ConfigurableApplicationContext context;
+    private DriverService driverService;
+    private Map<String, String> searchParams;
+    private long selectingDriverId;
+    private long freeCarId;
+    private long next;
+
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FreeNowServerApplicantTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.show-sql=false", "--spring.datasource.url=jdbc:h2:mem:driverservice",
+                        "--logging.level.root=WARN");
+        driverService = context.getBean(DriverService.class);
+        seed(context.getBean(JdbcTemplate.class));
+
+        searchParams = new HashMap<>();
+        searchParams.put("onlineStatus", "online");
+        searchParams.put("seatcount", "4");
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+
+    @Benchmark
+    public DriverDO find() {
+        return driverService.find(nextDriverId());
+    }
+
+
+    @Benchmark
+    public DriverDO findHot() {
+        return driverService.find(FIRST_ID + next++ % HOT_DRIVERS);
+    }
+
+
+    @Benchmark
+    public DriverPage searchFirstPage() {
+        return driverService.searchDrivers(searchParams, null, 50);
+    }
+
+
+    @Benchmark
+    public DriverDO updateLocation() {
+        return driverService.updateLocation(nextDriverId(), 13.4 + (next % 100) * 0.001, 52.5);
+    }
+
+
+    @Benchmark
+    public DriverDO updateOnlineStatus() {
+        return driverService.updateOnlineStatus(nextDriverId(), next % 2 == 0 ? OnlineStatus.ONLINE : OnlineStatus.OFFLINE);
+    }
+
+
+    @Benchmark
+    public DriverDO selectAndDeselectCar() {
+        driverService.selectCarByDriver(selectingDriverId, freeCarId);
+        return driverService.deSelectCarByDriver(selectingDriverId);
+    }
+
+
+    private long nextDriverId() {
+        return FIRST_ID + next++ % drivers;
+    }
+
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int heldCars = Math.min(drivers, cars - 1);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < cars; i++) {
+            batch.add(new Object[]{FIRST_ID + i, i < heldCars, i % 4 == 0, now, i % 3 == 0 ? "ELECTRIC" : "GAS",
+                    "B-BM" + i, i % 2 == 0 ? "BMW" : "AUDI", "FOUR", 2 + i % 6});
+            flushIfFull(jdbcTemplate, batch, "insert into car (id, car_selected_by_driver, convertible, date_car_created," +
+                    " deleted, engine_type, license_plate, manufacturer, rating, seat_count)" +
+                    " values (?, ?, ?, ?, false, ?, ?, ?, ?, ?)", i == cars - 1);
+        }
+        for (int i = 0; i <= drivers; i++) {
+            boolean selecting = i == drivers;
+            batch.add(new Object[]{FIRST_ID + i, 52.5 + (i % 1000) * 0.001, 13.4 + (i / 1000) * 0.001, now, now,
+                    selecting || i % 2 == 0 ? "ONLINE" : "OFFLINE", "bench" + i + "pw", "bench" + i,
+                    i < heldCars ? FIRST_ID + i : null});
+            flushIfFull(jdbcTemplate, batch, "insert into driver (id, latitude, longitude, date_coordinate_updated," +
+                    " date_created, deleted, online_status, password, username, car_id)" +
+                    " values (?, ?, ?, ?, ?, false, ?, ?, ?, ?)", selecting);
+        }
+        selectingDriverId = FIRST_ID + drivers;
+        freeCarId = FIRST_ID + cars - 1;
+    }
+
+
+    private static void flushIfFull(JdbcTemplate jdbcTemplate, List<Object[]> batch, String sql, boolean last) {
+        if (batch.size() == BATCH_SIZE || last) {
+            jdbcTemplate.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+}
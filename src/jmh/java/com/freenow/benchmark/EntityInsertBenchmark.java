@@ -0,0 +1,111 @@
+package com.freenow.benchmark;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.dataaccessobject.CarRepository;
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.Rating;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts per second when drivers and cars are created in bulk through {@code saveAll}, {@value #ROWS} entities per
+ * transaction.
+ * <p/>
+ * {@code batchSize} is passed on as {@code hibernate.jdbc.batch_size}. With {@code -p batchSize=0} every row is sent
+ * as a statement of its own, which is what the former identity ids forced on Hibernate. Ids still come from the
+ * pooled sequences then, so that run leaves out the id round trip per row and is an upper bound for the identity
+ * mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityInsertBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"0", "50"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private DriverRepository driverRepository;
+    private CarRepository carRepository;
+    private JdbcTemplate jdbcTemplate;
+    private long next;
+
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FreeNowServerApplicantTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.show-sql=false", "--spring.datasource.url=jdbc:h2:mem:entityinsert",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "--logging.level.root=WARN");
+        driverRepository = context.getBean(DriverRepository.class);
+        carRepository = context.getBean(CarRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+
+    // keeps the in-memory tables and their unique indexes at the same size in every iteration
+    @TearDown(Level.Iteration)
+    public void deleteInserted() {
+        jdbcTemplate.update("delete from driver where username like 'insert%'");
+        jdbcTemplate.update("delete from car where license_plate like 'INS-%'");
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Iterable<DriverDO> createDrivers() {
+        List<DriverDO> drivers = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            long n = next++;
+            drivers.add(new DriverDO("insert" + n, "insert" + n + "pw"));
+        }
+        return driverRepository.saveAll(drivers);
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Iterable<CarDO> createCars() {
+        List<CarDO> cars = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            cars.add(new CarDO("INS-" + next++, (short) 4, false, EngineType.ELECTRIC, Manufacturer.BMW, Rating.FOUR));
+        }
+        return carRepository.saveAll(cars);
+    }
+}
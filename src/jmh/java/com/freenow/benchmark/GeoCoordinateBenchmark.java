@@ -0,0 +1,147 @@
+package com.freenow.benchmark;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.geo.Point;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read and write cost of a driver position in H2: the legacy Java-serialized {@link Point} column against the
+ * numeric latitude and longitude columns used by {@link GeoCoordinate}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoCoordinateBenchmark {
+
+    @Param("10000")
+    private int drivers;
+
+    private Connection connection;
+    private PreparedStatement writeLegacy;
+    private PreparedStatement readLegacy;
+    private PreparedStatement writeNumeric;
+    private PreparedStatement readNumeric;
+    private long next;
+
+
+    @Setup
+    public void setUp() throws SQLException, IOException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:geocoordinate" + System.nanoTime());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table legacy_driver (id bigint primary key, coordinate varbinary(255))");
+            statement.execute("create table numeric_driver (id bigint primary key, latitude double, longitude double)");
+        }
+        try (PreparedStatement legacy = connection.prepareStatement("insert into legacy_driver values (?, ?)");
+             PreparedStatement numeric = connection.prepareStatement("insert into numeric_driver values (?, ?, ?)")) {
+            for (long id = 0; id < drivers; id++) {
+                legacy.setLong(1, id);
+                legacy.setBytes(2, serialize(new Point(13.4, 52.5)));
+                legacy.addBatch();
+                numeric.setLong(1, id);
+                numeric.setDouble(2, 52.5);
+                numeric.setDouble(3, 13.4);
+                numeric.addBatch();
+            }
+            legacy.executeBatch();
+            numeric.executeBatch();
+        }
+        writeLegacy = connection.prepareStatement("update legacy_driver set coordinate = ? where id = ?");
+        readLegacy = connection.prepareStatement("select coordinate from legacy_driver where id = ?");
+        writeNumeric = connection.prepareStatement("update numeric_driver set latitude = ?, longitude = ? where id = ?");
+        readNumeric = connection.prepareStatement("select latitude, longitude from numeric_driver where id = ?");
+    }
+
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+
+    @Benchmark
+    public int writeSerializedPoint() throws SQLException, IOException {
+        GeoCoordinate coordinate = nextCoordinate();
+        writeLegacy.setBytes(1, serialize(new Point(coordinate.getLongitude(), coordinate.getLatitude())));
+        writeLegacy.setLong(2, nextId());
+        return writeLegacy.executeUpdate();
+    }
+
+
+    @Benchmark
+    public int writeNumericColumns() throws SQLException {
+        GeoCoordinate coordinate = nextCoordinate();
+        writeNumeric.setDouble(1, coordinate.getLatitude());
+        writeNumeric.setDouble(2, coordinate.getLongitude());
+        writeNumeric.setLong(3, nextId());
+        return writeNumeric.executeUpdate();
+    }
+
+
+    @Benchmark
+    public GeoCoordinate readSerializedPoint() throws SQLException, IOException, ClassNotFoundException {
+        readLegacy.setLong(1, nextId());
+        try (ResultSet rs = readLegacy.executeQuery()) {
+            rs.next();
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(rs.getBytes(1)))) {
+                Point point = (Point) in.readObject();
+                return new GeoCoordinate(point.getY(), point.getX());
+            }
+        }
+    }
+
+
+    @Benchmark
+    public GeoCoordinate readNumericColumns() throws SQLException {
+        readNumeric.setLong(1, nextId());
+        try (ResultSet rs = readNumeric.executeQuery()) {
+            rs.next();
+            return new GeoCoordinate(rs.getDouble(1), rs.getDouble(2));
+        }
+    }
+
+
+    private long nextId() {
+        return next++ % drivers;
+    }
+
+
+    private GeoCoordinate nextCoordinate() {
+        return new GeoCoordinate(52.5 + (next % 100) * 0.001, 13.4);
+    }
+
+
+    private static byte[] serialize(Point point) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(point);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package com.freenow.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and response counts of one endpoint, shared by all clients.
+ */
+class EndpointStats {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+
+    void record(long latencyNanos, int status) {
+        latencies.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+        if (status >= 500 || status < 0) {
+            errors.increment();
+        } else if (status >= 400) {
+            rejected.increment();
+        }
+    }
+
+
+    void reset() {
+        latencies.reset();
+        rejected.reset();
+        errors.reset();
+    }
+
+
+    String getName() {
+        return name;
+    }
+
+    long getCount() {
+        return latencies.getTotalCount();
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * @return latency at the given percentile in milliseconds
+     */
+    double percentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    double maxMillis() {
+        return latencies.getMaxValue() / 1e6;
+    }
+}
@@ -0,0 +1,175 @@
+package com.freenow.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One simulated client. Sends requests back to back, each one picked by the weights of the traffic mix.
+ * <p/>
+ * The client owns a share of the seeded drivers and keeps track of their status and car, so status changes, car
+ * selections and deselections follow what the drivers of a real fleet would do. Selections still race for the
+ * same cars across clients, rejected selections are part of the load.
+ */
+class LoadClient implements Runnable {
+
+    private static final String[] SEARCHES = {
+            "/v1/drivers/search?onlineStatus=online&limit=50",
+            "/v1/drivers/search?seatcount=4&enginetype=gas&limit=50",
+            "/v1/drivers/search?convertible=true&onlineStatus=online&limit=20"
+    };
+
+    private final String baseUrl;
+    private final TrafficMix mix;
+    private final ConcurrentMap<String, EndpointStats> stats;
+    private final List<Long> driverIds;
+    private final List<Long> carIds;
+    private final List<Long> onlineDrivers = new ArrayList<>();
+    private final List<Long> offlineDrivers = new ArrayList<>();
+    private final Map<Long, Long> carsByDriver = new HashMap<>();
+    private final byte[] buffer = new byte[8192];
+    private volatile boolean running = true;
+
+
+    LoadClient(String baseUrl, TrafficMix mix, ConcurrentMap<String, EndpointStats> stats, List<Long> driverIds,
+               List<Long> carIds) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.stats = stats;
+        this.driverIds = driverIds;
+        this.carIds = carIds;
+        this.onlineDrivers.addAll(driverIds);
+    }
+
+
+    void stop() {
+        running = false;
+    }
+
+
+    @Override
+    public void run() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            switch (mix.next(random)) {
+                case LOCATION:
+                    updateLocation(random);
+                    break;
+                case STATUS:
+                    changeStatus(random);
+                    break;
+                case CAR:
+                    selectOrDeselectCar(random);
+                    break;
+                case SEARCH:
+                    search(random);
+                    break;
+                default:
+                    find(random);
+            }
+        }
+    }
+
+
+    private void updateLocation(ThreadLocalRandom random) {
+        long driverId = any(random, driverIds);
+        call("PUT /v1/drivers/{id}", "PUT", String.format(Locale.ROOT, "/v1/drivers/%d?latitude=%.5f&longitude=%.5f",
+                driverId, 52.4 + random.nextDouble() * 0.2, 13.3 + random.nextDouble() * 0.2));
+    }
+
+
+    private void changeStatus(ThreadLocalRandom random) {
+        boolean goOnline = onlineDrivers.isEmpty() || (!offlineDrivers.isEmpty() && random.nextBoolean());
+        List<Long> from = goOnline ? offlineDrivers : onlineDrivers;
+        List<Long> to = goOnline ? onlineDrivers : offlineDrivers;
+        int index = random.nextInt(from.size());
+        long driverId = from.get(index);
+        if (carsByDriver.containsKey(driverId)) {
+            // drivers give back their car before they go offline
+            return;
+        }
+        if (call("PUT /v1/drivers/status/{id}", "PUT",
+                "/v1/drivers/status/" + driverId + "?onlineStatus=" + (goOnline ? "ONLINE" : "OFFLINE")) == 200) {
+            from.remove(index);
+            to.add(driverId);
+        }
+    }
+
+
+    private void selectOrDeselectCar(ThreadLocalRandom random) {
+        long driverId = any(random, onlineDrivers);
+        if (driverId < 0) {
+            return;
+        }
+        if (carsByDriver.containsKey(driverId)) {
+            if (call("PUT /v1/drivers/deselect", "PUT", "/v1/drivers/deselect?driverId=" + driverId) == 200) {
+                carsByDriver.remove(driverId);
+            }
+            return;
+        }
+        long carId = carIds.get(random.nextInt(carIds.size()));
+        if (call("PUT /v1/drivers/select", "PUT", "/v1/drivers/select?driverId=" + driverId + "&carId=" + carId) == 200) {
+            carsByDriver.put(driverId, carId);
+        }
+    }
+
+
+    private void search(ThreadLocalRandom random) {
+        int pick = random.nextInt(SEARCHES.length + 1);
+        if (pick == SEARCHES.length) {
+            call("GET /v1/drivers/nearby", "GET", String.format(Locale.ROOT,
+                    "/v1/drivers/nearby?latitude=%.5f&longitude=%.5f",
+                    52.4 + random.nextDouble() * 0.2, 13.3 + random.nextDouble() * 0.2));
+        } else {
+            call("GET /v1/drivers/search", "GET", SEARCHES[pick]);
+        }
+    }
+
+
+    private void find(ThreadLocalRandom random) {
+        if (random.nextBoolean()) {
+            call("GET /v1/cars/{id}", "GET", "/v1/cars/" + carIds.get(random.nextInt(carIds.size())));
+        } else {
+            call("GET /v1/drivers/{id}", "GET", "/v1/drivers/" + any(random, driverIds));
+        }
+    }
+
+
+    private static long any(ThreadLocalRandom random, List<Long> driverIds) {
+        return driverIds.isEmpty() ? -1 : driverIds.get(random.nextInt(driverIds.size()));
+    }
+
+
+    /**
+     * @return the response status, -1 when the request failed on the connection level
+     */
+    private int call(String endpoint, String method, String path) {
+        long start = System.nanoTime();
+        int status;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            status = connection.getResponseCode();
+            // read to the end so the connection goes back to the keep-alive pool
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (body != null) {
+                    while (body.read(buffer) >= 0) {
+                        // discard
+                    }
+                }
+            }
+        } catch (IOException e) {
+            status = -1;
+        }
+        stats.computeIfAbsent(endpoint, EndpointStats::new).record(System.nanoTime() - start, status);
+        return status;
+    }
+}
@@ -0,0 +1,220 @@
+package com.freenow.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freenow.FreeNowServerApplicantTestApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP load test of the driver and car APIs.
+ * <p/>
+ * Starts the application on a random port with its own in-memory database, seeds drivers and cars through the API,
+ * lets the clients send the traffic mix for the warmup and then for the measured duration and prints the throughput
+ * and latency percentiles per endpoint. Everything runs in one JVM on the local machine.
+ * <p/>
+ * Options, all {@code name=value}: {@code clients} (16), {@code duration} seconds (30), {@code warmup} seconds
+ * (10), {@code drivers} (2000), {@code cars} (500) and {@code mix} (see {@link TrafficMix}). Any other option is
+ * passed on to the application, e.g. {@code driver.location.write-behind.enabled=true}.
+ * <p/>
+ * Clients send their next request as soon as the previous one is answered, so the latencies are those seen at the
+ * throughput the server sustains with that many clients. Raise {@code clients} step by step to find the saturation
+ * point.
+ */
+public class LoadTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String[] ENGINE_TYPES = {"GAS", "DIESEL", "ELECTRIC"};
+    private static final String[] MANUFACTURERS = {"MERCEDES", "BMW", "AUDI", "PORSCHE"};
+
+    private final int clients;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int drivers;
+    private final int cars;
+    private final TrafficMix mix;
+    private final List<String> applicationArgs;
+
+
+    private LoadTest(Map<String, String> options, List<String> applicationArgs) {
+        this.clients = Integer.parseInt(options.getOrDefault("clients", "16"));
+        this.durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        this.warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        this.drivers = Integer.parseInt(options.getOrDefault("drivers", "2000"));
+        this.cars = Integer.parseInt(options.getOrDefault("cars", "500"));
+        this.mix = TrafficMix.parse(options.get("mix"));
+        this.applicationArgs = applicationArgs;
+        if (clients < 1 || drivers < clients || cars < 1) {
+            throw new IllegalArgumentException("Need at least one client, one driver per client and one car.");
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        Collections.addAll(applicationArgs, "--server.port=0", "--spring.jpa.show-sql=false",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest", "--logging.level.root=WARN",
+                "--logging.level.org.springframework.web=ERROR");
+        for (String arg : args) {
+            String option = arg.replaceFirst("^-+", "");
+            String[] pair = option.split("=", 2);
+            if (pair.length == 2 && pair[0].matches("clients|duration|warmup|drivers|cars|mix")) {
+                options.put(pair[0], pair[1]);
+            } else {
+                applicationArgs.add("--" + option);
+            }
+        }
+        new LoadTest(options, applicationArgs).run();
+    }
+
+
+    private void run() throws Exception {
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FreeNowServerApplicantTestApplication.class)
+                .run(applicationArgs.toArray(new String[0]));
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            List<Long> carIds = seed(executor, cars, i -> create(baseUrl + "/v1/cars", car(i)));
+            List<Long> driverIds = seed(executor, drivers, i -> {
+                long driverId = create(baseUrl + "/v1/drivers",
+                        "{\"username\":\"load" + i + "\",\"password\":\"load" + i + "pw\"}");
+                request(baseUrl + "/v1/drivers/status/" + driverId + "?onlineStatus=ONLINE", "PUT", null);
+                return driverId;
+            });
+            System.out.printf("Seeded %d drivers and %d cars, running %d clients with mix %s%n",
+                    driverIds.size(), carIds.size(), clients, mix);
+
+            ConcurrentMap<String, EndpointStats> stats = new ConcurrentHashMap<>();
+            List<LoadClient> loadClients = new ArrayList<>(clients);
+            for (int c = 0; c < clients; c++) {
+                List<Long> owned = new ArrayList<>();
+                for (int i = c; i < driverIds.size(); i += clients) {
+                    owned.add(driverIds.get(i));
+                }
+                LoadClient client = new LoadClient(baseUrl, mix, stats, owned, carIds);
+                loadClients.add(client);
+                executor.execute(client);
+            }
+            TimeUnit.SECONDS.sleep(warmupSeconds);
+            stats.values().forEach(EndpointStats::reset);
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            loadClients.forEach(LoadClient::stop);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            report(new TreeMap<>(stats), seconds);
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            context.close();
+        }
+    }
+
+
+    private static void report(Map<String, EndpointStats> stats, double seconds) {
+        String format = "%-28s %9s %9s %8s %8s %8s %8s %8s %7s %7s%n";
+        System.out.printf(format, "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms",
+                "max ms", "4xx", "errors");
+        long total = 0;
+        for (EndpointStats endpoint : stats.values()) {
+            total += endpoint.getCount();
+            System.out.printf(format, endpoint.getName(), endpoint.getCount(),
+                    decimal(endpoint.getCount() / seconds), decimal(endpoint.percentileMillis(50)),
+                    decimal(endpoint.percentileMillis(90)), decimal(endpoint.percentileMillis(99)),
+                    decimal(endpoint.percentileMillis(99.9)), decimal(endpoint.maxMillis()),
+                    endpoint.getRejected(), endpoint.getErrors());
+        }
+        System.out.printf(format, "total", total, decimal(total / seconds), "", "", "", "", "", "", "");
+    }
+
+
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+
+    private static String car(int i) {
+        return "{\"licensePlate\":\"LT-" + i + "\",\"seatCount\":" + (2 + i % 6) + ",\"convertible\":" + (i % 4 == 0)
+                + ",\"engineType\":\"" + ENGINE_TYPES[i % ENGINE_TYPES.length] + "\",\"manufacturer\":\""
+                + MANUFACTURERS[i % MANUFACTURERS.length] + "\",\"rating\":\"FOUR\"}";
+    }
+
+
+    private static List<Long> seed(ExecutorService executor, int count, Creator creator) throws Exception {
+        List<Future<Long>> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            ids.add(executor.submit(() -> creator.create(index)));
+        }
+        List<Long> created = new ArrayList<>(count);
+        for (Future<Long> id : ids) {
+            created.add(id.get());
+        }
+        return created;
+    }
+
+
+    private static long create(String url, String json) throws IOException {
+        JsonNode created = OBJECT_MAPPER.readTree(request(url, "POST", json));
+        return created.get("id").asLong();
+    }
+
+
+    private static byte[] request(String url, String method, String json) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if (json != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream body = connection.getOutputStream()) {
+                body.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        if (status >= 300) {
+            throw new IOException(method + " " + url + " failed with status " + status);
+        }
+        try (InputStream body = connection.getInputStream()) {
+            return readAll(body);
+        }
+    }
+
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+
+    @FunctionalInterface
+    private interface Creator {
+        long create(int index) throws IOException;
+    }
+}
@@ -0,0 +1,80 @@
+package com.freenow.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Relative weights of the request kinds, e.g. {@code location=60,status=10,car=10,search=15,find=5}. Kinds left
+ * out keep their default weight, a weight of 0 turns a kind off.
+ */
+class TrafficMix {
+
+    enum Kind {
+        LOCATION(60), STATUS(10), CAR(10), SEARCH(15), FIND(5);
+
+        private final int defaultWeight;
+
+        Kind(int defaultWeight) {
+            this.defaultWeight = defaultWeight;
+        }
+    }
+
+    private final Kind[] kinds = Kind.values();
+    private final int[] upperBounds = new int[kinds.length];
+    private final int total;
+
+
+    TrafficMix(Map<Kind, Integer> weights) {
+        int sum = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            int weight = weights.getOrDefault(kinds[i], kinds[i].defaultWeight);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight of " + kinds[i] + " must not be negative.");
+            }
+            sum += weight;
+            upperBounds[i] = sum;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("At least one request kind needs a weight.");
+        }
+        this.total = sum;
+    }
+
+
+    static TrafficMix parse(String mix) {
+        Map<Kind, Integer> weights = new EnumMap<>(Kind.class);
+        if (mix != null && !mix.trim().isEmpty()) {
+            for (String entry : mix.split(",")) {
+                String[] pair = entry.split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Expected kind=weight but was " + entry);
+                }
+                weights.put(Kind.valueOf(pair[0].trim().toUpperCase()), Integer.valueOf(pair[1].trim()));
+            }
+        }
+        return new TrafficMix(weights);
+    }
+
+
+    Kind next(ThreadLocalRandom random) {
+        int pick = random.nextInt(total);
+        for (int i = 0; i < kinds.length; i++) {
+            if (pick < upperBounds[i]) {
+                return kinds[i];
+            }
+        }
+        throw new IllegalStateException("Pick out of range: " + pick);
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < kinds.length; i++) {
+            int weight = upperBounds[i] - (i == 0 ? 0 : upperBounds[i - 1]);
+            text.append(i == 0 ? "" : ",").append(kinds[i].name().toLowerCase()).append('=').append(weight);
+        }
+        return text.toString();
+    }
+}
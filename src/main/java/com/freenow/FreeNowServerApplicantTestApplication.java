@@ -2,7 +2,7 @@ package com.freenow;
 
 import com.freenow.datatransferobject.CarDTO;
 import com.freenow.datatransferobject.DriverDTO;
-import com.freenow.util.LoggingInterceptor;
+import com.freenow.util.AccessLogInterceptor;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -19,6 +19,14 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 @SpringBootApplication
 public class FreeNowServerApplicantTestApplication extends WebMvcConfigurerAdapter {
 
+    private final AccessLogInterceptor accessLogInterceptor;
+
+
+    public FreeNowServerApplicantTestApplication(AccessLogInterceptor accessLogInterceptor) {
+        this.accessLogInterceptor = accessLogInterceptor;
+    }
+
+
     public static void main(String[] args) {
         SpringApplication.run(FreeNowServerApplicantTestApplication.class, args);
     }
@@ -26,7 +34,7 @@ public class FreeNowServerApplicantTestApplication extends WebMvcConfigurerAdapt
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        registry.addInterceptor(new LoggingInterceptor()).addPathPatterns("/**");
+        registry.addInterceptor(accessLogInterceptor).addPathPatterns("/**");
     }
 
 
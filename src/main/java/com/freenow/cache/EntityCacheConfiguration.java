@@ -0,0 +1,34 @@
+package com.freenow.cache;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Read-through caches in front of the driver and car lookups by id.
+ */
+@Configuration
+public class EntityCacheConfiguration {
+
+    @Bean
+    public ReadThroughCache<Long, DriverDO> driverCache(
+            MeterRegistry meterRegistry,
+            @Value("${entity-cache.driver.maximum-size:10000}") long maximumSize,
+            @Value("${entity-cache.driver.ttl-seconds:30}") long ttlSeconds) {
+        return new ReadThroughCache<>("drivers", maximumSize, Duration.ofSeconds(ttlSeconds), meterRegistry);
+    }
+
+
+    @Bean
+    public ReadThroughCache<Long, CarDO> carCache(
+            MeterRegistry meterRegistry,
+            @Value("${entity-cache.car.maximum-size:10000}") long maximumSize,
+            @Value("${entity-cache.car.ttl-seconds:300}") long ttlSeconds) {
+        return new ReadThroughCache<>("cars", maximumSize, Duration.ofSeconds(ttlSeconds), meterRegistry);
+    }
+}
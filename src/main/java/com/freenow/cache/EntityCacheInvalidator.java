@@ -0,0 +1,46 @@
+package com.freenow.cache;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Drops cached drivers and cars once a change to them committed. A cached driver embeds its car, so car changes
+ * drop the drivers holding the car as well.
+ */
+@Component
+public class EntityCacheInvalidator {
+
+    private final ReadThroughCache<Long, DriverDO> driverCache;
+    private final ReadThroughCache<Long, CarDO> carCache;
+
+
+    public EntityCacheInvalidator(ReadThroughCache<Long, DriverDO> driverCache, ReadThroughCache<Long, CarDO> carCache) {
+        this.driverCache = driverCache;
+        this.carCache = carCache;
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        if (event.getType() == DriverEvent.Type.SNAPSHOT) {
+            return;
+        }
+        driverCache.invalidate(event.getDriverId());
+        if (event.getCarId() != null) {
+            carCache.invalidate(event.getCarId());
+        }
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarEvent(CarEvent event) {
+        carCache.invalidate(event.getCarId());
+        driverCache.invalidateIf(driverDO -> driverDO.getCarDO() != null
+                && driverDO.getCarDO().getId() != null
+                && driverDO.getCarDO().getId() == event.getCarId());
+    }
+}
@@ -0,0 +1,66 @@
+package com.freenow.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bounded read-through cache with a time to live, reporting hits, misses and evictions as {@code cache.*} metrics
+ * tagged with the cache name.
+ * <p/>
+ * Failed loads are not cached, so a missing entity is looked up again on the next call. Entries are invalidated by
+ * the writers after their transaction committed; a read racing with a write can still cache the old value, which then
+ * lives at most for the time to live.
+ */
+public class ReadThroughCache<K, V> {
+
+    private final Cache<K, V> cache;
+
+
+    public ReadThroughCache(String name, long maximumSize, Duration timeToLive, MeterRegistry meterRegistry) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+
+    /**
+     * @param loader called on a miss, exceptions are passed on unchanged
+     */
+    public V get(K key, Function<K, V> loader) {
+        try {
+            return cache.get(key, () -> loader.apply(key));
+        } catch (UncheckedExecutionException | ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+
+    public void invalidateIf(Predicate<V> predicate) {
+        cache.asMap().values().removeIf(predicate);
+    }
+
+
+    public long size() {
+        return cache.size();
+    }
+}
@@ -1,16 +1,34 @@
 package com.freenow.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.freenow.controller.mapper.CarMapper;
 import com.freenow.datatransferobject.CarDTO;
+import com.freenow.datatransferobject.CarImportResultDTO;
 import com.freenow.domainobject.CarDO;
 import com.freenow.domainvalue.Rating;
 import com.freenow.service.car.CarService;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 
 /**
  * All operations with a car will be routed by this controller.
@@ -20,11 +38,22 @@ import javax.validation.Valid;
 @RequestMapping("v1/cars")
 public class CarController {
 
+    static final String TEXT_CSV_VALUE = "text/csv";
+
     private final CarService carService;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final Validator validator;
 
     @Autowired
-    public CarController(final CarService carService) {
+    public CarController(final CarService carService, final ObjectMapper objectMapper, final Validator validator) {
         this.carService = carService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.csvMapper = new CsvMapper();
+        this.csvMapper.enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS);
+        // an empty cell is a missing value, so it fails validation like a missing JSON property
+        this.csvMapper.enable(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT);
     }
 
 
@@ -60,4 +89,39 @@ public class CarController {
         return CarMapper.makeCarDTO(carService.updateRating(carId, rating));
     }
 
+
+    @ApiOperation("Import cars from a CSV with header line or newline delimited JSON, streams one result per row")
+    @PostMapping(value = "/import",
+            consumes = {TEXT_CSV_VALUE, DriverController.APPLICATION_NDJSON_VALUE},
+            produces = DriverController.APPLICATION_NDJSON_VALUE)
+    public void importCars(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MediaType contentType = MediaType.parseMediaType(request.getHeader(HttpHeaders.CONTENT_TYPE));
+        try (MappingIterator<CarDTO> cars = readCars(contentType, request.getInputStream())) {
+            response.setContentType(DriverController.APPLICATION_NDJSON_VALUE);
+            ObjectWriter writer = objectMapper.writerFor(CarImportResultDTO.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            carService.importCars(new CarImportReader(cars, validator), result -> {
+                try {
+                    writer.writeValue(generator, CarMapper.makeCarImportResultDTO(result));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.close();
+        }
+    }
+
+
+    private MappingIterator<CarDTO> readCars(MediaType contentType, InputStream body) throws IOException {
+        if (contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))) {
+            return csvMapper.readerFor(CarDTO.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(body);
+        }
+        return objectMapper.readerFor(CarDTO.class).readValues(body);
+    }
+
 }
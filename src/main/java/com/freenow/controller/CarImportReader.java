@@ -0,0 +1,88 @@
+package com.freenow.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.freenow.controller.mapper.CarMapper;
+import com.freenow.datatransferobject.CarDTO;
+import com.freenow.domainvalue.CarImportRow;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the rows of a car import one at a time and validates each one like a single car passed to {@code POST
+ * /v1/cars}.
+ * <p/>
+ * A row that cannot be mapped to a {@link CarDTO} or breaks a constraint is returned as invalid and reading goes on
+ * with the next row. Input that is not even well-formed ends the import with a last invalid row, the parser cannot
+ * find the start of the next row then.
+ */
+class CarImportReader implements Iterator<CarImportRow> {
+
+    private final MappingIterator<CarDTO> cars;
+    private final Validator validator;
+    private long row;
+    private CarImportRow next;
+    private boolean done;
+
+
+    CarImportReader(MappingIterator<CarDTO> cars, Validator validator) {
+        this.cars = cars;
+        this.validator = validator;
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = read();
+        }
+        return next != null;
+    }
+
+
+    @Override
+    public CarImportRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CarImportRow current = next;
+        next = null;
+        return current;
+    }
+
+
+    private CarImportRow read() {
+        long number = row + 1;
+        try {
+            if (!cars.hasNextValue()) {
+                done = true;
+                return null;
+            }
+            row = number;
+            CarDTO carDTO = cars.nextValue();
+            Set<ConstraintViolation<CarDTO>> violations = validator.validate(carDTO);
+            if (!violations.isEmpty()) {
+                return CarImportRow.invalid(number, carDTO.getLicensePlate(), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(" ")));
+            }
+            return CarImportRow.valid(number, CarMapper.makeCarDO(carDTO));
+        } catch (JsonMappingException e) {
+            return CarImportRow.invalid(number, null, e.getOriginalMessage());
+        } catch (IOException e) {
+            done = true;
+            String reason = e instanceof JsonProcessingException
+                    ? ((JsonProcessingException) e).getOriginalMessage()
+                    : e.getMessage();
+            return CarImportRow.invalid(number, null, "Import stopped, the input cannot be read: " + reason);
+        }
+    }
+}
@@ -1,17 +1,40 @@
 package com.freenow.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.freenow.controller.mapper.DriverMapper;
 import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.datatransferobject.LocationUpdateDTO;
+import com.freenow.datatransferobject.LocationUpdateResultDTO;
+import com.freenow.datatransferobject.DriverMatchDTO;
+import com.freenow.datatransferobject.HeatmapCellDTO;
+import com.freenow.datatransferobject.NearbyDriverDTO;
+import com.freenow.datatransferobject.TrajectoryPointDTO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.EngineType;
 import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.match.RideRequirements;
+import com.freenow.search.DriverPage;
 import com.freenow.service.driver.DriverService;
+import com.freenow.stream.DriverUpdateFilter;
+import com.freenow.stream.DriverUpdateSubscription;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,12 +46,19 @@ import java.util.Map;
 @RequestMapping("v1/drivers")
 public class DriverController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String CURSOR_PARAM = "cursor";
+    private static final String LIMIT_PARAM = "limit";
+
     private final DriverService driverService;
+    private final ObjectMapper objectMapper;
 
 
     @Autowired
-    public DriverController(final DriverService driverService) {
+    public DriverController(final DriverService driverService, final ObjectMapper objectMapper) {
         this.driverService = driverService;
+        this.objectMapper = objectMapper;
     }
 
     @ApiOperation("Get driver by ID")
@@ -65,6 +95,15 @@ public class DriverController {
     }
 
 
+    @ApiOperation("Update the locations of many drivers at once, reports the outcome per item")
+    @PutMapping("/locations")
+    @ResponseStatus(HttpStatus.OK)
+    public List<LocationUpdateResultDTO> updateLocations(@RequestBody List<LocationUpdateDTO> locationUpdates) {
+        return DriverMapper.makeLocationUpdateResultDTOList(
+                driverService.updateLocations(DriverMapper.makeLocationUpdateList(locationUpdates)));
+    }
+
+
     @ApiOperation("Update driver online status")
     @PutMapping("/status/{driverId}")
     @ResponseStatus(HttpStatus.OK)
@@ -73,6 +112,65 @@ public class DriverController {
     }
 
 
+    @ApiOperation("Find the online drivers nearest to a location")
+    @GetMapping("/nearby")
+    @ResponseStatus(HttpStatus.OK)
+    public List<NearbyDriverDTO> findNearbyDrivers(
+            @RequestParam double latitude, @RequestParam double longitude, @RequestParam(defaultValue = "10") int limit) {
+        return DriverMapper.makeNearbyDriverDTOList(driverService.findNearbyDrivers(latitude, longitude, limit));
+    }
+
+
+    @ApiOperation("Find the closest online drivers whose car satisfies the rider's requirements")
+    @GetMapping("/match")
+    @ResponseStatus(HttpStatus.OK)
+    public List<DriverMatchDTO> matchDrivers(
+            @RequestParam double latitude, @RequestParam double longitude,
+            @RequestParam(defaultValue = "0") int minSeatCount, @RequestParam(required = false) EngineType engineType,
+            @RequestParam(required = false) Boolean convertible, @RequestParam(required = false) Rating minRating,
+            @RequestParam(defaultValue = "1") int limit) {
+        RideRequirements requirements = new RideRequirements(minSeatCount, engineType, convertible, minRating);
+        return DriverMapper.makeDriverMatchDTOList(driverService.matchDrivers(latitude, longitude, requirements, limit));
+    }
+
+
+    @ApiOperation("Count the online drivers per grid cell, split by engine type and seat count of their cars")
+    @GetMapping("/heatmap")
+    @ResponseStatus(HttpStatus.OK)
+    public List<HeatmapCellDTO> getHeatmap() {
+        return DriverMapper.makeHeatmapCellDTOList(driverService.getHeatmap());
+    }
+
+
+    @ApiOperation("Recorded locations of a driver between two epoch millis, the last hour by default, oldest first")
+    @GetMapping("/{driverId}/trajectory")
+    @ResponseStatus(HttpStatus.OK)
+    public List<TrajectoryPointDTO> getTrajectory(
+            @PathVariable long driverId, @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to, @RequestParam(defaultValue = "1000") int limit) {
+        return DriverMapper.makeTrajectoryPointDTOList(driverService.getTrajectory(driverId, from, to, limit));
+    }
+
+
+    @ApiOperation("Subscribe to location and status changes of the drivers in a bounding box and/or with the given ids "
+            + "as server-sent events")
+    @GetMapping(value = "/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToUpdates(@RequestParam(required = false) Double minLatitude,
+                                         @RequestParam(required = false) Double minLongitude,
+                                         @RequestParam(required = false) Double maxLatitude,
+                                         @RequestParam(required = false) Double maxLongitude,
+                                         @RequestParam(required = false) List<Long> driverIds) {
+        DriverUpdateFilter filter = DriverUpdateFilter.of(minLatitude, minLongitude, maxLatitude, maxLongitude,
+                driverIds);
+        DriverUpdateEmitter emitter = new DriverUpdateEmitter();
+        DriverUpdateSubscription subscription = driverService.subscribeToUpdates(filter, emitter);
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+
     @ApiOperation("Select a car for a driver")
     @PutMapping("/select")
     @ResponseStatus(HttpStatus.OK)
@@ -88,11 +186,44 @@ public class DriverController {
         return DriverMapper.makeDriverDTO(driverService.deSelectCarByDriver(driverId));
     }
 
-    @ApiOperation("Search drivers by their attributes or their car characteristics")
+    @ApiOperation("Search drivers by their attributes or their car characteristics, the highest ids first. "
+            + "The token of the next page is returned in the " + NEXT_CURSOR_HEADER + " header.")
     @GetMapping("/search")
-    @ResponseStatus(HttpStatus.OK)
-    public List<DriverDTO> searchDrivers(@RequestParam Map<String, String> queryParam) {
-        return DriverMapper.makeDriverDTOList(driverService.searchDrivers(Collections.unmodifiableMap(queryParam)));
+    public ResponseEntity<List<DriverDTO>> searchDrivers(
+            @RequestParam Map<String, String> queryParam,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        Map<String, String> criteria = new HashMap<>(queryParam);
+        criteria.remove(CURSOR_PARAM);
+        criteria.remove(LIMIT_PARAM);
+        DriverPage page = driverService.searchDrivers(Collections.unmodifiableMap(criteria), cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(DriverMapper.makeDriverDTOList(page.getDrivers()));
+    }
+
+
+    @ApiOperation("Stream all drivers matching a search as newline delimited JSON, the highest ids first")
+    @GetMapping(value = "/search", produces = APPLICATION_NDJSON_VALUE)
+    public void streamDrivers(@RequestParam Map<String, String> queryParam, HttpServletResponse response)
+            throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        ObjectWriter writer = objectMapper.writerFor(DriverDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        // the stream is not closed on failure, so invalid criteria still end up as an error status
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        driverService.streamDrivers(Collections.unmodifiableMap(queryParam), driverDO -> {
+            try {
+                writer.writeValue(generator, DriverMapper.makeDriverDTO(driverDO));
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.close();
     }
 
 }
@@ -0,0 +1,51 @@
+package com.freenow.controller;
+
+import com.freenow.controller.mapper.DriverMapper;
+import com.freenow.event.DriverEvent;
+import com.freenow.stream.DriverUpdateListener;
+import com.freenow.stream.DriverUpdateSubscription;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the changes of a driver update subscription as server-sent events: one {@code drivers} event with a JSON
+ * array per flush, a comment line as heartbeat.
+ * <p/>
+ * The emitter never times out, broken connections fail on the next heartbeat and stalled ones on the send timeout of
+ * the stream. A subscriber closed by the stream is disconnected without a further event, the client behind it
+ * either cannot keep up or is gone.
+ */
+class DriverUpdateEmitter extends SseEmitter implements DriverUpdateListener {
+
+    static final String UPDATE_EVENT = "drivers";
+
+
+    DriverUpdateEmitter() {
+        super(0L);
+    }
+
+
+    @Override
+    public void onUpdates(List<DriverEvent> updates) throws IOException {
+        if (updates.isEmpty()) {
+            send(event().comment("heartbeat"));
+        } else {
+            send(event().name(UPDATE_EVENT).data(DriverMapper.makeDriverUpdateDTOList(updates),
+                    MediaType.APPLICATION_JSON));
+        }
+    }
+
+
+    @Override
+    public void onClose(DriverUpdateSubscription.CloseReason reason) {
+        if (reason == DriverUpdateSubscription.CloseReason.STALLED
+                || reason == DriverUpdateSubscription.CloseReason.FAILED) {
+            completeWithError(new IOException("Driver update subscriber " + reason.name().toLowerCase()));
+        } else {
+            complete();
+        }
+    }
+}
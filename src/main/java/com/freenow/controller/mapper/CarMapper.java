@@ -1,7 +1,9 @@
 package com.freenow.controller.mapper;
 
 import com.freenow.datatransferobject.CarDTO;
+import com.freenow.datatransferobject.CarImportResultDTO;
 import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.CarImportResult;
 
 import java.util.Collection;
 import java.util.List;
@@ -39,4 +41,10 @@ public class CarMapper {
                 .map(CarMapper::makeCarDTO)
                 .collect(Collectors.toList());
     }
+
+
+    public static CarImportResultDTO makeCarImportResultDTO(CarImportResult result) {
+        return new CarImportResultDTO(result.getRow(), result.getLicensePlate(), result.getStatus(), result.getCarId(),
+                result.getMessage());
+    }
 }
@@ -1,9 +1,24 @@
 package com.freenow.controller.mapper;
 
 import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.datatransferobject.DriverUpdateDTO;
+import com.freenow.datatransferobject.LocationUpdateDTO;
+import com.freenow.datatransferobject.LocationUpdateResultDTO;
+import com.freenow.datatransferobject.DriverMatchDTO;
+import com.freenow.datatransferobject.HeatmapCellDTO;
+import com.freenow.datatransferobject.NearbyDriverDTO;
+import com.freenow.datatransferobject.TrajectoryPointDTO;
 import com.freenow.domainobject.CarDO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.CarProfile;
 import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.LocationUpdate;
+import com.freenow.domainvalue.LocationUpdateResult;
+import com.freenow.event.DriverEvent;
+import com.freenow.geo.HeatmapCell;
+import com.freenow.geo.NearbyDriver;
+import com.freenow.history.TrajectoryPoint;
+import com.freenow.match.DriverMatch;
 
 import java.util.Collection;
 import java.util.List;
@@ -38,7 +53,93 @@ public class DriverMapper {
     public static List<DriverDTO> makeDriverDTOList(Collection<DriverDO> drivers) {
         return drivers.stream()
                 .map(DriverMapper::makeDriverDTO)
-                .sorted(DriverDTO.idDescending())
+                .collect(Collectors.toList());
+    }
+
+    public static NearbyDriverDTO makeNearbyDriverDTO(NearbyDriver nearbyDriver) {
+        return NearbyDriverDTO.newBuilder()
+                .setId(nearbyDriver.getDriverId())
+                .setCoordinate(new GeoCoordinate(nearbyDriver.getLatitude(), nearbyDriver.getLongitude()))
+                .setDistance(nearbyDriver.getDistanceMeters())
+                .createNearbyDriverDTO();
+    }
+
+    public static List<NearbyDriverDTO> makeNearbyDriverDTOList(Collection<NearbyDriver> nearbyDrivers) {
+        return nearbyDrivers.stream()
+                .map(DriverMapper::makeNearbyDriverDTO)
+                .collect(Collectors.toList());
+    }
+
+    public static DriverMatchDTO makeDriverMatchDTO(DriverMatch match) {
+        CarProfile car = match.getCar();
+        return DriverMatchDTO.newBuilder()
+                .setId(match.getDriverId())
+                .setCarId(match.getCarId())
+                .setCoordinate(new GeoCoordinate(match.getLatitude(), match.getLongitude()))
+                .setDistance(match.getDistanceMeters())
+                .setSeatCount(car.getSeatCount())
+                .setConvertible(car.isConvertible())
+                .setEngineType(car.getEngineType())
+                .setRating(car.getRating())
+                .createDriverMatchDTO();
+    }
+
+    public static List<DriverMatchDTO> makeDriverMatchDTOList(Collection<DriverMatch> matches) {
+        return matches.stream()
+                .map(DriverMapper::makeDriverMatchDTO)
+                .collect(Collectors.toList());
+    }
+
+    public static HeatmapCellDTO makeHeatmapCellDTO(HeatmapCell cell) {
+        return HeatmapCellDTO.newBuilder()
+                .setMinLatitude(cell.getMinLatitude())
+                .setMinLongitude(cell.getMinLongitude())
+                .setMaxLatitude(cell.getMaxLatitude())
+                .setMaxLongitude(cell.getMaxLongitude())
+                .setOnline(cell.getOnline())
+                .setWithoutCar(cell.getWithoutCar())
+                .setByEngineType(cell.getByEngineType())
+                .setBySeatCount(cell.getBySeatCount())
+                .createHeatmapCellDTO();
+    }
+
+    public static List<HeatmapCellDTO> makeHeatmapCellDTOList(Collection<HeatmapCell> cells) {
+        return cells.stream()
+                .map(DriverMapper::makeHeatmapCellDTO)
+                .collect(Collectors.toList());
+    }
+
+    public static TrajectoryPointDTO makeTrajectoryPointDTO(TrajectoryPoint point) {
+        return TrajectoryPointDTO.newBuilder()
+                .setTimestamp(point.getEpochMillis())
+                .setCoordinate(new GeoCoordinate(point.getLatitude(), point.getLongitude()))
+                .createTrajectoryPointDTO();
+    }
+
+    public static List<TrajectoryPointDTO> makeTrajectoryPointDTOList(Collection<TrajectoryPoint> points) {
+        return points.stream()
+                .map(DriverMapper::makeTrajectoryPointDTO)
+                .collect(Collectors.toList());
+    }
+
+    public static List<LocationUpdate> makeLocationUpdateList(Collection<LocationUpdateDTO> locationUpdateDTOs) {
+        long now = System.currentTimeMillis();
+        return locationUpdateDTOs.stream()
+                .map(dto -> new LocationUpdate(dto.getDriverId(), dto.getLatitude(), dto.getLongitude(),
+                        dto.getTimestamp() != null ? dto.getTimestamp() : now))
+                .collect(Collectors.toList());
+    }
+
+    public static List<LocationUpdateResultDTO> makeLocationUpdateResultDTOList(Collection<LocationUpdateResult> results) {
+        return results.stream()
+                .map(result -> new LocationUpdateResultDTO(result.getDriverId(), result.getStatus(), result.getMessage()))
+                .collect(Collectors.toList());
+    }
+
+    public static List<DriverUpdateDTO> makeDriverUpdateDTOList(Collection<DriverEvent> events) {
+        return events.stream()
+                .map(event -> new DriverUpdateDTO(event.getDriverId(), event.getType(), event.getOnlineStatus(),
+                        event.isDeleted(), event.getCoordinate()))
                 .collect(Collectors.toList());
     }
 }
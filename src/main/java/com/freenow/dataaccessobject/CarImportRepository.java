@@ -0,0 +1,27 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainobject.CarDO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plain JDBC access for bulk car imports, bypassing the persistence context.
+ * <p/>
+ */
+public interface CarImportRepository {
+
+    /**
+     * @return those of the given license plates that are already taken, by deleted cars as well
+     */
+    Set<String> findTakenLicensePlates(Collection<String> licensePlates);
+
+    /**
+     * Inserts all cars in one JDBC batch. Each car gets a new id from the car sequence, in blocks as Hibernate
+     * allocates them, the ids are set before the batch runs.
+     *
+     * @throws org.springframework.dao.DataIntegrityViolationException if a license plate is taken
+     */
+    void insertCars(List<CarDO> cars);
+}
@@ -0,0 +1,96 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainobject.CarDO;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JDBC implementation of {@link CarImportRepository}, picked up by Spring Data as fragment of {@link CarRepository}.
+ */
+public class CarImportRepositoryImpl implements CarImportRepository {
+
+    private static final String INSERT_CAR = "insert into car (id, license_plate, seat_count, convertible, engine_type, " +
+            "manufacturer, rating, date_car_created, date_rating_updated, deleted, car_selected_by_driver) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, false, false)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+
+    public CarImportRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+
+    @Override
+    public Set<String> findTakenLicensePlates(Collection<String> licensePlates) {
+        if (licensePlates.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList("select license_plate from car where license_plate in (:plates)",
+                Collections.singletonMap("plates", licensePlates), String.class));
+    }
+
+
+    @Override
+    public void insertCars(List<CarDO> cars) {
+        assignIds(cars);
+        jdbcTemplate.getJdbcOperations().batchUpdate(INSERT_CAR, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CarDO car = cars.get(i);
+                ps.setLong(1, car.getId());
+                ps.setString(2, car.getLicensePlate());
+                ps.setShort(3, car.getSeatCount());
+                ps.setBoolean(4, car.isConvertible());
+                ps.setString(5, car.getEngineType().name());
+                ps.setString(6, car.getManufacturer().name());
+                ps.setString(7, car.getRating().name());
+                ps.setTimestamp(8, timestamp(car.getDateCarCreated()));
+                ps.setTimestamp(9, timestamp(car.getDateRatingUpdated()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return cars.size();
+            }
+        });
+    }
+
+
+    /**
+     * Takes one sequence value per block of {@link CarDO#ID_ALLOCATION_SIZE} cars. As for the pooled optimizer of
+     * Hibernate a value is the last id of its block. Values of a fresh sequence below the block size would give ids
+     * below 1 and are skipped.
+     */
+    private void assignIds(List<CarDO> cars) {
+        int next = 0;
+        while (next < cars.size()) {
+            int blocks = (cars.size() - next + CarDO.ID_ALLOCATION_SIZE - 1) / CarDO.ID_ALLOCATION_SIZE;
+            List<Long> lastIds = jdbcTemplate.getJdbcOperations().queryForList(
+                    "select next value for car_seq from system_range(1, ?)", Long.class, blocks);
+            for (long lastId : lastIds) {
+                if (lastId < CarDO.ID_ALLOCATION_SIZE) {
+                    continue;
+                }
+                for (long id = lastId - CarDO.ID_ALLOCATION_SIZE + 1; id <= lastId && next < cars.size(); id++) {
+                    cars.get(next++).setId(id);
+                }
+            }
+        }
+    }
+
+
+    private static Timestamp timestamp(ZonedDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.from(dateTime.toInstant());
+    }
+}
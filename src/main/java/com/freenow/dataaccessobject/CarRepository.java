@@ -1,7 +1,32 @@
 package com.freenow.dataaccessobject;
 
 import com.freenow.domainobject.CarDO;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
-public interface CarRepository extends CrudRepository<CarDO, Long> {
+public interface CarRepository extends CrudRepository<CarDO, Long>, CarImportRepository {
+
+    /**
+     * Marks a car as selected unless it already is or was deleted, in one conditional statement.
+     *
+     * @return 1 if this call selected the car, 0 if it was already selected or deleted
+     */
+    @Modifying
+    @Query("update CarDO c set c.carSelectedByDriver = true " +
+            "where c.id = :carId and c.carSelectedByDriver = false and c.deleted = false")
+    int claim(@Param("carId") long carId);
+
+
+    /**
+     * Soft-deletes a car unless it is selected by a driver, in one conditional statement so a concurrent claim is
+     * never overwritten.
+     *
+     * @return 1 if this call deleted the car, 0 if it is selected or was already deleted
+     */
+    @Modifying
+    @Query("update CarDO c set c.deleted = true " +
+            "where c.id = :carId and c.carSelectedByDriver = false and c.deleted = false")
+    int markDeleted(@Param("carId") long carId);
 }
@@ -0,0 +1,132 @@
+package com.freenow.dataaccessobject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.geo.Point;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves driver positions from the legacy {@code coordinate} column, a Java-serialized
+ * {@link org.springframework.data.geo.Point}, into the numeric {@code latitude} and {@code longitude} columns.
+ * <p/>
+ * Runs once at startup after Hibernate has updated the schema. Only a persistent schema kept with
+ * {@code ddl-auto=update} or {@code none} can still have the legacy column; databases created by the current mapping,
+ * like the bundled in-memory one, do not have it, in which case nothing happens. The legacy column is left in place and can be dropped once all
+ * nodes run with the numeric columns.
+ */
+@Component
+public class DriverCoordinateMigration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverCoordinateMigration.class);
+    private static final String LEGACY_COLUMN = "coordinate";
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+
+    /**
+     * @param entityManagerFactory only injected so the migration runs after Hibernate's schema handling
+     */
+    public DriverCoordinateMigration(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+
+    @PostConstruct
+    public void start() {
+        migrate();
+    }
+
+
+    /**
+     * @return number of migrated drivers
+     */
+    public int migrate() {
+        if (!hasLegacyColumn()) {
+            return 0;
+        }
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        int[] migrated = {0};
+        jdbcTemplate.query("select id, coordinate from driver where coordinate is not null and latitude is null", rs -> {
+            Point point = deserialize(rs.getBytes(2));
+            batch.add(new Object[]{point.getY(), point.getX(), rs.getLong(1)});
+            if (batch.size() == BATCH_SIZE) {
+                migrated[0] += update(batch);
+            }
+        });
+        migrated[0] += update(batch);
+        LOGGER.info("Migrated {} driver coordinates from the legacy column '{}'.", migrated[0], LEGACY_COLUMN);
+        return migrated[0];
+    }
+
+
+    private boolean hasLegacyColumn() {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String table : new String[]{"driver", "DRIVER"}) {
+                for (String column : new String[]{LEGACY_COLUMN, LEGACY_COLUMN.toUpperCase()}) {
+                    try (ResultSet columns = metaData.getColumns(null, null, table, column)) {
+                        if (columns.next()) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+    }
+
+
+    private int update(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate("update driver set latitude = ?, longitude = ? where id = ?", batch);
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+
+    private static Point deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new PointInputStream(new ByteArrayInputStream(bytes))) {
+            return (Point) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not read legacy driver coordinate", e);
+        }
+    }
+
+
+    /**
+     * Refuses every class but {@link Point}, the column content is not trusted.
+     */
+    private static final class PointInputStream extends ObjectInputStream {
+
+        private PointInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!Point.class.getName().equals(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Unexpected class in legacy coordinate");
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
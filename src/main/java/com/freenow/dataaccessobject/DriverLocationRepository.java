@@ -0,0 +1,62 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.state.DriverState;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access to driver positions for bulk updates, bypassing the persistence context.
+ * <p/>
+ */
+public interface DriverLocationRepository {
+
+    /**
+     * Writes all positions in one JDBC batch. A position is skipped when the driver is deleted or already has a
+     * position with a newer timestamp.
+     *
+     * @return number of updated rows per position, in the order of the given list
+     */
+    int[] updateLocations(List<PositionUpdate> positions);
+
+    /**
+     * Passes position, status, car with its attributes and time of the last change of every non-deleted driver to the
+     * consumer, in one pass over the table and without creating entities.
+     */
+    void scanDriverStates(Consumer<DriverState> consumer);
+
+    /**
+     * Reads the same state as {@link #scanDriverStates} for the given drivers. Within the transaction that wrote their
+     * positions the rows are locked, so the states are the ones committed together with the positions.
+     *
+     * @return states of the non-deleted drivers among the given ones, in no particular order
+     */
+    List<DriverState> findDriverStates(Collection<Long> driverIds);
+
+
+    class PositionUpdate {
+        private final long driverId;
+        private final GeoCoordinate coordinate;
+        private final long epochMillis;
+
+        public PositionUpdate(long driverId, GeoCoordinate coordinate, long epochMillis) {
+            this.driverId = driverId;
+            this.coordinate = coordinate;
+            this.epochMillis = epochMillis;
+        }
+
+        public long getDriverId() {
+            return driverId;
+        }
+
+        public GeoCoordinate getCoordinate() {
+            return coordinate;
+        }
+
+        public long getEpochMillis() {
+            return epochMillis;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.state.DriverState;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JDBC implementation of {@link DriverLocationRepository}, picked up by Spring Data as fragment of
+ * {@link DriverRepository}.
+ */
+public class DriverLocationRepositoryImpl implements DriverLocationRepository {
+
+    private static final String UPDATE_LOCATION = "update driver set latitude = ?, longitude = ?, date_coordinate_updated = ? " +
+            "where id = ? and deleted = false and (date_coordinate_updated is null or date_coordinate_updated <= ?)";
+
+    private static final String SCAN_STATES = "select d.id, d.latitude, d.longitude, d.online_status, d.car_id, " +
+            "coalesce(d.date_coordinate_updated, d.date_created), c.engine_type, c.seat_count, c.convertible, " +
+            "c.rating, c.manufacturer from driver d left join car c on c.id = d.car_id where d.deleted = false";
+    private static final String FIND_STATES = SCAN_STATES + " and d.id in (:driverIds)";
+    private static final int SCAN_FETCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+
+    public DriverLocationRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+
+    @Override
+    public int[] updateLocations(List<PositionUpdate> positions) {
+        return jdbcTemplate.getJdbcOperations().batchUpdate(UPDATE_LOCATION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PositionUpdate position = positions.get(i);
+                Timestamp timestamp = new Timestamp(position.getEpochMillis());
+                ps.setDouble(1, position.getCoordinate().getLatitude());
+                ps.setDouble(2, position.getCoordinate().getLongitude());
+                ps.setTimestamp(3, timestamp);
+                ps.setLong(4, position.getDriverId());
+                ps.setTimestamp(5, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return positions.size();
+            }
+        });
+    }
+
+
+    @Override
+    public void scanDriverStates(Consumer<DriverState> consumer) {
+        jdbcTemplate.getJdbcOperations().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SCAN_STATES);
+            statement.setFetchSize(SCAN_FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            consumer.accept(state(rs));
+        });
+    }
+
+
+    @Override
+    public List<DriverState> findDriverStates(Collection<Long> driverIds) {
+        if (driverIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.query(FIND_STATES, Collections.singletonMap("driverIds", driverIds),
+                (rs, rowNum) -> state(rs));
+    }
+
+
+    private static DriverState state(ResultSet rs) throws SQLException {
+        double latitude = rs.getDouble(2);
+        boolean located = !rs.wasNull();
+        double longitude = rs.getDouble(3);
+        long carId = rs.getLong(5);
+        boolean withCar = !rs.wasNull();
+        Timestamp updated = rs.getTimestamp(6);
+        CarProfile car = withCar
+                ? new CarProfile(EngineType.valueOf(rs.getString(7)), rs.getShort(8), rs.getBoolean(9),
+                Rating.valueOf(rs.getString(10)), Manufacturer.valueOf(rs.getString(11)))
+                : null;
+        return new DriverState(rs.getLong(1), located ? latitude : Double.NaN, located ? longitude : Double.NaN,
+                OnlineStatus.valueOf(rs.getString(4)), withCar ? carId : null, car,
+                updated == null ? 0 : updated.getTime());
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.repository.CrudRepository;
  * Database Access Object for driver table.
  * <p/>
  */
-public interface DriverRepository extends CrudRepository<DriverDO, Long>, JpaSpecificationExecutor<DriverDO> {
+public interface DriverRepository extends CrudRepository<DriverDO, Long>, JpaSpecificationExecutor<DriverDO>,
+        DriverLocationRepository, DriverSearchRepository {
 
 }
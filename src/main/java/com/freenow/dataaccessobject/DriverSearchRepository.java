@@ -0,0 +1,44 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainobject.DriverDO;
+import com.freenow.search.DriverSearchFilter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Driver search queries that need more control than {@link org.springframework.data.jpa.repository.JpaSpecificationExecutor}
+ * offers.
+ */
+public interface DriverSearchRepository {
+
+    /**
+     * Finds the drivers matching a filter with the highest ids first, without counting all matches.
+     *
+     * @param filter     search criteria
+     * @param beforeId   only drivers with a lower id are returned, null for no bound
+     * @param maxResults maximum number of drivers to load
+     * @return matching drivers ordered by descending id, with their cars
+     */
+    List<DriverDO> findByFilter(DriverSearchFilter filter, Long beforeId, int maxResults);
+
+    /**
+     * Loads the drivers of a page found by another index, in one query.
+     *
+     * @param ids driver ids, deleted drivers are left out
+     * @return the drivers ordered by descending id, with their cars
+     */
+    List<DriverDO> findByIds(Collection<Long> ids);
+
+    /**
+     * Passes every driver matching a filter to a consumer, the highest ids first. The drivers are read with a
+     * forward-only cursor and detached batch by batch, so memory use does not grow with the number of matches. Has to
+     * run inside a transaction.
+     *
+     * @param filter   search criteria
+     * @param consumer called once per driver, the driver is detached afterwards
+     * @return number of drivers passed to the consumer
+     */
+    long scrollByFilter(DriverSearchFilter filter, Consumer<DriverDO> consumer);
+}
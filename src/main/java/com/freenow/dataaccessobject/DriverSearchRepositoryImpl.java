@@ -0,0 +1,76 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainobject.DriverDO;
+import com.freenow.search.DriverSearchFilter;
+import com.freenow.search.DriverSearchPlanCache;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JPQL implementation of {@link DriverSearchRepository} running the cached plan of the filter shape, picked up by
+ * Spring Data as fragment of {@link DriverRepository}.
+ */
+public class DriverSearchRepositoryImpl implements DriverSearchRepository {
+
+    private static final int SCROLL_FETCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+    private final DriverSearchPlanCache planCache;
+
+
+    public DriverSearchRepositoryImpl(EntityManager entityManager, DriverSearchPlanCache planCache) {
+        this.entityManager = entityManager;
+        this.planCache = planCache;
+    }
+
+
+    @Override
+    public List<DriverDO> findByFilter(DriverSearchFilter filter, Long beforeId, int maxResults) {
+        return planCache.get(filter.getAttributes(), beforeId != null)
+                .createQuery(entityManager, filter, beforeId)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+
+    @Override
+    public List<DriverDO> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return entityManager
+                .createQuery("select d from DriverDO d left join fetch d.carDO where d.id in :ids order by d.id desc",
+                        DriverDO.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public long scrollByFilter(DriverSearchFilter filter, Consumer<DriverDO> consumer) {
+        Query<DriverDO> query = planCache.get(filter.getAttributes(), false)
+                .createQuery(entityManager, filter, null)
+                .unwrap(Query.class);
+        long count = 0;
+        try (ScrollableResults results = query.setFetchSize(SCROLL_FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept((DriverDO) results.get(0));
+                if (++count % SCROLL_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        entityManager.clear();
+        return count;
+    }
+}
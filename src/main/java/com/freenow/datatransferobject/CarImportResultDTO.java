@@ -0,0 +1,52 @@
+package com.freenow.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.freenow.domainvalue.CarImportStatus;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CarImportResultDTO {
+
+    private long row;
+
+    private String licensePlate;
+
+    private CarImportStatus status;
+
+    private Long carId;
+
+    private String message;
+
+
+    private CarImportResultDTO() {
+    }
+
+
+    public CarImportResultDTO(long row, String licensePlate, CarImportStatus status, Long carId, String message) {
+        this.row = row;
+        this.licensePlate = licensePlate;
+        this.status = status;
+        this.carId = carId;
+        this.message = message;
+    }
+
+
+    public long getRow() {
+        return row;
+    }
+
+    public String getLicensePlate() {
+        return licensePlate;
+    }
+
+    public CarImportStatus getStatus() {
+        return status;
+    }
+
+    public Long getCarId() {
+        return carId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -7,7 +7,6 @@ import com.freenow.domainvalue.OnlineStatus;
 import io.swagger.annotations.ApiModelProperty;
 
 import javax.validation.constraints.NotNull;
-import java.util.Comparator;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class DriverDTO {
@@ -135,8 +134,4 @@ public class DriverDTO {
         }
 
     }
-
-    public static Comparator<DriverDTO> idDescending() {
-        return (o1, o2) -> o2.id.compareTo(o1.id);
-    }
 }
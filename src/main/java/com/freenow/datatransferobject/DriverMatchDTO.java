@@ -0,0 +1,163 @@
+package com.freenow.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Rating;
+
+public class DriverMatchDTO {
+
+    private Long id;
+
+    private Long carId;
+
+    private GeoCoordinate coordinate;
+
+    private double distance;
+
+    private short seatCount;
+
+    private boolean convertible;
+
+    private EngineType engineType;
+
+    private Rating rating;
+
+
+    private DriverMatchDTO() {
+    }
+
+
+    private DriverMatchDTO(Long id, Long carId, GeoCoordinate coordinate, double distance, short seatCount,
+                           boolean convertible, EngineType engineType, Rating rating) {
+        this.id = id;
+        this.carId = carId;
+        this.coordinate = coordinate;
+        this.distance = distance;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+        this.engineType = engineType;
+        this.rating = rating;
+    }
+
+
+    public static DriverMatchDTOBuilder newBuilder() {
+        return new DriverMatchDTOBuilder();
+    }
+
+
+    @JsonProperty
+    public Long getId() {
+        return id;
+    }
+
+
+    @JsonProperty
+    public Long getCarId() {
+        return carId;
+    }
+
+
+    @JsonProperty
+    public GeoCoordinate getCoordinate() {
+        return coordinate;
+    }
+
+
+    /**
+     * @return distance to the pickup point in meters
+     */
+    @JsonProperty
+    public double getDistance() {
+        return distance;
+    }
+
+
+    @JsonProperty
+    public short getSeatCount() {
+        return seatCount;
+    }
+
+
+    @JsonProperty
+    public boolean isConvertible() {
+        return convertible;
+    }
+
+
+    @JsonProperty
+    public EngineType getEngineType() {
+        return engineType;
+    }
+
+
+    @JsonProperty
+    public Rating getRating() {
+        return rating;
+    }
+
+    public static class DriverMatchDTOBuilder {
+        private Long id;
+        private Long carId;
+        private GeoCoordinate coordinate;
+        private double distance;
+        private short seatCount;
+        private boolean convertible;
+        private EngineType engineType;
+        private Rating rating;
+
+
+        public DriverMatchDTOBuilder setId(Long id) {
+            this.id = id;
+            return this;
+        }
+
+
+        public DriverMatchDTOBuilder setCarId(Long carId) {
+            this.carId = carId;
+            return this;
+        }
+
+
+        public DriverMatchDTOBuilder setCoordinate(GeoCoordinate coordinate) {
+            this.coordinate = coordinate;
+            return this;
+        }
+
+
+        public DriverMatchDTOBuilder setDistance(double distance) {
+            this.distance = distance;
+            return this;
+        }
+
+
+        public DriverMatchDTOBuilder setSeatCount(short seatCount) {
+            this.seatCount = seatCount;
+            return this;
+        }
+
+
+        public DriverMatchDTOBuilder setConvertible(boolean convertible) {
+            this.convertible = convertible;
+            return this;
+        }
+
+
+        public DriverMatchDTOBuilder setEngineType(EngineType engineType) {
+            this.engineType = engineType;
+            return this;
+        }
+
+
+        public DriverMatchDTOBuilder setRating(Rating rating) {
+            this.rating = rating;
+            return this;
+        }
+
+
+        public DriverMatchDTO createDriverMatchDTO() {
+            return new DriverMatchDTO(id, carId, coordinate, distance, seatCount, convertible, engineType, rating);
+        }
+
+    }
+}
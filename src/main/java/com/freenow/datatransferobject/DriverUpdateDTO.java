@@ -0,0 +1,58 @@
+package com.freenow.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.event.DriverEvent;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DriverUpdateDTO {
+
+    private long id;
+
+    private DriverEvent.Type type;
+
+    private OnlineStatus onlineStatus;
+
+    private boolean deleted;
+
+    private GeoCoordinate coordinate;
+
+
+    private DriverUpdateDTO() {
+    }
+
+
+    public DriverUpdateDTO(long id, DriverEvent.Type type, OnlineStatus onlineStatus, boolean deleted,
+                           GeoCoordinate coordinate) {
+        this.id = id;
+        this.type = type;
+        this.onlineStatus = onlineStatus;
+        this.deleted = deleted;
+        this.coordinate = coordinate;
+    }
+
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the change that caused this update, the other fields always hold the newest state of the driver
+     */
+    public DriverEvent.Type getType() {
+        return type;
+    }
+
+    public OnlineStatus getOnlineStatus() {
+        return onlineStatus;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public GeoCoordinate getCoordinate() {
+        return coordinate;
+    }
+}
@@ -0,0 +1,168 @@
+package com.freenow.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.freenow.domainvalue.EngineType;
+
+import java.util.Map;
+
+public class HeatmapCellDTO {
+
+    private double minLatitude;
+
+    private double minLongitude;
+
+    private double maxLatitude;
+
+    private double maxLongitude;
+
+    private int online;
+
+    private int withoutCar;
+
+    private Map<EngineType, Integer> byEngineType;
+
+    private Map<Integer, Integer> bySeatCount;
+
+
+    private HeatmapCellDTO() {
+    }
+
+
+    private HeatmapCellDTO(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                           int online, int withoutCar, Map<EngineType, Integer> byEngineType,
+                           Map<Integer, Integer> bySeatCount) {
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+        this.online = online;
+        this.withoutCar = withoutCar;
+        this.byEngineType = byEngineType;
+        this.bySeatCount = bySeatCount;
+    }
+
+
+    public static HeatmapCellDTOBuilder newBuilder() {
+        return new HeatmapCellDTOBuilder();
+    }
+
+
+    @JsonProperty
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+
+    @JsonProperty
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+
+    @JsonProperty
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+
+    @JsonProperty
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+
+    /**
+     * @return number of ONLINE drivers in the cell
+     */
+    @JsonProperty
+    public int getOnline() {
+        return online;
+    }
+
+
+    @JsonProperty
+    public int getWithoutCar() {
+        return withoutCar;
+    }
+
+
+    @JsonProperty
+    public Map<EngineType, Integer> getByEngineType() {
+        return byEngineType;
+    }
+
+
+    /**
+     * @return drivers with a car by its seat count, the highest possible key also counts the cars with more seats
+     */
+    @JsonProperty
+    public Map<Integer, Integer> getBySeatCount() {
+        return bySeatCount;
+    }
+
+    public static class HeatmapCellDTOBuilder {
+        private double minLatitude;
+        private double minLongitude;
+        private double maxLatitude;
+        private double maxLongitude;
+        private int online;
+        private int withoutCar;
+        private Map<EngineType, Integer> byEngineType;
+        private Map<Integer, Integer> bySeatCount;
+
+
+        public HeatmapCellDTOBuilder setMinLatitude(double minLatitude) {
+            this.minLatitude = minLatitude;
+            return this;
+        }
+
+
+        public HeatmapCellDTOBuilder setMinLongitude(double minLongitude) {
+            this.minLongitude = minLongitude;
+            return this;
+        }
+
+
+        public HeatmapCellDTOBuilder setMaxLatitude(double maxLatitude) {
+            this.maxLatitude = maxLatitude;
+            return this;
+        }
+
+
+        public HeatmapCellDTOBuilder setMaxLongitude(double maxLongitude) {
+            this.maxLongitude = maxLongitude;
+            return this;
+        }
+
+
+        public HeatmapCellDTOBuilder setOnline(int online) {
+            this.online = online;
+            return this;
+        }
+
+
+        public HeatmapCellDTOBuilder setWithoutCar(int withoutCar) {
+            this.withoutCar = withoutCar;
+            return this;
+        }
+
+
+        public HeatmapCellDTOBuilder setByEngineType(Map<EngineType, Integer> byEngineType) {
+            this.byEngineType = byEngineType;
+            return this;
+        }
+
+
+        public HeatmapCellDTOBuilder setBySeatCount(Map<Integer, Integer> bySeatCount) {
+            this.bySeatCount = bySeatCount;
+            return this;
+        }
+
+
+        public HeatmapCellDTO createHeatmapCellDTO() {
+            return new HeatmapCellDTO(minLatitude, minLongitude, maxLatitude, maxLongitude, online, withoutCar,
+                    byEngineType, bySeatCount);
+        }
+
+    }
+}
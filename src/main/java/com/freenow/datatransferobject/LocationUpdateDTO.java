@@ -0,0 +1,47 @@
+package com.freenow.datatransferobject;
+
+import io.swagger.annotations.ApiModelProperty;
+
+public class LocationUpdateDTO {
+
+    @ApiModelProperty(example = "8", required = true)
+    private Long driverId;
+
+    @ApiModelProperty(example = "55.954", required = true)
+    private Double latitude;
+
+    @ApiModelProperty(example = "9.5", required = true)
+    private Double longitude;
+
+    @ApiModelProperty(value = "epoch millis of the position fix, orders the reports of a driver within one request, at most 30 s ahead of the server clock, defaults to the time of the request", example = "1540000000000")
+    private Long timestamp;
+
+
+    public LocationUpdateDTO() {
+    }
+
+
+    public LocationUpdateDTO(Long driverId, Double latitude, Double longitude, Long timestamp) {
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+
+
+    public Long getDriverId() {
+        return driverId;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+}
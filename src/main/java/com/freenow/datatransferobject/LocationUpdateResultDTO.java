@@ -0,0 +1,38 @@
+package com.freenow.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.freenow.domainvalue.LocationUpdateStatus;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LocationUpdateResultDTO {
+
+    private Long driverId;
+
+    private LocationUpdateStatus status;
+
+    private String message;
+
+
+    private LocationUpdateResultDTO() {
+    }
+
+
+    public LocationUpdateResultDTO(Long driverId, LocationUpdateStatus status, String message) {
+        this.driverId = driverId;
+        this.status = status;
+        this.message = message;
+    }
+
+
+    public Long getDriverId() {
+        return driverId;
+    }
+
+    public LocationUpdateStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
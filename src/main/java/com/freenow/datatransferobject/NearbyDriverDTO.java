@@ -0,0 +1,80 @@
+package com.freenow.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.freenow.domainvalue.GeoCoordinate;
+
+public class NearbyDriverDTO {
+
+    private Long id;
+
+    private GeoCoordinate coordinate;
+
+    private double distance;
+
+
+    private NearbyDriverDTO() {
+    }
+
+
+    private NearbyDriverDTO(Long id, GeoCoordinate coordinate, double distance) {
+        this.id = id;
+        this.coordinate = coordinate;
+        this.distance = distance;
+    }
+
+
+    public static NearbyDriverDTOBuilder newBuilder() {
+        return new NearbyDriverDTOBuilder();
+    }
+
+
+    @JsonProperty
+    public Long getId() {
+        return id;
+    }
+
+
+    @JsonProperty
+    public GeoCoordinate getCoordinate() {
+        return coordinate;
+    }
+
+
+    /**
+     * @return distance to the searched location in meters
+     */
+    @JsonProperty
+    public double getDistance() {
+        return distance;
+    }
+
+    public static class NearbyDriverDTOBuilder {
+        private Long id;
+        private GeoCoordinate coordinate;
+        private double distance;
+
+
+        public NearbyDriverDTOBuilder setId(Long id) {
+            this.id = id;
+            return this;
+        }
+
+
+        public NearbyDriverDTOBuilder setCoordinate(GeoCoordinate coordinate) {
+            this.coordinate = coordinate;
+            return this;
+        }
+
+
+        public NearbyDriverDTOBuilder setDistance(double distance) {
+            this.distance = distance;
+            return this;
+        }
+
+
+        public NearbyDriverDTO createNearbyDriverDTO() {
+            return new NearbyDriverDTO(id, coordinate, distance);
+        }
+
+    }
+}
@@ -0,0 +1,64 @@
+package com.freenow.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.freenow.domainvalue.GeoCoordinate;
+
+public class TrajectoryPointDTO {
+
+    private long timestamp;
+
+    private GeoCoordinate coordinate;
+
+
+    private TrajectoryPointDTO() {
+    }
+
+
+    private TrajectoryPointDTO(long timestamp, GeoCoordinate coordinate) {
+        this.timestamp = timestamp;
+        this.coordinate = coordinate;
+    }
+
+
+    public static TrajectoryPointDTOBuilder newBuilder() {
+        return new TrajectoryPointDTOBuilder();
+    }
+
+
+    /**
+     * @return epoch millis the location was recorded at
+     */
+    @JsonProperty
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+
+    @JsonProperty
+    public GeoCoordinate getCoordinate() {
+        return coordinate;
+    }
+
+    public static class TrajectoryPointDTOBuilder {
+        private long timestamp;
+        private GeoCoordinate coordinate;
+
+
+        public TrajectoryPointDTOBuilder setTimestamp(long timestamp) {
+            this.timestamp = timestamp;
+            return this;
+        }
+
+
+        public TrajectoryPointDTOBuilder setCoordinate(GeoCoordinate coordinate) {
+            this.coordinate = coordinate;
+            return this;
+        }
+
+
+        public TrajectoryPointDTO createTrajectoryPointDTO() {
+            return new TrajectoryPointDTO(timestamp, coordinate);
+        }
+
+    }
+}
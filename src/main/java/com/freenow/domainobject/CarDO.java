@@ -3,6 +3,8 @@ package com.freenow.domainobject;
 import com.freenow.domainvalue.EngineType;
 import com.freenow.domainvalue.Manufacturer;
 import com.freenow.domainvalue.Rating;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Where;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.persistence.*;
@@ -11,12 +13,31 @@ import java.time.ZonedDateTime;
 @Entity
 @Table(
         name = "car",
-        uniqueConstraints = @UniqueConstraint(name = "license_plate", columnNames = {"licensePlate"})
+        uniqueConstraints = @UniqueConstraint(name = "license_plate", columnNames = {"licensePlate"}),
+        indexes = {
+                // closed by the deleted flag, the live cars of each key are one range of the index
+                @Index(name = "idx_car_engine_seats", columnList = "engineType, seatCount, convertible, deleted"),
+                @Index(name = "idx_car_seats", columnList = "seatCount, convertible, deleted"),
+                @Index(name = "idx_car_manufacturer_rating", columnList = "manufacturer, rating, deleted"),
+                @Index(name = "idx_car_rating", columnList = "rating, deleted")
+        }
 )
+// soft-deleted cars are invisible to every JPA read, lookups by id included
+@Where(clause = "deleted = false")
+// selection and deletion are decided by conditional updates, a flush only writes the columns it changed so it cannot
+// undo one of them with the state loaded before
+@DynamicUpdate
 public class CarDO {
 
+    /**
+     * Ids are taken from {@code car_seq} in blocks, each sequence value is the last id of a block of this size. Unlike
+     * identity columns this needs no round trip per insert, so Hibernate can batch them.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "car_seq")
+    @SequenceGenerator(name = "car_seq", sequenceName = "car_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
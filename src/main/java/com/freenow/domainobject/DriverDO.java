@@ -7,17 +7,33 @@ import java.time.ZonedDateTime;
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Where;
 import org.springframework.format.annotation.DateTimeFormat;
 
 @Entity
 @Table(
         name = "driver",
-        uniqueConstraints = @UniqueConstraint(name = "uc_username", columnNames = {"username"})
+        uniqueConstraints = @UniqueConstraint(name = "uc_username", columnNames = {"username"}),
+        indexes = {
+                @Index(name = "idx_driver_coordinate", columnList = "latitude, longitude"),
+                // searches filter by status and page by descending id, the index serves both. Every query filters
+                // deleted rows out, with the flag right after the status the live rows of a status are one range.
+                // The flag does not lead, on its own it selects nearly every row and would mislead the planner
+                @Index(name = "idx_driver_status_id", columnList = "onlineStatus, deleted, id"),
+                // join column, lets searches by car attributes start from the car table and reach the live drivers
+                @Index(name = "idx_driver_car", columnList = "car_id, deleted")
+        }
 )
+// soft-deleted drivers are invisible to every JPA read, lookups by id included
+@Where(clause = "deleted = false")
 public class DriverDO {
 
+    // pooled ids like CarDO, inserts of new drivers can be batched
+    private static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "driver_seq")
+    @SequenceGenerator(name = "driver_seq", sequenceName = "driver_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
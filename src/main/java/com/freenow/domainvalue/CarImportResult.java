@@ -0,0 +1,46 @@
+package com.freenow.domainvalue;
+
+/**
+ * Outcome of a single row of a bulk car import.
+ */
+public class CarImportResult {
+
+    private final long row;
+    private final String licensePlate;
+    private final CarImportStatus status;
+    private final Long carId;
+    private final String message;
+
+
+    public CarImportResult(long row, String licensePlate, CarImportStatus status, Long carId, String message) {
+        this.row = row;
+        this.licensePlate = licensePlate;
+        this.status = status;
+        this.carId = carId;
+        this.message = message;
+    }
+
+
+    public long getRow() {
+        return row;
+    }
+
+    public String getLicensePlate() {
+        return licensePlate;
+    }
+
+    public CarImportStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return id of the created car, null unless the status is {@link CarImportStatus#CREATED}
+     */
+    public Long getCarId() {
+        return carId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,59 @@
+package com.freenow.domainvalue;
+
+import com.freenow.domainobject.CarDO;
+
+/**
+ * One row of a bulk car import, either a car ready to be inserted or the reason the row could not be read.
+ */
+public class CarImportRow {
+
+    private final long row;
+    private final CarDO car;
+    private final String licensePlate;
+    private final String error;
+
+
+    private CarImportRow(long row, CarDO car, String licensePlate, String error) {
+        this.row = row;
+        this.car = car;
+        this.licensePlate = licensePlate;
+        this.error = error;
+    }
+
+
+    public static CarImportRow valid(long row, CarDO car) {
+        return new CarImportRow(row, car, car.getLicensePlate(), null);
+    }
+
+
+    /**
+     * @param licensePlate license plate of the row if it could be read, null otherwise
+     */
+    public static CarImportRow invalid(long row, String licensePlate, String error) {
+        return new CarImportRow(row, null, licensePlate, error);
+    }
+
+
+    public boolean isValid() {
+        return car != null;
+    }
+
+    /**
+     * @return 1-based number of the row in the import, header lines not counted
+     */
+    public long getRow() {
+        return row;
+    }
+
+    public CarDO getCar() {
+        return car;
+    }
+
+    public String getLicensePlate() {
+        return licensePlate;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,5 @@
+package com.freenow.domainvalue;
+
+public enum CarImportStatus {
+    CREATED, DUPLICATE, INVALID
+}
@@ -0,0 +1,88 @@
+package com.freenow.domainvalue;
+
+import com.freenow.domainobject.CarDO;
+
+import java.util.Objects;
+
+/**
+ * The attributes of a car a rider can ask for, detached from the entity so in-memory views can hold them.
+ */
+public class CarProfile {
+
+    private final EngineType engineType;
+    private final short seatCount;
+    private final boolean convertible;
+    private final Rating rating;
+    private final Manufacturer manufacturer;
+
+
+    public CarProfile(EngineType engineType, short seatCount, boolean convertible, Rating rating,
+                      Manufacturer manufacturer) {
+        this.engineType = engineType;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+        this.rating = rating;
+        this.manufacturer = manufacturer;
+    }
+
+
+    public static CarProfile of(CarDO carDO) {
+        return new CarProfile(carDO.getEngineType(), carDO.getSeatCount(), carDO.isConvertible(), carDO.getRating(),
+                carDO.getManufacturer());
+    }
+
+
+    public CarProfile withRating(Rating rating) {
+        return new CarProfile(engineType, seatCount, convertible, rating, manufacturer);
+    }
+
+
+    public EngineType getEngineType() {
+        return engineType;
+    }
+
+    public short getSeatCount() {
+        return seatCount;
+    }
+
+    public boolean isConvertible() {
+        return convertible;
+    }
+
+    public Rating getRating() {
+        return rating;
+    }
+
+    public Manufacturer getManufacturer() {
+        return manufacturer;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CarProfile that = (CarProfile) o;
+        return seatCount == that.seatCount && convertible == that.convertible && engineType == that.engineType
+                && rating == that.rating && manufacturer == that.manufacturer;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(engineType, seatCount, convertible, rating, manufacturer);
+    }
+
+    @Override
+    public String toString() {
+        return "CarProfile{" +
+                "engineType=" + engineType +
+                ", seatCount=" + seatCount +
+                ", convertible=" + convertible +
+                ", rating=" + rating +
+                ", manufacturer=" + manufacturer +
+                '}';
+    }
+}
@@ -9,6 +9,9 @@ import javax.persistence.Embeddable;
 import io.swagger.annotations.ApiModelProperty;
 import org.springframework.data.geo.Point;
 
+/**
+ * Latitude and longitude stored as two plain double columns, so the database can filter and index by position.
+ */
 @Embeddable
 public class GeoCoordinate
 {
@@ -17,13 +20,18 @@ public class GeoCoordinate
     private static final int MIN_LATITUDE = -90;
     private static final int MAX_LONGITUDE = 180;
     private static final int MIN_LONGITUDE = -180;
-    @Column(name = "coordinate")
-    private final Point point;
+
+    @Column(name = "latitude")
+    private final Double latitude;
+
+    @Column(name = "longitude")
+    private final Double longitude;
 
 
     protected GeoCoordinate()
     {
-        this.point = null;
+        this.latitude = null;
+        this.longitude = null;
     }
 
 
@@ -38,21 +46,22 @@ public class GeoCoordinate
         Preconditions.checkArgument(longitude >= MIN_LONGITUDE, "longitude is lower than min_longitude: " + MIN_LONGITUDE);
         Preconditions.checkArgument(longitude <= MAX_LONGITUDE, "longitude is higher than max_longitude: " + MAX_LONGITUDE);
 
-        this.point = new Point(longitude, latitude);
+        this.latitude = latitude;
+        this.longitude = longitude;
     }
 
     @ApiModelProperty(example = "12", required = true)
     @JsonProperty
     public double getLatitude()
     {
-        return this.point.getY();
+        return this.latitude;
     }
 
 
     @JsonIgnore
     public Point getPoint()
     {
-        return this.point;
+        return new Point(this.longitude, this.latitude);
     }
 
 
@@ -60,7 +69,7 @@ public class GeoCoordinate
     @JsonProperty
     public double getLongitude()
     {
-        return this.point.getX();
+        return this.longitude;
     }
 
 
@@ -69,7 +78,8 @@ public class GeoCoordinate
     {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((this.point == null) ? 0 : this.point.hashCode());
+        result = prime * result + ((this.latitude == null) ? 0 : this.latitude.hashCode());
+        result = prime * result + ((this.longitude == null) ? 0 : this.longitude.hashCode());
         return result;
     }
 
@@ -90,14 +100,11 @@ public class GeoCoordinate
             return false;
         }
         final GeoCoordinate other = (GeoCoordinate) obj;
-        if (this.point == null)
+        if (this.latitude == null ? other.latitude != null : !this.latitude.equals(other.latitude))
         {
-            if (other.point != null)
-            {
-                return false;
-            }
+            return false;
         }
-        else if (!this.point.equals(other.point))
+        if (this.longitude == null ? other.longitude != null : !this.longitude.equals(other.longitude))
         {
             return false;
         }
@@ -108,7 +115,7 @@ public class GeoCoordinate
     @Override
     public String toString()
     {
-        return this.point.toString();
+        return "GeoCoordinate [latitude=" + this.latitude + ", longitude=" + this.longitude + "]";
     }
 
 }
@@ -0,0 +1,39 @@
+package com.freenow.domainvalue;
+
+/**
+ * One position report of a driver, as sent in bulk by the driver-app gateway.
+ * <p/>
+ * Values are taken over unchecked, each report is validated on its own so one bad item does not fail a whole batch.
+ */
+public class LocationUpdate {
+
+    private final Long driverId;
+    private final Double latitude;
+    private final Double longitude;
+    private final long epochMillis;
+
+
+    public LocationUpdate(Long driverId, Double latitude, Double longitude, long epochMillis) {
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.epochMillis = epochMillis;
+    }
+
+
+    public Long getDriverId() {
+        return driverId;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+}
@@ -0,0 +1,31 @@
+package com.freenow.domainvalue;
+
+/**
+ * Outcome of a single item of a bulk location update.
+ */
+public class LocationUpdateResult {
+
+    private final Long driverId;
+    private final LocationUpdateStatus status;
+    private final String message;
+
+
+    public LocationUpdateResult(Long driverId, LocationUpdateStatus status, String message) {
+        this.driverId = driverId;
+        this.status = status;
+        this.message = message;
+    }
+
+
+    public Long getDriverId() {
+        return driverId;
+    }
+
+    public LocationUpdateStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,5 @@
+package com.freenow.domainvalue;
+
+public enum LocationUpdateStatus {
+    UPDATED, NOT_FOUND, INVALID, STALE
+}
@@ -0,0 +1,54 @@
+package com.freenow.event;
+
+import com.freenow.domainvalue.Rating;
+
+/**
+ * Published after a car was changed through the car service, or given back by its driver.
+ */
+public class CarEvent {
+
+    public enum Type {
+        RATING_UPDATED, DELETED, RELEASED
+    }
+
+    private final Type type;
+    private final long carId;
+    private final Rating rating;
+
+
+    public CarEvent(Type type, long carId) {
+        this(type, carId, null);
+    }
+
+
+    public CarEvent(Type type, long carId, Rating rating) {
+        this.type = type;
+        this.carId = carId;
+        this.rating = rating;
+    }
+
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getCarId() {
+        return carId;
+    }
+
+    /**
+     * @return the new rating of a {@link Type#RATING_UPDATED} event, null otherwise
+     */
+    public Rating getRating() {
+        return rating;
+    }
+
+    @Override
+    public String toString() {
+        return "CarEvent{" +
+                "type=" + type +
+                ", carId=" + carId +
+                ", rating=" + rating +
+                '}';
+    }
+}
@@ -0,0 +1,130 @@
+package com.freenow.event;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.OnlineStatus;
+
+/**
+ * Snapshot of a driver published after one of its state transitions.
+ * <p/>
+ * In-memory views (e.g. the geo index) listen to these events instead of reading the driver table.
+ */
+public class DriverEvent {
+
+    public enum Type {
+        SNAPSHOT, CREATED, LOCATION_UPDATED, ONLINE_STATUS_UPDATED, DELETED, CAR_SELECTED, CAR_DESELECTED
+    }
+
+    private final Type type;
+    private final long driverId;
+    private final OnlineStatus onlineStatus;
+    private final boolean deleted;
+    private final GeoCoordinate coordinate;
+    private final Long carId;
+    private final CarProfile car;
+    private final long epochMillis;
+
+
+    public DriverEvent(Type type, long driverId, OnlineStatus onlineStatus, boolean deleted, GeoCoordinate coordinate,
+                       Long carId) {
+        this(type, driverId, onlineStatus, deleted, coordinate, carId, null);
+    }
+
+
+    /**
+     * Creates the event of a change made now, events are created by the thread making the change.
+     */
+    public DriverEvent(Type type, long driverId, OnlineStatus onlineStatus, boolean deleted, GeoCoordinate coordinate,
+                       Long carId, CarProfile car) {
+        this(type, driverId, onlineStatus, deleted, coordinate, carId, car, System.currentTimeMillis());
+    }
+
+
+    public DriverEvent(Type type, long driverId, OnlineStatus onlineStatus, boolean deleted, GeoCoordinate coordinate,
+                       Long carId, CarProfile car, long epochMillis) {
+        this.type = type;
+        this.driverId = driverId;
+        this.onlineStatus = onlineStatus;
+        this.deleted = deleted;
+        this.coordinate = coordinate;
+        this.carId = carId;
+        this.car = car;
+        this.epochMillis = epochMillis;
+    }
+
+
+    public static DriverEvent of(Type type, DriverDO driverDO) {
+        CarDO carDO = driverDO.getCarDO();
+        return new DriverEvent(type,
+                driverDO.getId(),
+                driverDO.getOnlineStatus(),
+                Boolean.TRUE.equals(driverDO.getDeleted()),
+                driverDO.getCoordinate(),
+                carDO == null ? null : carDO.getId(),
+                carDO == null ? null : CarProfile.of(carDO));
+    }
+
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getDriverId() {
+        return driverId;
+    }
+
+    public OnlineStatus getOnlineStatus() {
+        return onlineStatus;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public GeoCoordinate getCoordinate() {
+        return coordinate;
+    }
+
+    /**
+     * @return id of the selected car, null without one
+     */
+    public Long getCarId() {
+        return carId;
+    }
+
+    /**
+     * @return attributes of the car of {@link #getCarId()}, null when the event carries no car
+     */
+    public CarProfile getCar() {
+        return car;
+    }
+
+    /**
+     * @return wall clock time of the change, not of the delivery to a listener
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * @return true when the driver is ONLINE, not deleted and has a known position
+     */
+    public boolean isLocatable() {
+        return onlineStatus == OnlineStatus.ONLINE && !deleted && coordinate != null;
+    }
+
+    @Override
+    public String toString() {
+        return "DriverEvent{" +
+                "type=" + type +
+                ", driverId=" + driverId +
+                ", onlineStatus=" + onlineStatus +
+                ", deleted=" + deleted +
+                ", coordinate=" + coordinate +
+                ", carId=" + carId +
+                ", epochMillis=" + epochMillis +
+                '}';
+    }
+}
@@ -0,0 +1,179 @@
+package com.freenow.geo;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.event.DriverEvent;
+import com.google.common.base.Preconditions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory grid index of the positions of all ONLINE, non-deleted drivers.
+ * <p/>
+ * The index is kept up to date from {@link DriverEvent}s after the surrounding transaction committed, so
+ * nearest-driver queries never have to touch the database. Updates of different drivers run concurrently;
+ * queries see every committed position, possibly a few microseconds late.
+ */
+@Component
+public class DriverGeoIndex {
+
+    private final GeoGrid grid;
+    private final int maxRings;
+    private final ConcurrentMap<Long, Position> positions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+
+    public DriverGeoIndex(@Value("${driver.geo-index.cell-size-degrees:0.01}") double cellSizeDegrees,
+                          @Value("${driver.geo-index.max-rings:50}") int maxRings) {
+        this.grid = new GeoGrid(cellSizeDegrees);
+        Preconditions.checkArgument(maxRings >= 0 && 2 * maxRings + 1 < grid.getColumns(),
+                "max rings must not wrap around the globe: " + maxRings);
+        this.maxRings = maxRings;
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        if (event.isLocatable()) {
+            GeoCoordinate coordinate = event.getCoordinate();
+            put(event.getDriverId(), coordinate.getLatitude(), coordinate.getLongitude());
+        } else {
+            remove(event.getDriverId());
+        }
+    }
+
+
+    public void put(long driverId, double latitude, double longitude) {
+        long cell = grid.cellKey(latitude, longitude);
+        positions.compute(driverId, (id, previous) -> {
+            if (previous == null || previous.cell != cell) {
+                if (previous != null) {
+                    removeFromCell(previous.cell, id);
+                }
+                cells.compute(cell, (key, ids) -> {
+                    Set<Long> driverIds = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                    driverIds.add(id);
+                    return driverIds;
+                });
+            }
+            return new Position(latitude, longitude, cell);
+        });
+    }
+
+
+    public void remove(long driverId) {
+        positions.computeIfPresent(driverId, (id, previous) -> {
+            removeFromCell(previous.cell, id);
+            return null;
+        });
+    }
+
+
+    public boolean contains(long driverId) {
+        return positions.containsKey(driverId);
+    }
+
+
+    public int size() {
+        return positions.size();
+    }
+
+
+    /**
+     * Finds the drivers closest to a location by scanning rings of cells outwards until no unvisited cell
+     * can hold a closer driver.
+     *
+     * @param latitude  latitude of the searched location
+     * @param longitude longitude of the searched location
+     * @param limit     maximum number of drivers to return
+     * @return drivers ordered by ascending distance
+     */
+    public List<NearbyDriver> nearest(double latitude, double longitude, int limit) {
+        if (limit <= 0 || positions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<NearbyDriver> closest =
+                new PriorityQueue<>(limit, Comparator.comparingDouble(NearbyDriver::getDistanceMeters).reversed());
+        int centerRow = grid.row(latitude);
+        int centerColumn = grid.column(longitude);
+        int indexed = positions.size();
+        int visited = 0;
+
+        for (int ring = 0; ring <= maxRings; ring++) {
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= grid.getRows()) {
+                    continue;
+                }
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    visited += collect(grid.cellKey(row, column), latitude, longitude, limit, closest);
+                }
+            }
+            if (visited >= indexed
+                    || (closest.size() == limit
+                    && closest.peek().getDistanceMeters() <= grid.ringLowerBoundMeters(latitude, ring))) {
+                break;
+            }
+        }
+
+        List<NearbyDriver> result = new ArrayList<>(closest);
+        result.sort(Comparator.comparingDouble(NearbyDriver::getDistanceMeters));
+        return result;
+    }
+
+
+    private int collect(long cell, double latitude, double longitude, int limit, PriorityQueue<NearbyDriver> closest) {
+        Set<Long> driverIds = cells.get(cell);
+        if (driverIds == null) {
+            return 0;
+        }
+        int visited = 0;
+        for (Long driverId : driverIds) {
+            Position position = positions.get(driverId);
+            if (position == null || position.cell != cell) {
+                // moved or removed concurrently, it is counted in its current cell
+                continue;
+            }
+            visited++;
+            double distance = GeoGrid.distanceMeters(latitude, longitude, position.latitude, position.longitude);
+            if (closest.size() < limit) {
+                closest.add(new NearbyDriver(driverId, position.latitude, position.longitude, distance));
+            } else if (distance < closest.peek().getDistanceMeters()) {
+                closest.poll();
+                closest.add(new NearbyDriver(driverId, position.latitude, position.longitude, distance));
+            }
+        }
+        return visited;
+    }
+
+
+    private void removeFromCell(long cell, Long driverId) {
+        cells.computeIfPresent(cell, (key, ids) -> {
+            ids.remove(driverId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+
+    private static final class Position {
+        private final double latitude;
+        private final double longitude;
+        private final long cell;
+
+        private Position(double latitude, double longitude, long cell) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cell = cell;
+        }
+    }
+}
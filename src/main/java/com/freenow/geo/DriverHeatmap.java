@@ -0,0 +1,149 @@
+package com.freenow.geo;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.event.DriverEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Live count of the ONLINE drivers per grid cell, split by engine type and seat count of their cars.
+ * <p/>
+ * Kept up to date incrementally from the committed {@link DriverEvent}s: a change moves one driver from one counter
+ * to another. Every cell has an array of atomic counters, one per combination of engine type and seat count, so
+ * writers only meet on the counter of their own cell and car. Reading the map costs one pass over the cells that
+ * ever had a driver, independent of the number of drivers.
+ */
+@Component
+public class DriverHeatmap {
+
+    static final int SEAT_SLOTS = 10;
+    private static final int WITHOUT_CAR = 0;
+    private static final EngineType[] ENGINE_TYPES = EngineType.values();
+    private static final int SLOTS = 1 + ENGINE_TYPES.length * SEAT_SLOTS;
+
+    private final GeoGrid grid;
+    private final ConcurrentMap<Long, Presence> presences = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, AtomicIntegerArray> cells = new ConcurrentHashMap<>();
+
+
+    public DriverHeatmap(@Value("${driver.heatmap.cell-size-degrees:0.01}") double cellSizeDegrees) {
+        this.grid = new GeoGrid(cellSizeDegrees);
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        presences.compute(event.getDriverId(), (id, previous) -> {
+            Presence next = null;
+            if (event.isLocatable()) {
+                GeoCoordinate coordinate = event.getCoordinate();
+                next = new Presence(grid.cellKey(coordinate.getLatitude(), coordinate.getLongitude()),
+                        slot(event));
+            }
+            if (previous != null && !previous.equals(next)) {
+                cells.get(previous.cell).decrementAndGet(previous.slot);
+            }
+            if (next != null && !next.equals(previous)) {
+                cells.computeIfAbsent(next.cell, cell -> new AtomicIntegerArray(SLOTS)).incrementAndGet(next.slot);
+            }
+            return next;
+        });
+    }
+
+
+    /**
+     * @return all cells with at least one ONLINE driver, the counters of a cell may be read while drivers move
+     */
+    public List<HeatmapCell> cells() {
+        List<HeatmapCell> result = new ArrayList<>();
+        for (Map.Entry<Long, AtomicIntegerArray> entry : cells.entrySet()) {
+            HeatmapCell cell = toCell(entry.getKey(), entry.getValue());
+            if (cell != null) {
+                result.add(cell);
+            }
+        }
+        return result;
+    }
+
+
+    public double getCellSizeDegrees() {
+        return grid.getCellSizeDegrees();
+    }
+
+
+    private HeatmapCell toCell(long cellKey, AtomicIntegerArray counters) {
+        int withoutCar = counters.get(WITHOUT_CAR);
+        int online = withoutCar;
+        Map<EngineType, Integer> byEngineType = new EnumMap<>(EngineType.class);
+        Map<Integer, Integer> bySeatCount = new TreeMap<>();
+        for (EngineType engineType : ENGINE_TYPES) {
+            for (int seats = 0; seats < SEAT_SLOTS; seats++) {
+                int count = counters.get(slot(engineType, seats));
+                if (count > 0) {
+                    online += count;
+                    byEngineType.merge(engineType, count, Integer::sum);
+                    bySeatCount.merge(seats, count, Integer::sum);
+                }
+            }
+        }
+        if (online <= 0) {
+            return null;
+        }
+        double minLatitude = grid.minLatitude(cellKey);
+        double minLongitude = grid.minLongitude(cellKey);
+        double cellSize = grid.getCellSizeDegrees();
+        return new HeatmapCell(minLatitude, minLongitude, Math.min(90, minLatitude + cellSize),
+                Math.min(180, minLongitude + cellSize), online, withoutCar, byEngineType, bySeatCount);
+    }
+
+
+    private static int slot(DriverEvent event) {
+        CarProfile car = event.getCar();
+        return car == null ? WITHOUT_CAR : slot(car.getEngineType(), car.getSeatCount());
+    }
+
+
+    private static int slot(EngineType engineType, int seatCount) {
+        return 1 + engineType.ordinal() * SEAT_SLOTS + Math.max(0, Math.min(seatCount, SEAT_SLOTS - 1));
+    }
+
+
+    private static final class Presence {
+        private final long cell;
+        private final int slot;
+
+        private Presence(long cell, int slot) {
+            this.cell = cell;
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Presence presence = (Presence) o;
+            return cell == presence.cell && slot == presence.slot;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(cell) * 31 + slot;
+        }
+    }
+}
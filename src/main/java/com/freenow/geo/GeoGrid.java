@@ -0,0 +1,109 @@
+package com.freenow.geo;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Splits the globe into square cells of a fixed size in degrees and provides the distance math around them.
+ * <p/>
+ * Cells are addressed by a single long key so they can be used directly as map keys.
+ */
+public class GeoGrid {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_METERS;
+
+    private final double cellSizeDegrees;
+    private final int rows;
+    private final int columns;
+
+
+    public GeoGrid(double cellSizeDegrees) {
+        Preconditions.checkArgument(cellSizeDegrees > 0 && cellSizeDegrees <= 90,
+                "cell size must be between 0 and 90 degrees: " + cellSizeDegrees);
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.rows = (int) Math.ceil(180 / cellSizeDegrees);
+        this.columns = (int) Math.ceil(360 / cellSizeDegrees);
+    }
+
+
+    public double getCellSizeDegrees() {
+        return cellSizeDegrees;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int row(double latitude) {
+        return Math.min(rows - 1, (int) ((latitude + 90) / cellSizeDegrees));
+    }
+
+    public int column(double longitude) {
+        return Math.min(columns - 1, (int) ((longitude + 180) / cellSizeDegrees));
+    }
+
+    public long cellKey(double latitude, double longitude) {
+        return cellKey(row(latitude), column(longitude));
+    }
+
+    /**
+     * @param row    row of the cell, has to be inside the grid
+     * @param column column of the cell, wraps around the antimeridian
+     */
+    public long cellKey(int row, int column) {
+        return (long) row * columns + Math.floorMod(column, columns);
+    }
+
+    public int rowOf(long cellKey) {
+        return (int) (cellKey / columns);
+    }
+
+    public int columnOf(long cellKey) {
+        return (int) (cellKey % columns);
+    }
+
+    /**
+     * @return latitude of the south-west corner of the cell
+     */
+    public double minLatitude(long cellKey) {
+        return rowOf(cellKey) * cellSizeDegrees - 90;
+    }
+
+    /**
+     * @return longitude of the south-west corner of the cell
+     */
+    public double minLongitude(long cellKey) {
+        return columnOf(cellKey) * cellSizeDegrees - 180;
+    }
+
+    /**
+     * Lower bound for the distance between a point and anything outside the square of cells
+     * {@code ring} steps around the point's own cell. Longitudinal distances are measured along the
+     * parallel of the square's most polar row, which is accurate for the city-sized radii we search.
+     */
+    public double ringLowerBoundMeters(double latitude, int ring) {
+        if (ring == 0) {
+            return 0;
+        }
+        double polarLatitude = Math.min(90, Math.abs(latitude) + (ring + 1) * cellSizeDegrees);
+        double longitudeScale = Math.cos(Math.toRadians(polarLatitude));
+        return ring * cellSizeDegrees * METERS_PER_DEGREE * Math.min(1, longitudeScale);
+    }
+
+    /**
+     * Great-circle distance in meters (haversine formula).
+     */
+    public static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double sinLatitude = Math.sin(deltaLatitude / 2);
+        double sinLongitude = Math.sin(deltaLongitude / 2);
+        double a = sinLatitude * sinLatitude
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,73 @@
+package com.freenow.geo;
+
+import com.freenow.domainvalue.EngineType;
+
+import java.util.Map;
+
+/**
+ * Number of ONLINE drivers in one cell of the {@link DriverHeatmap}, in total and split by the attributes of their
+ * cars. Drivers without a car only count towards {@link #getOnline()} and {@link #getWithoutCar()}.
+ */
+public class HeatmapCell {
+
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxLatitude;
+    private final double maxLongitude;
+    private final int online;
+    private final int withoutCar;
+    private final Map<EngineType, Integer> byEngineType;
+    private final Map<Integer, Integer> bySeatCount;
+
+
+    public HeatmapCell(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, int online,
+                       int withoutCar, Map<EngineType, Integer> byEngineType, Map<Integer, Integer> bySeatCount) {
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+        this.online = online;
+        this.withoutCar = withoutCar;
+        this.byEngineType = byEngineType;
+        this.bySeatCount = bySeatCount;
+    }
+
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public int getOnline() {
+        return online;
+    }
+
+    public int getWithoutCar() {
+        return withoutCar;
+    }
+
+    /**
+     * @return drivers with a car by its engine type, engine types without drivers are left out
+     */
+    public Map<EngineType, Integer> getByEngineType() {
+        return byEngineType;
+    }
+
+    /**
+     * @return drivers with a car by its seat count, the highest key also counts all cars with more seats
+     */
+    public Map<Integer, Integer> getBySeatCount() {
+        return bySeatCount;
+    }
+}
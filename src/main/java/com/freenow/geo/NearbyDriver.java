@@ -0,0 +1,47 @@
+package com.freenow.geo;
+
+/**
+ * A driver position returned by {@link DriverGeoIndex} together with its distance to the searched location.
+ */
+public class NearbyDriver {
+
+    private final long driverId;
+    private final double latitude;
+    private final double longitude;
+    private final double distanceMeters;
+
+
+    public NearbyDriver(long driverId, double latitude, double longitude, double distanceMeters) {
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.distanceMeters = distanceMeters;
+    }
+
+
+    public long getDriverId() {
+        return driverId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    @Override
+    public String toString() {
+        return "NearbyDriver{" +
+                "driverId=" + driverId +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", distanceMeters=" + distanceMeters +
+                '}';
+    }
+}
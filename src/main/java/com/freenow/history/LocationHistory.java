@@ -0,0 +1,256 @@
+package com.freenow.history;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.event.DriverEvent;
+import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only history of committed driver locations in memory-mapped segment files.
+ * <p/>
+ * Every location update is appended to the active {@link LocationSegment} with the time it was committed. A record is
+ * never stamped earlier than the one before it, also across restarts: when the wall clock steps back, records keep
+ * the time of the last one until the clock caught up. Records are thus ordered by time across all segments, which
+ * lets a trajectory query stop at the first segment and record past its period. A new segment is started when the active one covers the segment duration
+ * or is full, and after every restart; segments whose last record is older than the retention are deleted by a
+ * background thread. A trajectory query only decodes the segments overlapping the requested period, directly from the
+ * mapped files.
+ * <p/>
+ * The history is opt-in: segments outlive the process, so they only belong to a database that survives restarts too.
+ */
+@Component
+public class LocationHistory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocationHistory.class);
+    private static final String METRIC_PREFIX = "driver.history";
+    private static final String SUFFIX = ".seg";
+    private static final long RETENTION_CHECK_INTERVAL_MILLIS = 60_000;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentMillis;
+    private final long retentionMillis;
+    private final int segmentSize;
+
+    private final List<LocationSegment> segments = new CopyOnWriteArrayList<>();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private LocationSegment active;
+    // time of the newest record, appended ones are stamped no earlier
+    private long lastMillis;
+    private ScheduledExecutorService scheduler;
+
+
+    public LocationHistory(MeterRegistry meterRegistry,
+                           @Value("${driver.history.enabled:false}") boolean enabled,
+                           @Value("${driver.history.directory:${java.io.tmpdir}/driver-location-history}") String directory,
+                           @Value("${driver.history.segment-duration-minutes:60}") long segmentMinutes,
+                           @Value("${driver.history.retention-hours:72}") long retentionHours,
+                           @Value("${driver.history.segment-size-mb:64}") int segmentSizeMegabytes) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentMillis = TimeUnit.MINUTES.toMillis(segmentMinutes);
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+        // a mapped buffer holds at most 2 GB
+        Preconditions.checkArgument(segmentSizeMegabytes > 0 && segmentSizeMegabytes < 2048,
+                "segment size must be between 1 and 2047 MB: " + segmentSizeMegabytes);
+        this.segmentSize = segmentSizeMegabytes << 20;
+
+        FunctionCounter.builder(METRIC_PREFIX + ".records", appended, LongAdder::sum)
+                .tag("result", "appended").register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".records", dropped, LongAdder::sum)
+                .tag("result", "dropped").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".segments", segments, List::size).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".bytes", this, LocationHistory::getSizeBytes).register(meterRegistry);
+    }
+
+
+    /**
+     * Maps the segments left by earlier runs and starts deleting expired ones.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<LocationSegment> existing = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    existing.add(LocationSegment.open(file));
+                } catch (IOException e) {
+                    LOGGER.warn("Skipping unreadable location history segment {}.", file, e);
+                }
+            }
+        }
+        existing.sort(Comparator.comparingLong(LocationSegment::getBaseMillis));
+        segments.addAll(existing);
+        synchronized (this) {
+            for (LocationSegment segment : existing) {
+                lastMillis = Math.max(lastMillis, segment.getLastMillis());
+            }
+        }
+        expire(System.currentTimeMillis());
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "driver-history-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expireQuietly, RETENTION_CHECK_INTERVAL_MILLIS,
+                RETENTION_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        GeoCoordinate coordinate = event.getCoordinate();
+        if (!enabled || event.getType() != DriverEvent.Type.LOCATION_UPDATED || coordinate == null) {
+            return;
+        }
+        try {
+            append(event.getDriverId(), System.currentTimeMillis(), coordinate.getLatitude(),
+                    coordinate.getLongitude());
+        } catch (UncheckedIOException e) {
+            // the update is committed already, losing a history record must not fail it
+            dropped.increment();
+            LOGGER.error("Could not append the location of driver {} to the history.", event.getDriverId(), e);
+        }
+    }
+
+
+    /**
+     * @param epochMillis time of the record, the time of the previous record when that is later
+     * @throws UncheckedIOException when a new segment cannot be created
+     */
+    public synchronized void append(long driverId, long epochMillis, double latitude, double longitude) {
+        long stamp = Math.max(epochMillis, lastMillis);
+        lastMillis = stamp;
+        if (active == null || stamp - active.getBaseMillis() >= segmentMillis) {
+            roll(stamp, latitude, longitude);
+        }
+        if (!active.append(driverId, stamp, latitude, longitude)) {
+            roll(stamp, latitude, longitude);
+            active.append(driverId, stamp, latitude, longitude);
+        }
+        appended.increment();
+    }
+
+
+    /**
+     * @param fromMillis start of the period, inclusive
+     * @param toMillis   end of the period, inclusive
+     * @param maxPoints  the oldest points are returned when the driver has more in the period
+     * @return positions of the driver in the period, oldest first
+     */
+    public List<TrajectoryPoint> getTrajectory(long driverId, long fromMillis, long toMillis, int maxPoints) {
+        List<TrajectoryPoint> points = new ArrayList<>();
+        for (LocationSegment segment : segments) {
+            if (segment.getBaseMillis() > toMillis) {
+                break;
+            }
+            if (segment.getLastMillis() >= fromMillis
+                    && !segment.collect(driverId, fromMillis, toMillis, points, maxPoints)) {
+                break;
+            }
+        }
+        return points;
+    }
+
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+
+    public long getSizeBytes() {
+        long bytes = 0;
+        for (LocationSegment segment : segments) {
+            bytes += segment.getSize();
+        }
+        return bytes;
+    }
+
+
+    /**
+     * Deletes the segments whose last record is older than the retention, the active segment is kept.
+     */
+    void expire(long now) {
+        LocationSegment current;
+        synchronized (this) {
+            current = active;
+        }
+        for (LocationSegment segment : segments) {
+            if (segment != current && now - segment.getLastMillis() > retentionMillis) {
+                segments.remove(segment);
+                try {
+                    // readers still holding the segment keep their mapping until it is collected
+                    Files.deleteIfExists(segment.getPath());
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete expired location history segment {}.", segment.getPath(), e);
+                }
+            }
+        }
+    }
+
+
+    private void roll(long epochMillis, double latitude, double longitude) {
+        long baseMillis = epochMillis;
+        while (true) {
+            Path file = directory.resolve(baseMillis + SUFFIX);
+            try {
+                active = LocationSegment.create(file, segmentSize, epochMillis, latitude, longitude);
+                segments.add(active);
+                return;
+            } catch (FileAlreadyExistsException e) {
+                // a segment was started in the same millisecond, e.g. by another instance on the directory
+                baseMillis++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+
+    private void expireQuietly() {
+        try {
+            expire(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not delete expired location history segments.", e);
+        }
+    }
+}
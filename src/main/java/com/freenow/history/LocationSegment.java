@@ -0,0 +1,261 @@
+package com.freenow.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * One memory-mapped file of the {@link LocationHistory}.
+ * <p/>
+ * After a fixed header the file holds records in the order they were appended, each one
+ * {@code (driverId + 1, epochMillis - epochMillis of the previous record, latitude - reference latitude,
+ * longitude - reference longitude)} as variable-length integers, signed ones zigzag encoded, followed by a two-byte
+ * check of the record. Positions are stored in 1e-7 degrees (about 1 cm) relative to the first position of the
+ * segment, so a ping in the same city takes around a dozen bytes instead of 32. The file is preallocated and
+ * zero-filled, a record starting with a zero byte marks the end. The check is written last and always has its top bit
+ * set, so a record cut off by a crash, whose tail is still zero, never passes it and ends the records.
+ * <p/>
+ * Only one thread appends, see {@link LocationHistory}. Readers decode straight from the mapped memory up to the end
+ * of the last complete record and never copy the file to the heap.
+ */
+final class LocationSegment {
+
+    static final int MAX_RECORD_SIZE = 10 + 10 + 5 + 5 + 2;
+    private static final int MAGIC = 0x4c4f4332;
+    private static final int CHECK_SIZE = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final double FIXED_POINT = 1e7;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final long baseMillis;
+    private final int referenceLatitude;
+    private final int referenceLongitude;
+    // end of the last complete record, published after the record was written
+    private volatile int limit;
+    private volatile long lastMillis;
+
+
+    private LocationSegment(Path path, ByteBuffer buffer, long baseMillis, int referenceLatitude,
+                            int referenceLongitude, int limit, long lastMillis) {
+        this.path = path;
+        this.buffer = buffer;
+        this.baseMillis = baseMillis;
+        this.referenceLatitude = referenceLatitude;
+        this.referenceLongitude = referenceLongitude;
+        this.limit = limit;
+        this.lastMillis = lastMillis;
+    }
+
+
+    /**
+     * Creates a new file of the given size, its first record is expected at {@code baseMillis} near the reference
+     * position.
+     */
+    static LocationSegment create(Path path, int size, long baseMillis, double latitude, double longitude)
+            throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        int referenceLatitude = fixedPoint(latitude);
+        int referenceLongitude = fixedPoint(longitude);
+        buffer.putInt(0, MAGIC);
+        buffer.putLong(4, baseMillis);
+        buffer.putInt(12, referenceLatitude);
+        buffer.putInt(16, referenceLongitude);
+        return new LocationSegment(path, buffer, baseMillis, referenceLatitude, referenceLongitude, HEADER_SIZE,
+                baseMillis);
+    }
+
+
+    /**
+     * Maps an existing file read-only and finds the end of its records.
+     *
+     * @throws IOException when the file is no segment
+     */
+    static LocationSegment open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a location history segment: " + path);
+        }
+        long baseMillis = buffer.getLong(4);
+        LocationSegment segment = new LocationSegment(path, buffer, baseMillis, buffer.getInt(12),
+                buffer.getInt(16), buffer.capacity(), baseMillis);
+        Reader reader = segment.new Reader();
+        while (reader.next()) {
+            segment.lastMillis = reader.epochMillis;
+        }
+        segment.limit = reader.end;
+        return segment;
+    }
+
+
+    /**
+     * @return false when the segment is full
+     */
+    boolean append(long driverId, long epochMillis, double latitude, double longitude) {
+        int start = limit;
+        if (start + MAX_RECORD_SIZE >= buffer.capacity()) {
+            return false;
+        }
+        int position = putVarLong(start, driverId + 1);
+        position = putVarLong(position, zigzag(epochMillis - lastMillis));
+        position = putVarLong(position, zigzag(fixedPoint(latitude) - referenceLatitude));
+        position = putVarLong(position, zigzag(fixedPoint(longitude) - referenceLongitude));
+        buffer.putShort(position, check(start, position));
+        position += CHECK_SIZE;
+        lastMillis = epochMillis;
+        limit = position;
+        return true;
+    }
+
+
+    /**
+     * Adds the positions of a driver between two points in time, both inclusive, in the order they were appended.
+     *
+     * @return false when {@code maxPoints} was reached
+     */
+    boolean collect(long driverId, long fromMillis, long toMillis, List<TrajectoryPoint> points, int maxPoints) {
+        Reader reader = new Reader();
+        while (reader.next()) {
+            if (reader.epochMillis > toMillis) {
+                break;
+            }
+            if (reader.driverId == driverId && reader.epochMillis >= fromMillis) {
+                if (points.size() >= maxPoints) {
+                    return false;
+                }
+                points.add(new TrajectoryPoint(reader.epochMillis,
+                        (referenceLatitude + reader.latitudeDelta) / FIXED_POINT,
+                        (referenceLongitude + reader.longitudeDelta) / FIXED_POINT));
+            }
+        }
+        return true;
+    }
+
+
+    Path getPath() {
+        return path;
+    }
+
+    long getBaseMillis() {
+        return baseMillis;
+    }
+
+    /**
+     * @return time of the last record, the base time while the segment is empty
+     */
+    long getLastMillis() {
+        return lastMillis;
+    }
+
+    /**
+     * @return bytes used by the header and the records
+     */
+    int getSize() {
+        return limit;
+    }
+
+
+    private int putVarLong(int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put(position++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put(position++, (byte) value);
+        return position;
+    }
+
+
+    /**
+     * FNV-1a hash of the record bytes folded to 15 bits, with the top bit set so it is never zero.
+     */
+    private short check(int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xFF)) * 0x01000193;
+        }
+        return (short) (0x8000 | ((hash ^ (hash >>> 15)) & 0x7FFF));
+    }
+
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+
+    private static int fixedPoint(double degrees) {
+        return (int) Math.round(degrees * FIXED_POINT);
+    }
+
+
+    /**
+     * Decodes the records one after the other from the mapped memory.
+     */
+    private final class Reader {
+        private final int readLimit = limit;
+        private int position = HEADER_SIZE;
+        private int end = HEADER_SIZE;
+        private long driverId;
+        private long epochMillis = baseMillis;
+        private long latitudeDelta;
+        private long longitudeDelta;
+
+        /**
+         * @return false at the end of the records, including a record cut off by a crash or failing its check
+         */
+        private boolean next() {
+            if (position >= readLimit || buffer.get(position) == 0) {
+                return false;
+            }
+            try {
+                int start = position;
+                long id = getVarLong() - 1;
+                long millis = epochMillis + unzigzag(getVarLong());
+                long latitude = unzigzag(getVarLong());
+                long longitude = unzigzag(getVarLong());
+                if (position + CHECK_SIZE > readLimit || buffer.getShort(position) != check(start, position)) {
+                    return false;
+                }
+                position += CHECK_SIZE;
+                driverId = id;
+                epochMillis = millis;
+                latitudeDelta = latitude;
+                longitudeDelta = longitude;
+                end = position;
+                return true;
+            } catch (IndexOutOfBoundsException e) {
+                return false;
+            }
+        }
+
+        private long getVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= readLimit) {
+                    throw new IndexOutOfBoundsException("record exceeds the segment");
+                }
+                byte b = buffer.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IndexOutOfBoundsException("malformed variable-length integer");
+        }
+    }
+}
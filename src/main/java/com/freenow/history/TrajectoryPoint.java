@@ -0,0 +1,43 @@
+package com.freenow.history;
+
+/**
+ * One recorded position of a driver.
+ */
+public class TrajectoryPoint {
+
+    private final long epochMillis;
+    private final double latitude;
+    private final double longitude;
+
+
+    public TrajectoryPoint(long epochMillis, double latitude, double longitude) {
+        this.epochMillis = epochMillis;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+
+    /**
+     * @return time the position was committed
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    @Override
+    public String toString() {
+        return "TrajectoryPoint{" +
+                "epochMillis=" + epochMillis +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                '}';
+    }
+}
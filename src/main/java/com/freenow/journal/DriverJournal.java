@@ -0,0 +1,579 @@
+package com.freenow.journal;
+
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of the committed driver and car changes, to rebuild the in-memory driver views on startup
+ * without scanning the driver table.
+ * <p/>
+ * Every committed {@link DriverEvent} and car rating change is handed to a writer thread, which writes all changes
+ * waiting at that moment to the journal file and syncs them with one {@code fsync}. The thread that made the change
+ * waits for that sync after its transaction, so all changes of a transaction and of concurrent transactions share one
+ * sync. The writer applies the synced changes to a record per driver. Every checkpoint interval the records are written
+ * to a checkpoint file and the journal files it covers are deleted.
+ * <p/>
+ * On startup the latest checkpoint is read and the journal after it is replayed. The driver service and the
+ * {@link com.freenow.state.DriverStateStore} then start from the recovered records instead of the driver table, so the
+ * restart time depends on the changes since the last checkpoint rather than on the number of drivers. Without a
+ * checkpoint they read the table and a first checkpoint is written right after.
+ * <p/>
+ * The driver table stays the source of truth: a change committed to the table but not yet synced to the journal when
+ * the process dies is missing from the recovered views until the driver changes again. Deleting the journal directory
+ * makes the next start read the table.
+ */
+@Component
+public class DriverJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverJournal.class);
+    private static final String METRIC_PREFIX = "driver.journal";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final String CHECKPOINT_SUFFIX = ".bin";
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private enum Kind {
+        ENTRY, SNAPSHOT, CHECKPOINT, STOP
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long checkpointIntervalMillis;
+    private final long commitTimeoutMillis;
+    private final int maxBatchSize;
+
+    private final ConcurrentMap<Long, DriverRecord> drivers = new ConcurrentHashMap<>();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder checkpoints = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private volatile boolean recovered;
+    private volatile boolean failed;
+    private Thread writer;
+    private ScheduledExecutorService checkpointer;
+
+    // only used by the writer thread once it is started
+    private final Map<Long, Long> driversByCar = new HashMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel journal;
+    private long journalFirstSequence;
+    // last entry synced and applied, last entry written
+    private long sequence;
+    private long written;
+    private long checkpointSequence = -1;
+
+
+    public DriverJournal(MeterRegistry meterRegistry,
+                         @Value("${driver.journal.enabled:false}") boolean enabled,
+                         @Value("${driver.journal.directory:${java.io.tmpdir}/driver-journal}") String directory,
+                         @Value("${driver.journal.checkpoint-interval-seconds:300}") long checkpointIntervalSeconds,
+                         @Value("${driver.journal.commit-timeout-ms:1000}") long commitTimeoutMillis,
+                         @Value("${driver.journal.max-batch-size:1000}") int maxBatchSize) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.checkpointIntervalMillis = TimeUnit.SECONDS.toMillis(checkpointIntervalSeconds);
+        this.commitTimeoutMillis = commitTimeoutMillis;
+        this.maxBatchSize = maxBatchSize;
+
+        FunctionCounter.builder(METRIC_PREFIX + ".entries", appended, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".syncs", syncs, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".checkpoints", checkpoints, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".lost", lost, LongAdder::sum).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".drivers", drivers, Map::size).register(meterRegistry);
+    }
+
+
+    /**
+     * Recovers the driver records from the latest checkpoint and the journal after it, then starts the writer.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        long started = System.nanoTime();
+        recover();
+        if (recovered) {
+            LOGGER.info("Recovered {} drivers up to journal entry {} in {} ms.", drivers.size(), sequence,
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+        written = sequence;
+        openJournal(sequence + 1);
+
+        writer = new Thread(this::writeLoop, "driver-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "driver-journal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpoint, checkpointIntervalMillis, checkpointIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Syncs the changes still waiting and stops the writer.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        checkpointer.shutdown();
+        queue.add(new Pending(Kind.STOP, null, null));
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        checkpointer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * @return true when the driver records were recovered from a checkpoint, the views should start from
+     * {@link #forEachDriver} then
+     */
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+
+    public void forEachDriver(Consumer<DriverRecord> consumer) {
+        drivers.values().forEach(consumer);
+    }
+
+
+    public int size() {
+        return drivers.size();
+    }
+
+
+    /**
+     * Asks the writer for a checkpoint once all changes handed to it so far are applied, without waiting for it.
+     */
+    public void checkpoint() {
+        if (enabled && !failed) {
+            queue.add(new Pending(Kind.CHECKPOINT, null, null));
+        }
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        if (!enabled || failed) {
+            return;
+        }
+        if (event.getType() == DriverEvent.Type.SNAPSHOT) {
+            // snapshots read from the table seed the records when there was no checkpoint
+            if (!recovered) {
+                queue.add(new Pending(Kind.SNAPSHOT, event, null));
+            }
+            return;
+        }
+        append(new Pending(Kind.ENTRY, event, null));
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarEvent(CarEvent event) {
+        // only the rating of a car shows in the driver records
+        if (enabled && !failed && event.getType() == CarEvent.Type.RATING_UPDATED) {
+            append(new Pending(Kind.ENTRY, null, event));
+        }
+    }
+
+
+    private void append(Pending pending) {
+        queue.add(pending);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            await(pending);
+            return;
+        }
+        // the listener runs after the commit, the completion callbacks of the transaction run after all listeners
+        TransactionWait wait = (TransactionWait) TransactionSynchronizationManager.getResource(this);
+        if (wait == null) {
+            wait = new TransactionWait();
+            TransactionSynchronizationManager.bindResource(this, wait);
+            TransactionSynchronizationManager.registerSynchronization(wait);
+        }
+        wait.last = pending;
+    }
+
+
+    private void await(Pending pending) {
+        try {
+            if (!pending.synced.await(commitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Driver journal did not sync within {} ms.", commitTimeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private void recover() throws IOException {
+        TreeMap<Long, Path> checkpointFiles = list(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+        JournalFormat.Checkpoint checkpoint = null;
+        for (Map.Entry<Long, Path> file : checkpointFiles.descendingMap().entrySet()) {
+            try {
+                checkpoint = JournalFormat.readCheckpoint(file.getValue());
+                break;
+            } catch (IOException e) {
+                LOGGER.warn("Skipping unreadable driver journal checkpoint {}.", file.getValue(), e);
+            }
+        }
+        TreeMap<Long, Path> journalFiles = list(JOURNAL_PREFIX, JOURNAL_SUFFIX);
+        if (checkpoint == null) {
+            // the journal alone does not know the drivers that did not change since it was started
+            for (Path file : journalFiles.values()) {
+                Files.delete(file);
+            }
+            return;
+        }
+        drivers.putAll(checkpoint.drivers);
+        for (DriverRecord driver : checkpoint.drivers.values()) {
+            if (driver.getCarId() != null) {
+                driversByCar.put(driver.getCarId(), driver.getDriverId());
+            }
+        }
+        sequence = checkpoint.sequence;
+        checkpointSequence = checkpoint.sequence;
+        for (Path file : journalFiles.values()) {
+            replay(file);
+        }
+        recovered = true;
+    }
+
+
+    /**
+     * Applies the entries of one journal file following the current sequence and cuts off the file after the last
+     * intact entry.
+     */
+    private void replay(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!JournalFormat.getJournalHeader(content)) {
+                LOGGER.warn("Skipping driver journal file {} without a valid header.", file);
+                return;
+            }
+            JournalFormat.Entry entry;
+            while ((entry = JournalFormat.getEntry(content)) != null) {
+                if (entry.sequence <= sequence) {
+                    continue;
+                }
+                if (entry.sequence != sequence + 1) {
+                    LOGGER.warn("Driver journal entry {} follows entry {} in {}, ignoring the rest.", entry.sequence,
+                            sequence, file);
+                    break;
+                }
+                apply(entry);
+                sequence = entry.sequence;
+            }
+            if (content.position() < content.capacity()) {
+                LOGGER.warn("Cutting off driver journal file {} after {} of {} bytes.", file, content.position(),
+                        content.capacity());
+                channel.truncate(content.position());
+            }
+        }
+    }
+
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        List<Pending> unsynced = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            try {
+                for (Pending pending : batch) {
+                    if (pending.kind == Kind.ENTRY || pending.kind == Kind.SNAPSHOT) {
+                        write(pending, unsynced);
+                        continue;
+                    }
+                    sync(unsynced);
+                    if (pending.kind == Kind.STOP) {
+                        closeJournal();
+                        return;
+                    }
+                    startCheckpoint();
+                }
+                sync(unsynced);
+            } catch (RuntimeException e) {
+                fail(e);
+                batch.forEach(pending -> pending.synced.countDown());
+                unsynced.clear();
+            }
+            batch.clear();
+        }
+    }
+
+
+    private void write(Pending pending, List<Pending> unsynced) {
+        if (pending.kind == Kind.ENTRY && !failed) {
+            if (buffer.remaining() < JournalFormat.MAX_ENTRY_SIZE) {
+                sync(unsynced);
+            }
+            pending.entry = new JournalFormat.Entry(++written, pending.epochMillis,
+                    pending.driverEvent, pending.carEvent);
+            JournalFormat.putEntry(buffer, pending.entry);
+        }
+        unsynced.add(pending);
+    }
+
+
+    /**
+     * Writes and syncs the buffered entries, then applies them in order and releases the threads waiting for them.
+     */
+    private void sync(List<Pending> unsynced) {
+        if (unsynced.isEmpty()) {
+            return;
+        }
+        if (buffer.position() > 0 && !failed) {
+            try {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+                journal.force(false);
+                syncs.increment();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        buffer.clear();
+        for (Pending pending : unsynced) {
+            if (pending.kind == Kind.SNAPSHOT) {
+                apply(new JournalFormat.Entry(0, pending.epochMillis, pending.driverEvent, null));
+            } else if (!failed) {
+                apply(pending.entry);
+                sequence = pending.entry.sequence;
+                appended.increment();
+            } else {
+                lost.increment();
+            }
+            pending.synced.countDown();
+        }
+        unsynced.clear();
+    }
+
+
+    private void apply(JournalFormat.Entry entry) {
+        if (entry.carEvent != null) {
+            Long driverId = driversByCar.get(entry.carEvent.getCarId());
+            if (driverId != null) {
+                drivers.computeIfPresent(driverId, (id, driver) ->
+                        Long.valueOf(entry.carEvent.getCarId()).equals(driver.getCarId()) && driver.getCar() != null
+                                ? driver.withCar(driver.getCar().withRating(entry.carEvent.getRating())) : driver);
+            }
+            return;
+        }
+        DriverEvent event = entry.driverEvent;
+        DriverRecord previous = drivers.get(event.getDriverId());
+        DriverRecord next = DriverRecord.apply(previous, event, entry.epochMillis);
+        if (previous != null && previous.getCarId() != null) {
+            driversByCar.remove(previous.getCarId(), previous.getDriverId());
+        }
+        if (next == null) {
+            drivers.remove(event.getDriverId());
+            return;
+        }
+        drivers.put(next.getDriverId(), next);
+        if (next.getCarId() != null) {
+            driversByCar.put(next.getCarId(), next.getDriverId());
+        }
+    }
+
+
+    /**
+     * Takes the records as of the current sequence, continues in a new journal file and writes the checkpoint on the
+     * checkpoint thread, the records are immutable so the copy stays consistent.
+     */
+    private void startCheckpoint() {
+        if (failed || sequence == checkpointSequence) {
+            return;
+        }
+        long checkpointed = sequence;
+        List<DriverRecord> snapshot = new ArrayList<>(drivers.values());
+        checkpointSequence = checkpointed;
+        try {
+            closeJournal();
+            openJournal(checkpointed + 1);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        try {
+            checkpointer.execute(() -> writeCheckpoint(checkpointed, snapshot));
+        } catch (RejectedExecutionException e) {
+            // shutting down, the next start replays the journal from the previous checkpoint
+            LOGGER.debug("Driver journal is stopping, skipping checkpoint {}.", checkpointed);
+        }
+    }
+
+
+    private void writeCheckpoint(long checkpointed, List<DriverRecord> snapshot) {
+        long started = System.nanoTime();
+        try {
+            JournalFormat.writeCheckpoint(directory.resolve(fileName(CHECKPOINT_PREFIX, checkpointed,
+                    CHECKPOINT_SUFFIX)), checkpointed, snapshot);
+            // the checkpoint contains all entries up to its sequence, older files are not needed any more
+            for (Map.Entry<Long, Path> file : list(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX).headMap(checkpointed)
+                    .entrySet()) {
+                Files.deleteIfExists(file.getValue());
+            }
+            for (Map.Entry<Long, Path> file : list(JOURNAL_PREFIX, JOURNAL_SUFFIX).headMap(checkpointed, true)
+                    .entrySet()) {
+                Files.deleteIfExists(file.getValue());
+            }
+            checkpoints.increment();
+            LOGGER.info("Wrote driver journal checkpoint {} with {} drivers in {} ms.", checkpointed, snapshot.size(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Could not write driver journal checkpoint {}.", checkpointed, e);
+        }
+    }
+
+
+    private void openJournal(long firstSequence) throws IOException {
+        for (Map.Entry<Long, Path> file : list(JOURNAL_PREFIX, JOURNAL_SUFFIX).tailMap(firstSequence).entrySet()) {
+            // left behind by a run that stopped at a gap in the journal, superseded by the entries to come
+            Files.delete(file.getValue());
+        }
+        journal = FileChannel.open(directory.resolve(fileName(JOURNAL_PREFIX, firstSequence, JOURNAL_SUFFIX)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        journalFirstSequence = firstSequence;
+        ByteBuffer header = ByteBuffer.allocate(JournalFormat.HEADER_SIZE);
+        JournalFormat.putJournalHeader(header);
+        header.flip();
+        while (header.hasRemaining()) {
+            journal.write(header);
+        }
+        journal.force(true);
+    }
+
+
+    private void closeJournal() {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close driver journal file {}.", journalFirstSequence, e);
+        }
+    }
+
+
+    /**
+     * Stops journaling after a failed write. The checkpoints are deleted, so the next start reads the driver table
+     * instead of a journal with a gap.
+     */
+    private void fail(Exception cause) {
+        failed = true;
+        LOGGER.error("Could not write the driver journal, journaling is stopped until the next start.", cause);
+        try {
+            for (Path file : list(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX).values()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not delete the driver journal checkpoints in {}, delete them before the next start.",
+                    directory, e);
+        }
+    }
+
+
+    private TreeMap<Long, Path> list(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), file);
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Ignoring {} in the driver journal directory.", file);
+                }
+            }
+        }
+        return files;
+    }
+
+
+    private static String fileName(String prefix, long sequence, String suffix) {
+        return String.format("%s%020d%s", prefix, sequence, suffix);
+    }
+
+
+    /**
+     * A change handed to the writer, or an instruction for it.
+     */
+    private static final class Pending {
+        private final Kind kind;
+        private final DriverEvent driverEvent;
+        private final CarEvent carEvent;
+        private final long epochMillis;
+        private final CountDownLatch synced = new CountDownLatch(1);
+        private JournalFormat.Entry entry;
+
+        private Pending(Kind kind, DriverEvent driverEvent, CarEvent carEvent) {
+            this.kind = kind;
+            this.driverEvent = driverEvent;
+            this.carEvent = carEvent;
+            this.epochMillis = driverEvent == null ? System.currentTimeMillis() : driverEvent.getEpochMillis();
+        }
+    }
+
+
+    /**
+     * Waits for the last change of a transaction once all its after-commit listeners ran.
+     */
+    private final class TransactionWait extends TransactionSynchronizationAdapter {
+        private Pending last;
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(DriverJournal.this);
+            await(last);
+        }
+    }
+}
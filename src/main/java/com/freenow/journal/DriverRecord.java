@@ -0,0 +1,123 @@
+package com.freenow.journal;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.event.DriverEvent;
+import com.freenow.state.DriverState;
+
+/**
+ * State of one non-deleted driver as rebuilt by {@link DriverJournal}, with the attributes of the selected car.
+ */
+public class DriverRecord {
+
+    private final long driverId;
+    private final OnlineStatus onlineStatus;
+    private final double latitude;
+    private final double longitude;
+    private final Long carId;
+    private final CarProfile car;
+    private final long updatedEpochMillis;
+
+
+    /**
+     * @param latitude  NaN when the position is unknown
+     * @param longitude NaN when the position is unknown
+     * @param carId     null without a car
+     */
+    DriverRecord(long driverId, OnlineStatus onlineStatus, double latitude, double longitude, Long carId,
+                 CarProfile car, long updatedEpochMillis) {
+        this.driverId = driverId;
+        this.onlineStatus = onlineStatus;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.carId = carId;
+        this.car = car;
+        this.updatedEpochMillis = updatedEpochMillis;
+    }
+
+
+    /**
+     * Applies a driver change the way the in-memory views do.
+     *
+     * @param previous the record before the change, null for an unknown driver
+     * @return the record after the change, null when the driver was deleted
+     */
+    static DriverRecord apply(DriverRecord previous, DriverEvent event, long epochMillis) {
+        if (event.getType() == DriverEvent.Type.DELETED || event.isDeleted()) {
+            return null;
+        }
+        OnlineStatus onlineStatus = event.getOnlineStatus() == null && previous != null
+                ? previous.onlineStatus : event.getOnlineStatus();
+        GeoCoordinate coordinate = event.getCoordinate();
+        double latitude = coordinate == null ? Double.NaN : coordinate.getLatitude();
+        double longitude = coordinate == null ? Double.NaN : coordinate.getLongitude();
+        return new DriverRecord(event.getDriverId(), onlineStatus, latitude, longitude, event.getCarId(), event.getCar(),
+                epochMillis);
+    }
+
+
+    DriverRecord withCar(CarProfile car) {
+        return new DriverRecord(driverId, onlineStatus, latitude, longitude, carId, car, updatedEpochMillis);
+    }
+
+
+    /**
+     * @return the event that makes an in-memory view start with this driver
+     */
+    public DriverEvent toSnapshotEvent() {
+        return new DriverEvent(DriverEvent.Type.SNAPSHOT, driverId, onlineStatus, false,
+                isLocated() ? new GeoCoordinate(latitude, longitude) : null, carId, car, updatedEpochMillis);
+    }
+
+
+    public DriverState toDriverState() {
+        return new DriverState(driverId, latitude, longitude, onlineStatus, carId, car, updatedEpochMillis);
+    }
+
+
+    public long getDriverId() {
+        return driverId;
+    }
+
+    public OnlineStatus getOnlineStatus() {
+        return onlineStatus;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public boolean isLocated() {
+        return !Double.isNaN(latitude);
+    }
+
+    public Long getCarId() {
+        return carId;
+    }
+
+    public CarProfile getCar() {
+        return car;
+    }
+
+    public long getUpdatedEpochMillis() {
+        return updatedEpochMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "DriverRecord{" +
+                "driverId=" + driverId +
+                ", onlineStatus=" + onlineStatus +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", carId=" + carId +
+                ", car=" + car +
+                ", updatedEpochMillis=" + updatedEpochMillis +
+                '}';
+    }
+}
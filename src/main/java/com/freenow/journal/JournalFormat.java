@@ -0,0 +1,300 @@
+package com.freenow.journal;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary layout of the files of {@link DriverJournal}.
+ * <p/>
+ * A journal file starts with a header and holds entries of {@code (length, crc32, payload)}, the payload being the
+ * sequence number, the time and the fields of one driver or car event. A checkpoint holds the sequence number of the
+ * last entry it contains and every driver record, followed by a crc32 of the whole file. Enums are stored by their
+ * ordinal, reordering one needs a new {@link #VERSION}.
+ */
+final class JournalFormat {
+
+    static final int HEADER_SIZE = 8;
+    static final int MAX_ENTRY_SIZE = 128;
+    private static final int JOURNAL_MAGIC = 0x444a4c31;
+    private static final int CHECKPOINT_MAGIC = 0x444a4331;
+    private static final int VERSION = 1;
+    private static final byte DRIVER = 1;
+    private static final byte CAR = 2;
+    private static final byte NULL = -1;
+    private static final long NO_CAR = 0;
+    private static final DriverEvent.Type[] DRIVER_EVENT_TYPES = DriverEvent.Type.values();
+    private static final CarEvent.Type[] CAR_EVENT_TYPES = CarEvent.Type.values();
+    private static final OnlineStatus[] STATUSES = OnlineStatus.values();
+    private static final EngineType[] ENGINE_TYPES = EngineType.values();
+    private static final Rating[] RATINGS = Rating.values();
+    private static final Manufacturer[] MANUFACTURERS = Manufacturer.values();
+
+
+    private JournalFormat() {
+    }
+
+
+    /**
+     * One journaled driver or car event.
+     */
+    static final class Entry {
+        final long sequence;
+        final long epochMillis;
+        final DriverEvent driverEvent;
+        final CarEvent carEvent;
+
+        Entry(long sequence, long epochMillis, DriverEvent driverEvent, CarEvent carEvent) {
+            this.sequence = sequence;
+            this.epochMillis = epochMillis;
+            this.driverEvent = driverEvent;
+            this.carEvent = carEvent;
+        }
+    }
+
+
+    /**
+     * Drivers of a checkpoint and the sequence number of the last entry applied to them.
+     */
+    static final class Checkpoint {
+        final long sequence;
+        final Map<Long, DriverRecord> drivers;
+
+        Checkpoint(long sequence, Map<Long, DriverRecord> drivers) {
+            this.sequence = sequence;
+            this.drivers = drivers;
+        }
+    }
+
+
+    static void putJournalHeader(ByteBuffer buffer) {
+        buffer.putInt(JOURNAL_MAGIC).putInt(VERSION);
+    }
+
+
+    /**
+     * @return false when the buffer does not start with a journal header of this version
+     */
+    static boolean getJournalHeader(ByteBuffer buffer) {
+        return buffer.remaining() >= HEADER_SIZE && buffer.getInt() == JOURNAL_MAGIC && buffer.getInt() == VERSION;
+    }
+
+
+    /**
+     * Appends an entry of at most {@value #MAX_ENTRY_SIZE} bytes.
+     */
+    static void putEntry(ByteBuffer buffer, Entry entry) {
+        int start = buffer.position();
+        buffer.position(start + 8);
+        buffer.putLong(entry.sequence).putLong(entry.epochMillis);
+        if (entry.driverEvent != null) {
+            DriverEvent event = entry.driverEvent;
+            GeoCoordinate coordinate = event.getCoordinate();
+            buffer.put(DRIVER).put((byte) event.getType().ordinal()).putLong(event.getDriverId())
+                    .put(event.isDeleted() ? (byte) 1 : 0);
+            putState(buffer, event.getOnlineStatus(),
+                    coordinate == null ? Double.NaN : coordinate.getLatitude(),
+                    coordinate == null ? Double.NaN : coordinate.getLongitude(), event.getCarId(), event.getCar());
+        } else {
+            CarEvent event = entry.carEvent;
+            buffer.put(CAR).put((byte) event.getType().ordinal()).putLong(event.getCarId()).put(ordinal(event.getRating()));
+        }
+        int end = buffer.position();
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(end).position(start + 8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.putInt(start, end - start - 8).putInt(start + 4, (int) crc.getValue());
+    }
+
+
+    /**
+     * @return the next entry, null at the end of the entries or at an entry cut off by a crash
+     */
+    static Entry getEntry(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < 8) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(payload.position() + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        buffer.position(buffer.position() + length);
+        try {
+            long sequence = payload.getLong();
+            long epochMillis = payload.getLong();
+            if (payload.get() == DRIVER) {
+                DriverEvent.Type type = DRIVER_EVENT_TYPES[payload.get()];
+                long driverId = payload.getLong();
+                boolean deleted = payload.get() == 1;
+                OnlineStatus onlineStatus = get(STATUSES, payload.get());
+                GeoCoordinate coordinate = coordinate(payload.getDouble(), payload.getDouble());
+                Long carId = carId(payload.getLong());
+                return new Entry(sequence, epochMillis,
+                        new DriverEvent(type, driverId, onlineStatus, deleted, coordinate, carId, getCar(payload),
+                                epochMillis),
+                        null);
+            }
+            CarEvent.Type type = CAR_EVENT_TYPES[payload.get()];
+            return new Entry(sequence, epochMillis, null,
+                    new CarEvent(type, payload.getLong(), get(RATINGS, payload.get())));
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            // a matching checksum over a malformed payload means the file was written by another version
+            buffer.position(start);
+            return null;
+        }
+    }
+
+
+    /**
+     * Writes the checkpoint to a temporary file first and moves it into place once it was synced, so a crash never
+     * leaves a partial checkpoint under the final name.
+     */
+    static void writeCheckpoint(Path file, long sequence, Collection<DriverRecord> drivers) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            buffer.putInt(CHECKPOINT_MAGIC).putInt(VERSION).putLong(sequence).putInt(drivers.size());
+            for (DriverRecord driver : drivers) {
+                if (buffer.remaining() < MAX_ENTRY_SIZE) {
+                    write(channel, buffer, crc);
+                }
+                buffer.putLong(driver.getDriverId()).putLong(driver.getUpdatedEpochMillis());
+                putState(buffer, driver.getOnlineStatus(), driver.getLatitude(), driver.getLongitude(),
+                        driver.getCarId(), driver.getCar());
+            }
+            write(channel, buffer, crc);
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    /**
+     * @throws IOException when the file cannot be read or is no complete checkpoint of this version
+     */
+    static Checkpoint readCheckpoint(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < 24) {
+            throw new IOException("Checkpoint " + file + " is truncated.");
+        }
+        ByteBuffer content = buffer.duplicate();
+        content.limit(buffer.capacity() - 4);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        if ((int) crc.getValue() != buffer.getInt(buffer.capacity() - 4)
+                || buffer.getInt() != CHECKPOINT_MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Checkpoint " + file + " is damaged or of another version.");
+        }
+        long sequence = buffer.getLong();
+        int count = buffer.getInt();
+        Map<Long, DriverRecord> drivers = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            long driverId = buffer.getLong();
+            long updatedEpochMillis = buffer.getLong();
+            OnlineStatus onlineStatus = get(STATUSES, buffer.get());
+            double latitude = buffer.getDouble();
+            double longitude = buffer.getDouble();
+            Long carId = carId(buffer.getLong());
+            drivers.put(driverId, new DriverRecord(driverId, onlineStatus, latitude, longitude, carId,
+                    getCar(buffer), updatedEpochMillis));
+        }
+        return new Checkpoint(sequence, drivers);
+    }
+
+
+    private static void write(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+
+    private static void putState(ByteBuffer buffer, OnlineStatus onlineStatus, double latitude, double longitude,
+                                 Long carId, CarProfile car) {
+        buffer.put(ordinal(onlineStatus)).putDouble(latitude).putDouble(longitude)
+                .putLong(carId == null ? NO_CAR : carId);
+        if (car == null) {
+            buffer.put((byte) 0);
+        } else {
+            buffer.put((byte) 1).put(ordinal(car.getEngineType())).putShort(car.getSeatCount())
+                    .put(car.isConvertible() ? (byte) 1 : 0).put(ordinal(car.getRating()))
+                    .put(ordinal(car.getManufacturer()));
+        }
+    }
+
+
+    private static CarProfile getCar(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        EngineType engineType = get(ENGINE_TYPES, buffer.get());
+        short seatCount = buffer.getShort();
+        boolean convertible = buffer.get() == 1;
+        Rating rating = get(RATINGS, buffer.get());
+        return new CarProfile(engineType, seatCount, convertible, rating, get(MANUFACTURERS, buffer.get()));
+    }
+
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? NULL : (byte) value.ordinal();
+    }
+
+
+    private static <T> T get(T[] values, byte ordinal) {
+        return ordinal == NULL ? null : values[ordinal];
+    }
+
+
+    private static GeoCoordinate coordinate(double latitude, double longitude) {
+        return Double.isNaN(latitude) ? null : new GeoCoordinate(latitude, longitude);
+    }
+
+
+    private static Long carId(long carId) {
+        return carId == NO_CAR ? null : carId;
+    }
+}
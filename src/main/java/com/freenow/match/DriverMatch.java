@@ -0,0 +1,64 @@
+package com.freenow.match;
+
+import com.freenow.domainvalue.CarProfile;
+
+/**
+ * An available driver found by {@link DriverMatcher}, with the car it drives and its distance to the pickup point.
+ */
+public class DriverMatch {
+
+    private final long driverId;
+    private final long carId;
+    private final CarProfile car;
+    private final double latitude;
+    private final double longitude;
+    private final double distanceMeters;
+
+
+    public DriverMatch(long driverId, long carId, CarProfile car, double latitude, double longitude,
+                       double distanceMeters) {
+        this.driverId = driverId;
+        this.carId = carId;
+        this.car = car;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.distanceMeters = distanceMeters;
+    }
+
+
+    public long getDriverId() {
+        return driverId;
+    }
+
+    public long getCarId() {
+        return carId;
+    }
+
+    public CarProfile getCar() {
+        return car;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    @Override
+    public String toString() {
+        return "DriverMatch{" +
+                "driverId=" + driverId +
+                ", carId=" + carId +
+                ", car=" + car +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", distanceMeters=" + distanceMeters +
+                '}';
+    }
+}
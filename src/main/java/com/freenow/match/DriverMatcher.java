@@ -0,0 +1,233 @@
+package com.freenow.match;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import com.freenow.geo.GeoGrid;
+import com.google.common.base.Preconditions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the closest available drivers whose car satisfies a rider's {@link RideRequirements}.
+ * <p/>
+ * Available are ONLINE, non-deleted drivers with a known position and a selected car. They are kept in a grid of
+ * cells together with the attributes of their cars, so a match scans the cells in rings around the pickup point,
+ * filters the drivers of each cell on their car and stops as soon as no unvisited cell can hold a closer match. The
+ * grid is kept up to date from the committed {@link DriverEvent}s and {@link CarEvent}s and never touches the
+ * database.
+ */
+@Component
+public class DriverMatcher {
+
+    private final GeoGrid grid;
+    private final int maxRings;
+    // every non-deleted driver holding a car by its last event, located or not, the located ONLINE ones are in cells
+    private final ConcurrentMap<Long, Candidate> drivers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Long> driversByCar = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, ConcurrentMap<Long, Candidate>> cells = new ConcurrentHashMap<>();
+    private final AtomicInteger available = new AtomicInteger();
+
+
+    public DriverMatcher(@Value("${driver.matching.cell-size-degrees:0.01}") double cellSizeDegrees,
+                         @Value("${driver.matching.max-rings:50}") int maxRings) {
+        this.grid = new GeoGrid(cellSizeDegrees);
+        Preconditions.checkArgument(maxRings >= 0 && 2 * maxRings + 1 < grid.getColumns(),
+                "max rings must not wrap around the globe: " + maxRings);
+        this.maxRings = maxRings;
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        drivers.compute(event.getDriverId(), (id, previous) -> {
+            Candidate next = next(event);
+            replace(id, previous, next);
+            return next;
+        });
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarEvent(CarEvent event) {
+        if (event.getType() != CarEvent.Type.RATING_UPDATED) {
+            return;
+        }
+        Long driverId = driversByCar.get(event.getCarId());
+        if (driverId == null) {
+            return;
+        }
+        drivers.computeIfPresent(driverId, (id, previous) -> {
+            if (previous.carId != event.getCarId()) {
+                return previous;
+            }
+            Candidate next = previous.withCar(previous.car.withRating(event.getRating()));
+            replace(id, previous, next);
+            return next;
+        });
+    }
+
+
+    /**
+     * @param latitude     latitude of the pickup point
+     * @param longitude    longitude of the pickup point
+     * @param requirements car the rider asks for
+     * @param limit        maximum number of drivers to return
+     * @return available drivers with a matching car within the searched rings, ordered by ascending distance
+     */
+    public List<DriverMatch> match(double latitude, double longitude, RideRequirements requirements, int limit) {
+        if (limit <= 0 || available.get() == 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<DriverMatch> closest =
+                new PriorityQueue<>(limit, Comparator.comparingDouble(DriverMatch::getDistanceMeters).reversed());
+        int centerRow = grid.row(latitude);
+        int centerColumn = grid.column(longitude);
+        int indexed = available.get();
+        int visited = 0;
+
+        for (int ring = 0; ring <= maxRings; ring++) {
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= grid.getRows()) {
+                    continue;
+                }
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    visited += collect(grid.cellKey(row, column), latitude, longitude, requirements, limit, closest);
+                }
+            }
+            if (visited >= indexed
+                    || (closest.size() == limit
+                    && closest.peek().getDistanceMeters() <= grid.ringLowerBoundMeters(latitude, ring))) {
+                break;
+            }
+        }
+
+        List<DriverMatch> result = new ArrayList<>(closest);
+        result.sort(Comparator.comparingDouble(DriverMatch::getDistanceMeters));
+        return result;
+    }
+
+
+    /**
+     * @return number of drivers that can currently be matched
+     */
+    public int size() {
+        return available.get();
+    }
+
+
+    private int collect(long cell, double latitude, double longitude, RideRequirements requirements, int limit,
+                        PriorityQueue<DriverMatch> closest) {
+        ConcurrentMap<Long, Candidate> candidates = cells.get(cell);
+        if (candidates == null) {
+            return 0;
+        }
+        int visited = 0;
+        for (Candidate candidate : candidates.values()) {
+            visited++;
+            if (!requirements.isSatisfiedBy(candidate.car)) {
+                continue;
+            }
+            double distance = GeoGrid.distanceMeters(latitude, longitude, candidate.latitude, candidate.longitude);
+            if (closest.size() < limit) {
+                closest.add(candidate.toMatch(distance));
+            } else if (distance < closest.peek().getDistanceMeters()) {
+                closest.poll();
+                closest.add(candidate.toMatch(distance));
+            }
+        }
+        return visited;
+    }
+
+
+    /**
+     * @return the driver's state after the event, null when the driver no longer holds a car
+     */
+    private Candidate next(DriverEvent event) {
+        CarProfile car = event.getCar();
+        if (car == null || event.isDeleted()) {
+            return null;
+        }
+        long carId = event.getCarId();
+        if (!event.isLocatable()) {
+            return new Candidate(event.getDriverId(), carId, car, false, 0, 0, 0);
+        }
+        GeoCoordinate coordinate = event.getCoordinate();
+        return new Candidate(event.getDriverId(), carId, car, true, coordinate.getLatitude(),
+                coordinate.getLongitude(), grid.cellKey(coordinate.getLatitude(), coordinate.getLongitude()));
+    }
+
+
+    /**
+     * Moves a driver between cells, only called while holding the driver's entry in {@link #drivers}.
+     */
+    private void replace(Long driverId, Candidate previous, Candidate next) {
+        if (previous != null && previous.located && (next == null || !next.located || next.cell != previous.cell)) {
+            cells.computeIfPresent(previous.cell, (key, candidates) -> {
+                candidates.remove(driverId);
+                return candidates.isEmpty() ? null : candidates;
+            });
+            available.decrementAndGet();
+        }
+        if (next != null && next.located) {
+            boolean added = previous == null || !previous.located || previous.cell != next.cell;
+            cells.compute(next.cell, (key, candidates) -> {
+                ConcurrentMap<Long, Candidate> cellCandidates = candidates == null ? new ConcurrentHashMap<>() : candidates;
+                cellCandidates.put(driverId, next);
+                return cellCandidates;
+            });
+            if (added) {
+                available.incrementAndGet();
+            }
+        }
+        if (previous != null && (next == null || previous.carId != next.carId)) {
+            driversByCar.remove(previous.carId, driverId);
+        }
+        if (next != null) {
+            driversByCar.put(next.carId, driverId);
+        }
+    }
+
+
+    private static final class Candidate {
+        private final long driverId;
+        private final long carId;
+        private final CarProfile car;
+        private final boolean located;
+        private final double latitude;
+        private final double longitude;
+        private final long cell;
+
+        private Candidate(long driverId, long carId, CarProfile car, boolean located, double latitude,
+                          double longitude, long cell) {
+            this.driverId = driverId;
+            this.carId = carId;
+            this.car = car;
+            this.located = located;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cell = cell;
+        }
+
+        private Candidate withCar(CarProfile car) {
+            return new Candidate(driverId, carId, car, located, latitude, longitude, cell);
+        }
+
+        private DriverMatch toMatch(double distanceMeters) {
+            return new DriverMatch(driverId, carId, car, latitude, longitude, distanceMeters);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.freenow.match;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.Rating;
+
+/**
+ * Car a rider asks for. Every requirement is optional, a null engine type, convertible flag or rating accepts any.
+ */
+public class RideRequirements {
+
+    public static final RideRequirements ANY = new RideRequirements(0, null, null, null);
+
+    private final int minSeatCount;
+    private final EngineType engineType;
+    private final Boolean convertible;
+    private final Rating minRating;
+
+
+    public RideRequirements(int minSeatCount, EngineType engineType, Boolean convertible, Rating minRating) {
+        this.minSeatCount = minSeatCount;
+        this.engineType = engineType;
+        this.convertible = convertible;
+        this.minRating = minRating;
+    }
+
+
+    public boolean isSatisfiedBy(CarProfile car) {
+        return car.getSeatCount() >= minSeatCount
+                && (engineType == null || car.getEngineType() == engineType)
+                && (convertible == null || car.isConvertible() == convertible)
+                && (minRating == null || car.getRating().compareTo(minRating) >= 0);
+    }
+
+
+    public int getMinSeatCount() {
+        return minSeatCount;
+    }
+
+    public EngineType getEngineType() {
+        return engineType;
+    }
+
+    public Boolean getConvertible() {
+        return convertible;
+    }
+
+    public Rating getMinRating() {
+        return minRating;
+    }
+
+    @Override
+    public String toString() {
+        return "RideRequirements{" +
+                "minSeatCount=" + minSeatCount +
+                ", engineType=" + engineType +
+                ", convertible=" + convertible +
+                ", minRating=" + minRating +
+                '}';
+    }
+}
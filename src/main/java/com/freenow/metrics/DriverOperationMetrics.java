@@ -0,0 +1,109 @@
+package com.freenow.metrics;
+
+import com.freenow.event.DriverEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Business counters of the driver operations and sizes of search results.
+ * <p/>
+ * {@code driver.operations} is tagged with the operation, the outcome and the failure reason. Successes are counted
+ * once the change committed, from the published {@link DriverEvent}s; failures are counted where they are thrown,
+ * with the exception name or the rejected status as reason. {@code driver.search.results} records the number of
+ * drivers per search page and per streamed search.
+ */
+@Component
+public class DriverOperationMetrics {
+
+    public enum Operation {
+        LOCATION_UPDATE, STATUS_UPDATE, CAR_SELECTION, CAR_DESELECTION;
+
+        private String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final String OPERATIONS = "driver.operations";
+    private static final String SEARCH_RESULTS = "driver.search.results";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Operation, Counter> successes = new EnumMap<>(Operation.class);
+    private final DistributionSummary pageSizes;
+    private final DistributionSummary streamSizes;
+
+
+    public DriverOperationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Operation operation : Operation.values()) {
+            successes.put(operation, counter(operation, "success", "none"));
+        }
+        pageSizes = DistributionSummary.builder(SEARCH_RESULTS).tag("mode", "page")
+                .publishPercentileHistogram().maximumExpectedValue(500L).register(meterRegistry);
+        streamSizes = DistributionSummary.builder(SEARCH_RESULTS).tag("mode", "stream")
+                .publishPercentileHistogram().register(meterRegistry);
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        switch (event.getType()) {
+            case LOCATION_UPDATED:
+                successes.get(Operation.LOCATION_UPDATE).increment();
+                break;
+            case ONLINE_STATUS_UPDATED:
+                successes.get(Operation.STATUS_UPDATE).increment();
+                break;
+            case CAR_SELECTED:
+                successes.get(Operation.CAR_SELECTION).increment();
+                break;
+            case CAR_DESELECTED:
+                successes.get(Operation.CAR_DESELECTION).increment();
+                break;
+            default:
+        }
+    }
+
+
+    /**
+     * Runs an operation and counts the exception it fails with, if any.
+     */
+    public <T> T recordFailures(Operation operation, Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            failed(operation, e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+
+    public void failed(Operation operation, String reason) {
+        counter(operation, "failure", reason).increment();
+    }
+
+
+    public void searchPage(int drivers) {
+        pageSizes.record(drivers);
+    }
+
+
+    public void searchStream(long drivers) {
+        streamSizes.record(drivers);
+    }
+
+
+    private Counter counter(Operation operation, String outcome, String reason) {
+        return Counter.builder(OPERATIONS)
+                .tag("operation", operation.tag())
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,42 @@
+package com.freenow.metrics;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Adds the controller method, e.g. {@code DriverController.updateLocation}, to the {@code http.server.requests}
+ * timers, so latencies can be read per endpoint method rather than per URI template and HTTP method.
+ */
+@Component
+public class HandlerMethodTagsProvider extends DefaultWebMvcTagsProvider {
+
+    private static final Tag NO_HANDLER = Tag.of("handler", "none");
+
+
+    @Override
+    public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                 Throwable exception) {
+        return Tags.of(super.getTags(request, response, handler, exception)).and(handler(handler));
+    }
+
+
+    @Override
+    public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+        return Tags.of(super.getLongRequestTags(request, handler)).and(handler(handler));
+    }
+
+
+    private static Tag handler(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return NO_HANDLER;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        return Tag.of("handler", handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+    }
+}
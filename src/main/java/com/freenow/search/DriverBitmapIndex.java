@@ -0,0 +1,268 @@
+package com.freenow.search;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bitmap index over the attributes of a driver search that have only a few values: online status, seat
+ * count, convertible, engine type, rating and manufacturer.
+ * <p/>
+ * Every value of an attribute has a bitset with one bit per non-deleted driver, the driver id is the bit index. Car
+ * attributes are only set for drivers holding a car. A search ANDs the bitsets of its values and reads the highest
+ * ids below the cursor, so no join and no table access is needed to find the ids of a page. The bitsets are kept up
+ * to date from the committed {@link DriverEvent}s and {@link CarEvent}s.
+ */
+@Component
+public class DriverBitmapIndex {
+
+    private static final Set<SearchAttribute> INDEXED = Collections.unmodifiableSet(EnumSet.of(
+            SearchAttribute.ONLINE_STATUS, SearchAttribute.SEAT_COUNT, SearchAttribute.CONVERTIBLE,
+            SearchAttribute.ENGINE_TYPE, SearchAttribute.RATING, SearchAttribute.MANUFACTURER));
+
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<SearchAttribute, Map<Object, BitSet>> bitmaps = new EnumMap<>(SearchAttribute.class);
+    // written under the write lock, read without it to skip events that change no indexed attribute
+    private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Long> driversByCar = new HashMap<>();
+    // set once a driver id does not fit a bit index, the index then no longer answers searches
+    private volatile boolean overflowed;
+
+
+    public DriverBitmapIndex(@Value("${driver.search.bitmap-index.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        for (SearchAttribute attribute : INDEXED) {
+            bitmaps.put(attribute, new HashMap<>());
+        }
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long driverId = event.getDriverId();
+        if (event.isDeleted()) {
+            remove(driverId);
+            return;
+        }
+        put(driverId, event.getOnlineStatus(), event.getCarId(), event.getCar());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarEvent(CarEvent event) {
+        if (!enabled || event.getType() != CarEvent.Type.RATING_UPDATED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Long driverId = driversByCar.get(event.getCarId());
+            Entry previous = driverId == null ? null : entries.get(driverId);
+            if (previous != null) {
+                update(driverId, previous,
+                        new Entry(previous.onlineStatus, previous.carId, previous.car.withRating(event.getRating())));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Indexes a driver or replaces its indexed attributes.
+     *
+     * @param carId id of the car held by the driver, null without a car
+     * @param car   attributes of that car, null without a car
+     */
+    public void put(long driverId, OnlineStatus onlineStatus, Long carId, CarProfile car) {
+        if (driverId < 0 || driverId >= Integer.MAX_VALUE) {
+            overflowed = true;
+            return;
+        }
+        Entry next = new Entry(onlineStatus, car == null ? null : carId, carId == null ? null : car);
+        if (next.equals(entries.get(driverId))) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            update(driverId, entries.get(driverId), next);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    public void remove(long driverId) {
+        if (!entries.containsKey(driverId)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            update(driverId, entries.get(driverId), null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return true when the index is enabled and can answer a search on all attributes of the filter
+     */
+    public boolean covers(DriverSearchFilter filter) {
+        return enabled && !overflowed && INDEXED.containsAll(filter.getAttributes());
+    }
+
+
+    /**
+     * @param filter   search with {@link #covers covered} attributes only
+     * @param beforeId only drivers with lower ids are returned, null for the first page
+     * @param limit    maximum number of ids
+     * @return ids of the matching drivers, the highest first
+     */
+    public List<Long> search(DriverSearchFilter filter, Long beforeId, int limit) {
+        int toIndex = beforeId == null || beforeId > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) (long) beforeId;
+        List<Long> ids = new ArrayList<>(Math.min(limit, 1024));
+        if (toIndex <= 0) {
+            return ids;
+        }
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (SearchAttribute attribute : filter.getAttributes()) {
+                BitSet bitmap = bitmaps.get(attribute).get(filter.getValue(attribute));
+                if (bitmap == null) {
+                    return ids;
+                }
+                if (matches == null) {
+                    matches = bitmap.get(0, Math.min(toIndex, bitmap.length()));
+                } else {
+                    matches.and(bitmap);
+                }
+            }
+            for (int id = matches.previousSetBit(matches.length() - 1); id >= 0 && ids.size() < limit;
+                 id = matches.previousSetBit(id - 1)) {
+                ids.add((long) id);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return number of indexed drivers
+     */
+    public int size() {
+        return entries.size();
+    }
+
+
+    private void update(long driverId, Entry previous, Entry next) {
+        int bit = (int) driverId;
+        for (SearchAttribute attribute : INDEXED) {
+            Object previousValue = previous == null ? null : previous.value(attribute);
+            Object nextValue = next == null ? null : next.value(attribute);
+            if (Objects.equals(previousValue, nextValue)) {
+                continue;
+            }
+            Map<Object, BitSet> values = bitmaps.get(attribute);
+            if (previousValue != null) {
+                values.get(previousValue).clear(bit);
+            }
+            if (nextValue != null) {
+                values.computeIfAbsent(nextValue, value -> new BitSet()).set(bit);
+            }
+        }
+        if (previous != null && previous.carId != null && (next == null || !previous.carId.equals(next.carId))) {
+            driversByCar.remove(previous.carId, driverId);
+        }
+        if (next == null) {
+            entries.remove(driverId);
+            return;
+        }
+        if (next.carId != null) {
+            driversByCar.put(next.carId, driverId);
+        }
+        entries.put(driverId, next);
+    }
+
+
+    private static final class Entry {
+        private final OnlineStatus onlineStatus;
+        private final Long carId;
+        private final CarProfile car;
+
+        private Entry(OnlineStatus onlineStatus, Long carId, CarProfile car) {
+            this.onlineStatus = onlineStatus;
+            this.carId = carId;
+            this.car = car;
+        }
+
+        /**
+         * @return the value as parsed by {@link SearchAttribute#parse}, null when the driver has none
+         */
+        private Object value(SearchAttribute attribute) {
+            if (attribute == SearchAttribute.ONLINE_STATUS) {
+                return onlineStatus;
+            }
+            if (car == null) {
+                return null;
+            }
+            switch (attribute) {
+                case SEAT_COUNT:
+                    return car.getSeatCount();
+                case CONVERTIBLE:
+                    return car.isConvertible();
+                case ENGINE_TYPE:
+                    return car.getEngineType();
+                case RATING:
+                    return car.getRating();
+                case MANUFACTURER:
+                    return car.getManufacturer();
+                default:
+                    throw new IllegalArgumentException("Attribute is not indexed: " + attribute);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Entry entry = (Entry) o;
+            return onlineStatus == entry.onlineStatus && Objects.equals(carId, entry.carId)
+                    && Objects.equals(car, entry.car);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(onlineStatus, carId, car);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.freenow.search;
+
+import com.freenow.domainobject.DriverDO;
+
+import java.util.List;
+
+/**
+ * One page of a driver search, ordered by descending id.
+ */
+public class DriverPage {
+
+    private final List<DriverDO> drivers;
+    private final String nextCursor;
+
+
+    public DriverPage(List<DriverDO> drivers, String nextCursor) {
+        this.drivers = drivers;
+        this.nextCursor = nextCursor;
+    }
+
+
+    public List<DriverDO> getDrivers() {
+        return drivers;
+    }
+
+
+    /**
+     * @return token of the next page or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
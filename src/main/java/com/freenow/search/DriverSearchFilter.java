@@ -0,0 +1,83 @@
+package com.freenow.search;
+
+import com.freenow.exception.ParseValueException;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parsed and typed criteria of a driver search.
+ * <p/>
+ * Parameter names are matched case-insensitively and the attributes are kept in declaration order, so two searches
+ * for the same values are equal no matter how the client spelled or ordered the parameters. The set of attributes,
+ * the shape of the filter, selects the cached query plan.
+ */
+public final class DriverSearchFilter {
+
+    private final Map<SearchAttribute, Object> values;
+
+
+    private DriverSearchFilter(EnumMap<SearchAttribute, Object> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+
+    /**
+     * @param queryParams search parameters as sent by the client
+     * @throws ParseValueException if there are no parameters, a parameter is unknown or given twice, or a value
+     *                             cannot be parsed
+     */
+    public static DriverSearchFilter of(Map<String, String> queryParams) {
+        if (queryParams.isEmpty()) {
+            throw new ParseValueException("Could not perform search with provided query variables");
+        }
+        EnumMap<SearchAttribute, Object> values = new EnumMap<>(SearchAttribute.class);
+        for (Map.Entry<String, String> param : queryParams.entrySet()) {
+            SearchAttribute attribute = SearchAttribute.fromParameter(param.getKey());
+            if (values.put(attribute, attribute.parse(param.getValue())) != null) {
+                throw new ParseValueException(String.format("Search parameter %s is given more than once",
+                        param.getKey()));
+            }
+        }
+        return new DriverSearchFilter(values);
+    }
+
+
+    /**
+     * @return the filtered attributes in declaration order
+     */
+    public Set<SearchAttribute> getAttributes() {
+        return values.keySet();
+    }
+
+
+    public Object getValue(SearchAttribute attribute) {
+        return values.get(attribute);
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return values.equals(((DriverSearchFilter) o).values);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+
+    @Override
+    public String toString() {
+        return "DriverSearchFilter" + values;
+    }
+}
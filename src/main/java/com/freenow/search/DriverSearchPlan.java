@@ -0,0 +1,71 @@
+package com.freenow.search;
+
+import com.freenow.domainobject.DriverDO;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Set;
+
+/**
+ * Parameterized JPQL query for one filter shape, ordered by descending id. The query string only depends on the
+ * shape, so Hibernate compiles it once and serves later searches of the same shape from its query plan cache.
+ */
+public final class DriverSearchPlan {
+
+    private static final String BEFORE_ID = "beforeId";
+
+    private final Set<SearchAttribute> attributes;
+    private final boolean keyset;
+    private final String jpql;
+
+
+    DriverSearchPlan(Set<SearchAttribute> attributes, boolean keyset) {
+        this.attributes = attributes;
+        this.keyset = keyset;
+        this.jpql = compile(attributes, keyset);
+    }
+
+
+    /**
+     * @param beforeId only drivers with a lower id are selected, must be given exactly when the plan was created for
+     *                 a keyset page
+     */
+    public TypedQuery<DriverDO> createQuery(EntityManager entityManager, DriverSearchFilter filter, Long beforeId) {
+        TypedQuery<DriverDO> query = entityManager.createQuery(jpql, DriverDO.class);
+        for (SearchAttribute attribute : attributes) {
+            query.setParameter(attribute.getField(), filter.getValue(attribute));
+        }
+        if (keyset) {
+            query.setParameter(BEFORE_ID, beforeId);
+        }
+        return query;
+    }
+
+
+    public String getJpql() {
+        return jpql;
+    }
+
+
+    private static String compile(Set<SearchAttribute> attributes, boolean keyset) {
+        // a car predicate never matches a driver without car, the inner join lets the database start from the car
+        // indexes and reach the drivers through the car_id index
+        boolean carFilter = attributes.stream().anyMatch(SearchAttribute::isCarAttribute);
+        StringBuilder jpql = new StringBuilder(carFilter
+                ? "select d from DriverDO d join fetch d.carDO c"
+                : "select d from DriverDO d left join fetch d.carDO c");
+        String separator = " where ";
+        for (SearchAttribute attribute : attributes) {
+            jpql.append(separator)
+                    .append(attribute.isCarAttribute() ? "c." : "d.")
+                    .append(attribute.getField())
+                    .append(" = :")
+                    .append(attribute.getField());
+            separator = " and ";
+        }
+        if (keyset) {
+            jpql.append(separator).append("d.id < :").append(BEFORE_ID);
+        }
+        return jpql.append(" order by d.id desc").toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.freenow.search;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded cache of {@link DriverSearchPlan}s keyed by filter shape, so a search only builds its query once per
+ * distinct set of attributes.
+ */
+@Component
+public class DriverSearchPlanCache {
+
+    private final Cache<Long, DriverSearchPlan> plans;
+
+
+    public DriverSearchPlanCache(MeterRegistry meterRegistry,
+                                 @Value("${driver.search.plan-cache-size:512}") long maximumSize) {
+        this.plans = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, plans, "driver.search.plans");
+    }
+
+
+    /**
+     * @param attributes shape of the filter
+     * @param keyset     whether the plan continues after a given id
+     */
+    public DriverSearchPlan get(Set<SearchAttribute> attributes, boolean keyset) {
+        try {
+            return plans.get(key(attributes, keyset), () -> new DriverSearchPlan(EnumSet.copyOf(attributes), keyset));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not build driver search plan", e.getCause());
+        }
+    }
+
+
+    public long size() {
+        return plans.size();
+    }
+
+
+    private static long key(Set<SearchAttribute> attributes, boolean keyset) {
+        long key = keyset ? 1L : 0L;
+        for (SearchAttribute attribute : attributes) {
+            key |= 2L << attribute.ordinal();
+        }
+        return key;
+    }
+}
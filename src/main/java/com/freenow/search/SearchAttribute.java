@@ -0,0 +1,103 @@
+package com.freenow.search;
+
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.exception.ParseValueException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Driver and car attributes a driver search can filter by. The query parameter of an attribute is its field name,
+ * matched case-insensitively.
+ */
+public enum SearchAttribute {
+
+    USERNAME("username", false, value -> value),
+    ONLINE_STATUS("onlineStatus", false, value -> parseEnum(value, OnlineStatus.class)),
+    LICENSE_PLATE("licensePlate", true, String::trim),
+    SEAT_COUNT("seatCount", true, SearchAttribute::parseShort),
+    CONVERTIBLE("convertible", true, SearchAttribute::parseBoolean),
+    ENGINE_TYPE("engineType", true, value -> parseEnum(value, EngineType.class)),
+    RATING("rating", true, value -> parseEnum(value, Rating.class)),
+    MANUFACTURER("manufacturer", true, value -> parseEnum(value, Manufacturer.class));
+
+    private static final Map<String, SearchAttribute> BY_PARAMETER = new HashMap<>();
+
+    static {
+        for (SearchAttribute attribute : values()) {
+            BY_PARAMETER.put(attribute.field.toLowerCase(), attribute);
+        }
+    }
+
+    private final String field;
+    private final boolean carAttribute;
+    private final Function<String, Object> parser;
+
+
+    SearchAttribute(String field, boolean carAttribute, Function<String, Object> parser) {
+        this.field = field;
+        this.carAttribute = carAttribute;
+        this.parser = parser;
+    }
+
+
+    /**
+     * @throws ParseValueException if no attribute has the given query parameter
+     */
+    public static SearchAttribute fromParameter(String parameter) {
+        SearchAttribute attribute = BY_PARAMETER.get(parameter.trim().toLowerCase());
+        if (attribute == null) {
+            throw new ParseValueException("Could not perform search with provided query variables");
+        }
+        return attribute;
+    }
+
+
+    /**
+     * @return field of {@link com.freenow.domainobject.DriverDO} or, for car attributes, of
+     * {@link com.freenow.domainobject.CarDO}
+     */
+    public String getField() {
+        return field;
+    }
+
+
+    public boolean isCarAttribute() {
+        return carAttribute;
+    }
+
+
+    /**
+     * @throws ParseValueException if the value cannot be converted to the type of the attribute
+     */
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+
+    private static <T extends Enum<T>> T parseEnum(String value, Class<T> clazz) {
+        String val = value.trim().toUpperCase();
+        try {
+            return Enum.valueOf(clazz, val);
+        } catch (Exception ex) {
+            throw new ParseValueException(String.format("Could not parse the given value %s to its type", value));
+        }
+    }
+
+    private static short parseShort(String value) {
+        String val = value.trim().toUpperCase();
+        try {
+            return Short.valueOf(val);
+        } catch (Exception ex) {
+            throw new ParseValueException(String.format("Could not parse the given value %s to its type", value));
+        }
+    }
+
+    private static Boolean parseBoolean(String value) {
+        return Boolean.valueOf(value.trim().toLowerCase());
+    }
+}
@@ -0,0 +1,40 @@
+package com.freenow.search;
+
+import com.freenow.exception.ParseValueException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token of a keyset paginated driver search. It carries the id of the last returned driver,
+ * the next page continues with the drivers of lower ids.
+ */
+public final class SearchCursor {
+
+    private static final String PREFIX = "id:";
+
+    private SearchCursor() {
+    }
+
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * @throws ParseValueException if the token was not created by {@link #encode}
+     */
+    public static long decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(value);
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ParseValueException(String.format("Could not parse the given cursor %s", cursor));
+        }
+    }
+}
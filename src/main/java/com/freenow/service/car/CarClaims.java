@@ -0,0 +1,55 @@
+package com.freenow.service.car;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory compare-and-set table of the car claims currently in flight on this node.
+ * <p/>
+ * Of several drivers racing for the same car only one gets past {@link #tryClaim}, the others are turned away without
+ * touching the database. The winner still has to flip the car with the conditional update of
+ * {@link com.freenow.dataaccessobject.CarRepository#claim}, which decides between nodes. A claim is held until the
+ * surrounding transaction completed; from then on the committed car row rejects further claims. Outside of a
+ * transaction the claim is released right away and only the conditional update protects the car.
+ */
+@Component
+public class CarClaims {
+
+    private final ConcurrentMap<Long, Long> claims = new ConcurrentHashMap<>();
+
+
+    /**
+     * @return false if another driver is claiming the car right now
+     */
+    public boolean tryClaim(long carId, long driverId) {
+        Long claimant = claims.putIfAbsent(carId, driverId);
+        if (claimant != null) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    release(carId, driverId);
+                }
+            });
+        } else {
+            release(carId, driverId);
+        }
+        return true;
+    }
+
+
+    public boolean isClaimed(long carId) {
+        return claims.containsKey(carId);
+    }
+
+
+    private void release(long carId, long driverId) {
+        claims.remove(carId, driverId);
+    }
+}
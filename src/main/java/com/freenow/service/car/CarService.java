@@ -1,8 +1,13 @@
 package com.freenow.service.car;
 
 import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.CarImportResult;
+import com.freenow.domainvalue.CarImportRow;
 import com.freenow.domainvalue.Rating;
 
+import java.util.Iterator;
+import java.util.function.Consumer;
+
 public interface CarService {
     CarDO find(Long carId);
 
@@ -12,4 +17,6 @@ public interface CarService {
 
     CarDO updateRating(Long carId, Rating rating);
 
+    long importCars(Iterator<CarImportRow> rows, Consumer<CarImportResult> consumer);
+
 }
@@ -1,36 +1,62 @@
 package com.freenow.service.car;
 
+import com.freenow.cache.ReadThroughCache;
 import com.freenow.dataaccessobject.CarRepository;
 import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.CarImportResult;
+import com.freenow.domainvalue.CarImportRow;
+import com.freenow.domainvalue.CarImportStatus;
 import com.freenow.domainvalue.Rating;
+import com.freenow.event.CarEvent;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class DefaultCarService implements CarService {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(DefaultCarService.class);
+    private static final int IMPORT_BATCH_SIZE = 500;
     private final CarRepository carRepository;
+    private final ReadThroughCache<Long, CarDO> carCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
-    public DefaultCarService(CarRepository carRepository) {
+    public DefaultCarService(CarRepository carRepository,
+                             ReadThroughCache<Long, CarDO> carCache,
+                             ApplicationEventPublisher eventPublisher,
+                             TransactionTemplate transactionTemplate) {
         this.carRepository = carRepository;
+        this.carCache = carCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
-     * Finds a car by its ID
+     * Finds a car by its ID, served from the car cache when possible
      *
      * @param carId id of the car provided when the car is created
-     * @return the found car
+     * @return the found car, not to be modified
      */
     @Override
     public CarDO find(Long carId) {
-        return carRepository.findById(carId).orElseThrow(() ->
-                new EntityNotFoundException("Could not find entity with licensePlate: " + carId));
+        return carCache.get(carId, this::findCarChecked);
     }
 
     /**
@@ -52,14 +78,22 @@ public class DefaultCarService implements CarService {
 
 
     /**
-     * Deletes a car by its ID
+     * Deletes a car by its ID. Deleted cars are invisible to all reads, so a car still selected by a driver has to be
+     * deselected first. The selection is checked by the delete statement itself, a driver claiming the car at the
+     * same time either wins and the delete fails, or finds the car deleted.
      *
      * @param carId id of the car provided when the car is created
+     * @throws ConstraintsViolationException when the car is selected by a driver
      */
     @Override
     @Transactional
     public void delete(Long carId) {
-        find(carId).setDeleted(true);
+        findCarChecked(carId);
+        if (carRepository.markDeleted(carId) == 0) {
+            throw new ConstraintsViolationException(String.format("Car with id {%d} is selected by a driver and " +
+                    "cannot be deleted.", carId));
+        }
+        eventPublisher.publishEvent(new CarEvent(CarEvent.Type.DELETED, carId));
     }
 
     /**
@@ -71,9 +105,118 @@ public class DefaultCarService implements CarService {
     @Override
     @Transactional
     public CarDO updateRating(Long carId, Rating rating) {
-        CarDO carDO = find(carId);
+        CarDO carDO = findCarChecked(carId);
         carDO.setRating(rating);
+        eventPublisher.publishEvent(new CarEvent(CarEvent.Type.RATING_UPDATED, carId, rating));
         return carDO;
     }
 
+    /**
+     * Imports cars in JDBC batches of 500 rows, each batch in its own transaction. Only one batch is held in memory,
+     * the results of a batch are passed on in row order once it is written.
+     * <p/>
+     * Rows that could not be read and rows with a license plate already taken, in the table or earlier in the same
+     * batch, are reported and skipped, the other rows are still imported. A batch losing a race for a license plate
+     * against a concurrent insert is retried row by row.
+     *
+     * @param rows     rows to import, read one at a time
+     * @param consumer called once per row with its outcome
+     * @return number of created cars
+     */
+    @Override
+    public long importCars(Iterator<CarImportRow> rows, Consumer<CarImportResult> consumer) {
+        List<CarImportRow> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        long created = 0;
+        while (rows.hasNext()) {
+            batch.add(rows.next());
+            if (batch.size() == IMPORT_BATCH_SIZE || !rows.hasNext()) {
+                created += importBatch(batch, consumer);
+                batch.clear();
+            }
+        }
+        return created;
+    }
+
+    private int importBatch(List<CarImportRow> rows, Consumer<CarImportResult> consumer) {
+        CarImportResult[] results = new CarImportResult[rows.size()];
+        Map<String, Integer> indexByPlate = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            CarImportRow row = rows.get(i);
+            if (!row.isValid()) {
+                results[i] = new CarImportResult(row.getRow(), row.getLicensePlate(), CarImportStatus.INVALID, null,
+                        row.getError());
+            } else if (indexByPlate.putIfAbsent(row.getLicensePlate(), i) != null) {
+                results[i] = duplicate(row);
+            }
+        }
+
+        Set<String> taken = carRepository.findTakenLicensePlates(indexByPlate.keySet());
+        List<CarDO> cars = new ArrayList<>(indexByPlate.size());
+        for (Map.Entry<String, Integer> plate : indexByPlate.entrySet()) {
+            if (taken.contains(plate.getKey())) {
+                results[plate.getValue()] = duplicate(rows.get(plate.getValue()));
+            } else {
+                cars.add(rows.get(plate.getValue()).getCar());
+            }
+        }
+
+        Map<String, Long> ids = cars.isEmpty() ? Collections.emptyMap() : insert(cars);
+        for (CarDO car : cars) {
+            int index = indexByPlate.get(car.getLicensePlate());
+            Long id = ids.get(car.getLicensePlate());
+            results[index] = id == null
+                    ? duplicate(rows.get(index))
+                    : new CarImportResult(rows.get(index).getRow(), car.getLicensePlate(), CarImportStatus.CREATED, id,
+                    null);
+        }
+        for (CarImportResult result : results) {
+            consumer.accept(result);
+        }
+        return ids.size();
+    }
+
+    /**
+     * @return ids of the inserted cars by license plate, cars missing were taken by a concurrent insert
+     */
+    private Map<String, Long> insert(List<CarDO> cars) {
+        try {
+            return transactionTemplate.execute(status -> {
+                carRepository.insertCars(cars);
+                return idsByLicensePlate(cars);
+            });
+        } catch (DataIntegrityViolationException e) {
+            LOGGER.info("Car import batch of {} rows lost a license plate to a concurrent insert, retrying row by row.",
+                    cars.size());
+        }
+        Map<String, Long> ids = new HashMap<>();
+        for (CarDO car : cars) {
+            try {
+                ids.putAll(transactionTemplate.execute(status -> {
+                    List<CarDO> single = Collections.singletonList(car);
+                    carRepository.insertCars(single);
+                    return idsByLicensePlate(single);
+                }));
+            } catch (DataIntegrityViolationException e) {
+                LOGGER.debug("License plate {} was taken by a concurrent insert.", car.getLicensePlate());
+            }
+        }
+        return ids;
+    }
+
+    private static Map<String, Long> idsByLicensePlate(List<CarDO> cars) {
+        Map<String, Long> ids = new HashMap<>();
+        cars.forEach(car -> ids.put(car.getLicensePlate(), car.getId()));
+        return ids;
+    }
+
+    private static CarImportResult duplicate(CarImportRow row) {
+        return new CarImportResult(row.getRow(), row.getLicensePlate(), CarImportStatus.DUPLICATE, null,
+                "License plate is already taken: " + row.getLicensePlate());
+    }
+
+    private CarDO findCarChecked(Long carId) {
+        return carRepository.findById(carId).orElseThrow(() ->
+                new EntityNotFoundException("Could not find entity with licensePlate: " + carId));
+    }
+
 }
@@ -1,24 +1,64 @@
 package com.freenow.service.driver;
 
+import com.freenow.cache.ReadThroughCache;
 import com.freenow.dataaccessobject.CarRepository;
 import com.freenow.dataaccessobject.DriverRepository;
 import com.freenow.domainobject.CarDO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.dataaccessobject.DriverLocationRepository.PositionUpdate;
 import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.LocationUpdate;
+import com.freenow.domainvalue.LocationUpdateResult;
+import com.freenow.domainvalue.LocationUpdateStatus;
 import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
 import com.freenow.exception.CarAlreadyInUseException;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
 import com.freenow.exception.ParseValueException;
-import com.freenow.search.SearchCriteria;
+import com.freenow.geo.DriverGeoIndex;
+import com.freenow.geo.DriverHeatmap;
+import com.freenow.geo.HeatmapCell;
+import com.freenow.geo.NearbyDriver;
+import com.freenow.history.LocationHistory;
+import com.freenow.history.TrajectoryPoint;
+import com.freenow.journal.DriverJournal;
+import com.freenow.match.DriverMatch;
+import com.freenow.match.DriverMatcher;
+import com.freenow.match.RideRequirements;
+import com.freenow.metrics.DriverOperationMetrics;
+import com.freenow.metrics.DriverOperationMetrics.Operation;
+import com.freenow.search.DriverBitmapIndex;
+import com.freenow.search.DriverPage;
+import com.freenow.search.DriverSearchFilter;
+import com.freenow.search.SearchCursor;
+import com.freenow.service.car.CarClaims;
+import com.freenow.state.DriverState;
+import com.freenow.state.DriverStateStore;
+import com.freenow.stream.DriverUpdateFilter;
+import com.freenow.stream.DriverUpdateListener;
+import com.freenow.stream.DriverUpdateStream;
+import com.freenow.stream.DriverUpdateSubscription;
+import com.google.common.base.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Service to encapsulate the link between DAO and controller and to have business logic for some driver specific things.
@@ -28,25 +68,89 @@ import java.util.Map;
 public class DefaultDriverService implements DriverService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultDriverService.class);
+    private static final int MAX_NEARBY_DRIVERS = 100;
+    private static final int MAX_LOCATION_UPDATES = 5000;
+    private static final long MAX_CLOCK_SKEW_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int MAX_SEARCH_PAGE_SIZE = 500;
+    private static final int MAX_TRAJECTORY_POINTS = 10000;
+    private static final long DEFAULT_TRAJECTORY_MILLIS = TimeUnit.HOURS.toMillis(1);
 
     private final DriverRepository driverRepository;
     private final CarRepository carRepository;
+    private final DriverGeoIndex driverGeoIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LocationWriteBehindBuffer locationBuffer;
+    private final EntityManager entityManager;
+    private final ReadThroughCache<Long, DriverDO> driverCache;
+    private final CarClaims carClaims;
+    private final DriverOperationMetrics operationMetrics;
+    private final DriverUpdateStream updateStream;
+    private final DriverHeatmap heatmap;
+    private final DriverMatcher driverMatcher;
+    private final DriverBitmapIndex bitmapIndex;
+    private final LocationHistory locationHistory;
+    private final DriverJournal driverJournal;
+    private final DriverStateStore driverStateStore;
 
-    public DefaultDriverService(final DriverRepository driverRepository, final CarRepository carRepository) {
+    public DefaultDriverService(final DriverRepository driverRepository,
+                                final CarRepository carRepository,
+                                final DriverGeoIndex driverGeoIndex,
+                                final ApplicationEventPublisher eventPublisher,
+                                final LocationWriteBehindBuffer locationBuffer,
+                                final EntityManager entityManager,
+                                final ReadThroughCache<Long, DriverDO> driverCache,
+                                final CarClaims carClaims,
+                                final DriverOperationMetrics operationMetrics,
+                                final DriverUpdateStream updateStream,
+                                final DriverHeatmap heatmap,
+                                final DriverMatcher driverMatcher,
+                                final DriverBitmapIndex bitmapIndex,
+                                final LocationHistory locationHistory,
+                                final DriverJournal driverJournal,
+                                final DriverStateStore driverStateStore) {
         this.driverRepository = driverRepository;
         this.carRepository = carRepository;
+        this.driverGeoIndex = driverGeoIndex;
+        this.eventPublisher = eventPublisher;
+        this.locationBuffer = locationBuffer;
+        this.entityManager = entityManager;
+        this.driverCache = driverCache;
+        this.carClaims = carClaims;
+        this.operationMetrics = operationMetrics;
+        this.updateStream = updateStream;
+        this.heatmap = heatmap;
+        this.driverMatcher = driverMatcher;
+        this.bitmapIndex = bitmapIndex;
+        this.locationHistory = locationHistory;
+        this.driverJournal = driverJournal;
+        this.driverStateStore = driverStateStore;
     }
 
     /**
-     * Selects a driver by id.
+     * Publishes a snapshot of every driver once the context is up, so in-memory views start from the table content.
+     * The drivers recovered by the {@link DriverJournal} are published instead of reading the table when there are
+     * any, otherwise the journal gets its first checkpoint from the table content.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void publishDriverSnapshots() {
+        if (driverJournal.isRecovered()) {
+            driverJournal.forEachDriver(driver -> eventPublisher.publishEvent(driver.toSnapshotEvent()));
+            return;
+        }
+        driverRepository.findAll().forEach(driverDO -> publish(DriverEvent.Type.SNAPSHOT, driverDO));
+        driverJournal.checkpoint();
+    }
+
+    /**
+     * Selects a driver by id, served from the driver cache when possible.
      *
      * @param driverId id of the driver provided when creating a new driver
-     * @return found driver
+     * @return found driver, not to be modified
      * @throws EntityNotFoundException if no driver with the given id was found.
      */
     @Override
     public DriverDO find(Long driverId) {
-        return findDriverChecked(driverId);
+        return driverCache.get(driverId, this::loadDriver);
     }
 
 
@@ -60,7 +164,9 @@ public class DefaultDriverService implements DriverService {
     @Override
     public DriverDO create(DriverDO driverDO) {
         try {
-            return driverRepository.save(driverDO);
+            DriverDO created = driverRepository.save(driverDO);
+            publish(DriverEvent.Type.CREATED, created);
+            return created;
         } catch (DataIntegrityViolationException e) {
             LOGGER.warn("ConstraintsViolationException while creating a driver: {}", driverDO, e);
             throw new ConstraintsViolationException(e.getMessage());
@@ -77,12 +183,17 @@ public class DefaultDriverService implements DriverService {
     @Override
     @Transactional
     public void delete(Long driverId) {
-        findDriverChecked(driverId).setDeleted(true);
+        DriverDO driverDO = findDriverChecked(driverId);
+        driverDO.setDeleted(true);
+        publish(DriverEvent.Type.DELETED, driverDO);
     }
 
 
     /**
      * Updates the location for a driver.
+     * <p/>
+     * With the write-behind mode enabled the location is only buffered and written with the next flush. The returned
+     * driver is detached then, so the change is not flushed with the surrounding transaction as well.
      *
      * @param driverId  id of the driver provided when creating a new driver
      * @param longitude location longitude
@@ -92,22 +203,215 @@ public class DefaultDriverService implements DriverService {
     @Override
     @Transactional
     public DriverDO updateLocation(long driverId, double longitude, double latitude) {
-        DriverDO driverDO = findDriverChecked(driverId);
-        driverDO.setCoordinate(new GeoCoordinate(latitude, longitude));
-        return driverDO;
+        return operationMetrics.recordFailures(Operation.LOCATION_UPDATE, () -> {
+            DriverDO driverDO = findDriverChecked(driverId);
+            GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+            if (locationBuffer.isEnabled() && locationBuffer.offer(driverId, coordinate, System.currentTimeMillis())) {
+                detach(driverDO);
+            }
+            driverDO.setCoordinate(coordinate);
+            publish(DriverEvent.Type.LOCATION_UPDATED, driverDO);
+            return driverDO;
+        });
+    }
+
+    /**
+     * Updates the locations of many drivers with a single batched statement.
+     * <p/>
+     * Every report is validated on its own, a timestamp more than 30 seconds ahead of the server clock is invalid.
+     * When a batch holds several reports of the same driver only the newest one by timestamp is written. The stored
+     * position is stamped with the time the batch was received, the server clock of the single location update, so a
+     * device clock that runs ahead or behind cannot make later updates of the driver stale. Unknown drivers are
+     * turned away by the {@link DriverStateStore} without a query. Online status and car of the updated drivers are
+     * read after the positions were written: the written rows stay locked until the commit, so a car selection or
+     * status change of these drivers either committed before and is read, or waits for this batch, and the published
+     * events carry the state that is committed with the positions.
+     *
+     * @param locationUpdates position reports, at most 5000
+     * @return one result per report, in the order of the given list
+     * @throws ConstraintsViolationException when the batch is too large
+     */
+    @Override
+    @Transactional
+    public List<LocationUpdateResult> updateLocations(List<LocationUpdate> locationUpdates) {
+        if (locationUpdates.size() > MAX_LOCATION_UPDATES) {
+            throw new ConstraintsViolationException(String.format("At most %d locations can be updated at once.",
+                    MAX_LOCATION_UPDATES));
+        }
+        long receivedMillis = System.currentTimeMillis();
+        LocationUpdateResult[] results = new LocationUpdateResult[locationUpdates.size()];
+        // written in driver id order, so concurrent batches lock the rows of the same drivers in the same order
+        Map<Long, Integer> newestByDriver = new TreeMap<>();
+        Map<Integer, GeoCoordinate> coordinates = new HashMap<>();
+
+        for (int i = 0; i < locationUpdates.size(); i++) {
+            LocationUpdate update = locationUpdates.get(i);
+            try {
+                coordinates.put(i, validate(update, receivedMillis));
+            } catch (IllegalArgumentException e) {
+                results[i] = new LocationUpdateResult(update.getDriverId(), LocationUpdateStatus.INVALID, e.getMessage());
+                continue;
+            }
+            Integer previous = newestByDriver.get(update.getDriverId());
+            if (previous == null || locationUpdates.get(previous).getEpochMillis() <= update.getEpochMillis()) {
+                newestByDriver.put(update.getDriverId(), i);
+                if (previous != null) {
+                    results[previous] = stale(locationUpdates.get(previous));
+                }
+            } else {
+                results[i] = stale(update);
+            }
+        }
+
+        List<Integer> written = new ArrayList<>(newestByDriver.size());
+        List<PositionUpdate> positions = new ArrayList<>(newestByDriver.size());
+        for (Map.Entry<Long, Integer> newest : newestByDriver.entrySet()) {
+            int index = newest.getValue();
+            if (driverStateStore.get(newest.getKey()) != null) {
+                written.add(index);
+                positions.add(new PositionUpdate(newest.getKey(), coordinates.get(index), receivedMillis));
+            } else {
+                results[index] = new LocationUpdateResult(newest.getKey(), LocationUpdateStatus.NOT_FOUND,
+                        "Could not find driver with id: " + newest.getKey());
+            }
+        }
+
+        int[] updatedRows = positions.isEmpty() ? new int[0] : driverRepository.updateLocations(positions);
+        List<Long> updatedDrivers = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            if (updatedRows[i] > 0) {
+                updatedDrivers.add(positions.get(i).getDriverId());
+            }
+        }
+        Map<Long, DriverState> states = new HashMap<>();
+        driverRepository.findDriverStates(updatedDrivers).forEach(state -> states.put(state.getDriverId(), state));
+        for (LocationUpdateResult result : results) {
+            if (result != null) {
+                operationMetrics.failed(Operation.LOCATION_UPDATE, result.getStatus().name().toLowerCase());
+            }
+        }
+        for (int i = 0; i < positions.size(); i++) {
+            PositionUpdate position = positions.get(i);
+            DriverState state = states.get(position.getDriverId());
+            int index = written.get(i);
+            if (updatedRows[i] == 0 || state == null) {
+                results[index] = stale(locationUpdates.get(index));
+                operationMetrics.failed(Operation.LOCATION_UPDATE, results[index].getStatus().name().toLowerCase());
+                continue;
+            }
+            results[index] = new LocationUpdateResult(position.getDriverId(), LocationUpdateStatus.UPDATED, null);
+            eventPublisher.publishEvent(new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, position.getDriverId(),
+                    state.getOnlineStatus(), false, position.getCoordinate(), state.getCarId(), state.getCar(),
+                    position.getEpochMillis()));
+        }
+        return Arrays.asList(results);
     }
 
     @Override
     @Transactional
     public  DriverDO updateOnlineStatus(long driverId ,OnlineStatus onlineStatus){
-        DriverDO driverDO = findDriverChecked(driverId);
-        driverDO.setOnlineStatus(onlineStatus);
-        return driverDO;
+        return operationMetrics.recordFailures(Operation.STATUS_UPDATE, () -> {
+            DriverDO driverDO = findDriverChecked(driverId);
+            driverDO.setOnlineStatus(onlineStatus);
+            publish(DriverEvent.Type.ONLINE_STATUS_UPDATED, driverDO);
+            return driverDO;
+        });
+    }
+
+
+    /**
+     * Finds the ONLINE drivers closest to a location. Served from the in-memory geo index only.
+     *
+     * @param latitude  location latitude
+     * @param longitude location longitude
+     * @param limit     maximum number of drivers, between 1 and 100
+     * @return drivers ordered by ascending distance
+     * @throws ConstraintsViolationException when the limit is out of range
+     */
+    @Override
+    public List<NearbyDriver> findNearbyDrivers(double latitude, double longitude, int limit) {
+        if (limit < 1 || limit > MAX_NEARBY_DRIVERS) {
+            throw new ConstraintsViolationException(String.format("Limit has to be between 1 and %d but was %d.",
+                    MAX_NEARBY_DRIVERS, limit));
+        }
+        GeoCoordinate location = new GeoCoordinate(latitude, longitude);
+        return driverGeoIndex.nearest(location.getLatitude(), location.getLongitude(), limit);
+    }
+
+
+    /**
+     * Finds the available drivers closest to a pickup point whose selected car satisfies the requirements. Served from
+     * the in-memory matcher only.
+     *
+     * @param latitude     pickup latitude
+     * @param longitude    pickup longitude
+     * @param requirements car the rider asks for
+     * @param limit        maximum number of drivers, between 1 and 100
+     * @return ONLINE drivers with a matching car ordered by ascending distance
+     * @throws ConstraintsViolationException when the limit is out of range
+     */
+    @Override
+    public List<DriverMatch> matchDrivers(double latitude, double longitude, RideRequirements requirements, int limit) {
+        if (limit < 1 || limit > MAX_NEARBY_DRIVERS) {
+            throw new ConstraintsViolationException(String.format("Limit has to be between 1 and %d but was %d.",
+                    MAX_NEARBY_DRIVERS, limit));
+        }
+        GeoCoordinate pickup = new GeoCoordinate(latitude, longitude);
+        return driverMatcher.match(pickup.getLatitude(), pickup.getLongitude(), requirements, limit);
+    }
+
+
+    /**
+     * @return number of ONLINE drivers per grid cell, only cells with at least one driver
+     */
+    @Override
+    public List<HeatmapCell> getHeatmap() {
+        return heatmap.cells();
+    }
+
+
+    /**
+     * Reads the recorded locations of a driver from the location history, deleted drivers included.
+     *
+     * @param fromMillis start of the period, one hour before its end when null
+     * @param toMillis   end of the period, now when null
+     * @return locations recorded in the period, oldest first
+     * @throws ConstraintsViolationException when the period ends before it starts or the limit is out of range
+     */
+    @Override
+    public List<TrajectoryPoint> getTrajectory(long driverId, Long fromMillis, Long toMillis, int limit) {
+        if (limit < 1 || limit > MAX_TRAJECTORY_POINTS) {
+            throw new ConstraintsViolationException(String.format("Limit has to be between 1 and %d but was %d.",
+                    MAX_TRAJECTORY_POINTS, limit));
+        }
+        long to = toMillis != null ? toMillis : System.currentTimeMillis();
+        long from = fromMillis != null ? fromMillis : to - DEFAULT_TRAJECTORY_MILLIS;
+        if (from > to) {
+            throw new ConstraintsViolationException(String.format("The period from %d to %d ends before it starts.",
+                    from, to));
+        }
+        return locationHistory.getTrajectory(driverId, from, to, limit);
+    }
+
+
+    /**
+     * Subscribes to the committed location, status, car and deletion changes of the drivers matching the filter.
+     *
+     * @param filter   bounding box and/or driver ids to follow
+     * @param listener receives the changes on a sender thread, see {@link DriverUpdateStream}
+     * @return the subscription, to be cancelled once the subscriber is gone
+     */
+    @Override
+    public DriverUpdateSubscription subscribeToUpdates(DriverUpdateFilter filter, DriverUpdateListener listener) {
+        return updateStream.subscribe(filter, listener);
     }
 
 
     /**
      * Selects a car for a driver
+     * <p/>
+     * Concurrent selections of the same car are decided without locks: an in-memory claim turns away the drivers
+     * racing on this node and a conditional update of the car row the ones racing on other nodes.
      *
      * @param driverId id of the driver provided when creating a new driver
      * @param carId    id of the car provided when creating a new car
@@ -120,24 +424,30 @@ public class DefaultDriverService implements DriverService {
     @Override
     @Transactional
     public DriverDO selectCarByDriver(long driverId, long carId) {
-        DriverDO driverDO = findDriverChecked(driverId);
-        CarDO carDO = findCarChecked(carId);
+        return operationMetrics.recordFailures(Operation.CAR_SELECTION, () -> {
+            DriverDO driverDO = findDriverChecked(driverId);
+            CarDO carDO = findCarChecked(carId);
 
-        if (driverDO.getOnlineStatus().equals(OnlineStatus.OFFLINE)) {
-            throw new ConstraintsViolationException(String.format("Offline Driver with id {%d} cannot select a car."
-                    , driverId));
-        }
-        if (carDO.isCarSelectedByDriver()) {
-            throw new CarAlreadyInUseException(String.format("Selected Car with id {%d} is already use.", carId));
-        }
-        if (driverDO.getCarDO() != null) {
-            throw new ConstraintsViolationException(String.format("Driver with id {%d} already has a car.", driverId));
-        }
+            if (driverDO.getOnlineStatus().equals(OnlineStatus.OFFLINE)) {
+                throw new ConstraintsViolationException(String.format("Offline Driver with id {%d} cannot select a car."
+                        , driverId));
+            }
+            if (carDO.isCarSelectedByDriver()) {
+                throw new CarAlreadyInUseException(String.format("Selected Car with id {%d} is already use.", carId));
+            }
+            if (driverDO.getCarDO() != null) {
+                throw new ConstraintsViolationException(String.format("Driver with id {%d} already has a car.", driverId));
+            }
+            if (!carClaims.tryClaim(carId, driverId) || carRepository.claim(carId) == 0) {
+                throw new CarAlreadyInUseException(String.format("Selected Car with id {%d} is already use.", carId));
+            }
 
-        carDO.setCarSelectedByDriver(true);
-        driverDO.setCarDO(carDO);
-        LOGGER.info("car id {} is selected by driver id {}.", carDO.getId(), driverDO.getId());
-        return driverDO;
+            carDO.setCarSelectedByDriver(true);
+            driverDO.setCarDO(carDO);
+            publish(DriverEvent.Type.CAR_SELECTED, driverDO);
+            LOGGER.info("car id {} is selected by driver id {}.", carDO.getId(), driverDO.getId());
+            return driverDO;
+        });
     }
 
 
@@ -151,27 +461,119 @@ public class DefaultDriverService implements DriverService {
     @Override
     @Transactional
     public DriverDO deSelectCarByDriver(long driverId) {
-        DriverDO driverDO = findDriverChecked(driverId);
-        CarDO carDO = driverDO.getCarDO();
-        if (carDO == null) {
-            throw new ConstraintsViolationException(String.format("Driver with id {%d} does not have a car " +
-                    "to deselect.", driverId));
+        return operationMetrics.recordFailures(Operation.CAR_DESELECTION, () -> {
+            DriverDO driverDO = findDriverChecked(driverId);
+            CarDO carDO = driverDO.getCarDO();
+            if (carDO == null) {
+                throw new ConstraintsViolationException(String.format("Driver with id {%d} does not have a car " +
+                        "to deselect.", driverId));
+            }
+            carDO.setCarSelectedByDriver(false);
+            driverDO.setCarDO(null);
+            publish(DriverEvent.Type.CAR_DESELECTED, driverDO);
+            eventPublisher.publishEvent(new CarEvent(CarEvent.Type.RELEASED, carDO.getId()));
+            return driverDO;
+        });
+    }
+
+    /**
+     * Search drivers by criteria, one page at a time with the highest ids first.
+     * <p/>
+     * Pages are cut by id rather than by offset, so every page costs the same no matter how deep the client pages.
+     * Searches on online status and car attributes only are answered by the {@link DriverBitmapIndex}, the database
+     * just loads the drivers of the page.
+     *
+     * @param queryParams map of values containing the client search
+     * @param cursor      token of the page to continue with, null for the first page
+     * @param limit       page size, at most 500
+     * @return page of drivers
+     * @throws ParseValueException           if the search parameters or the cursor cannot be parsed
+     * @throws ConstraintsViolationException if the limit is out of range
+     */
+    @Override
+    public DriverPage searchDrivers(Map<String, String> queryParams, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_PAGE_SIZE) {
+            throw new ConstraintsViolationException(String.format("Limit must be between 1 and %d.",
+                    MAX_SEARCH_PAGE_SIZE));
         }
-        carDO.setCarSelectedByDriver(false);
-        driverDO.setCarDO(null);
-        return driverDO;
+        DriverSearchFilter filter = DriverSearchFilter.of(queryParams);
+        Long beforeId = cursor == null ? null : SearchCursor.decode(cursor);
+        if (bitmapIndex.covers(filter)) {
+            return searchBitmapIndex(filter, beforeId, limit);
+        }
+        List<DriverDO> drivers = driverRepository.findByFilter(filter, beforeId, limit + 1);
+        if (drivers.size() <= limit) {
+            operationMetrics.searchPage(drivers.size());
+            return new DriverPage(drivers, null);
+        }
+        List<DriverDO> page = drivers.subList(0, limit);
+        operationMetrics.searchPage(limit);
+        return new DriverPage(page, SearchCursor.encode(page.get(limit - 1).getId()));
     }
 
     /**
-     * Search drivers by criteria
+     * Passes all drivers matching the criteria to a consumer, the highest ids first, without loading them all at once.
+     * The search is parsed before the first driver is read, so invalid criteria fail before anything was consumed.
      *
      * @param queryParams map of values containing the client search
-     * @return list of drivers
-     * @throws ParseValueException if SearchCriteria cannot parse the provided values
+     * @param consumer    called once per driver, the driver is detached afterwards
+     * @return number of matching drivers
+     * @throws ParseValueException if the search parameters cannot be parsed
      */
     @Override
-    public List<DriverDO> searchDrivers(Map<String, String> queryParams) {
-        return driverRepository.findAll(SearchCriteria.getDriversBySpecification(queryParams));
+    @Transactional(readOnly = true)
+    public long streamDrivers(Map<String, String> queryParams, Consumer<DriverDO> consumer) {
+        long drivers = driverRepository.scrollByFilter(DriverSearchFilter.of(queryParams), consumer);
+        operationMetrics.searchStream(drivers);
+        return drivers;
+    }
+
+    /**
+     * Cuts the page by the ids found in the bitmap index, a driver deleted since then only shortens the page.
+     */
+    private DriverPage searchBitmapIndex(DriverSearchFilter filter, Long beforeId, int limit) {
+        List<Long> ids = bitmapIndex.search(filter, beforeId, limit + 1);
+        List<Long> pageIds = ids.size() <= limit ? ids : ids.subList(0, limit);
+        List<DriverDO> page = driverRepository.findByIds(pageIds);
+        operationMetrics.searchPage(page.size());
+        return new DriverPage(page, ids.size() <= limit ? null : SearchCursor.encode(pageIds.get(limit - 1)));
+    }
+
+    private static GeoCoordinate validate(LocationUpdate update, long receivedMillis) {
+        Preconditions.checkArgument(update.getDriverId() != null, "driverId can not be null!");
+        Preconditions.checkArgument(update.getLatitude() != null, "latitude can not be null!");
+        Preconditions.checkArgument(update.getLongitude() != null, "longitude can not be null!");
+        Preconditions.checkArgument(update.getEpochMillis() <= receivedMillis + MAX_CLOCK_SKEW_MILLIS,
+                "timestamp can not be more than %s ms ahead of the server clock!", MAX_CLOCK_SKEW_MILLIS);
+        return new GeoCoordinate(update.getLatitude(), update.getLongitude());
+    }
+
+    private static LocationUpdateResult stale(LocationUpdate update) {
+        return new LocationUpdateResult(update.getDriverId(), LocationUpdateStatus.STALE,
+                "A newer location is already known.");
+    }
+
+    private void publish(DriverEvent.Type type, DriverDO driverDO) {
+        eventPublisher.publishEvent(DriverEvent.of(type, driverDO));
+    }
+
+    private void detach(DriverDO driverDO) {
+        if (entityManager.contains(driverDO)) {
+            entityManager.detach(driverDO);
+        }
+    }
+
+    /**
+     * Loads a driver for the cache, with its buffered location if the write-behind buffer holds one.
+     */
+    private DriverDO loadDriver(Long driverId) {
+        DriverDO driverDO = findDriverChecked(driverId);
+        GeoCoordinate buffered = locationBuffer.get(driverId);
+        if (buffered != null) {
+            detach(driverDO);
+            driverDO.setCoordinate(buffered);
+        }
+        return driverDO;
     }
 
     private DriverDO findDriverChecked(Long driverId) {
@@ -1,10 +1,22 @@
 package com.freenow.service.driver;
 
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.LocationUpdate;
+import com.freenow.domainvalue.LocationUpdateResult;
 import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.geo.HeatmapCell;
+import com.freenow.geo.NearbyDriver;
+import com.freenow.history.TrajectoryPoint;
+import com.freenow.match.DriverMatch;
+import com.freenow.match.RideRequirements;
+import com.freenow.search.DriverPage;
+import com.freenow.stream.DriverUpdateFilter;
+import com.freenow.stream.DriverUpdateListener;
+import com.freenow.stream.DriverUpdateSubscription;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface DriverService {
 
@@ -16,12 +28,26 @@ public interface DriverService {
 
     DriverDO updateLocation(long driverId, double longitude, double latitude);
 
+    List<LocationUpdateResult> updateLocations(List<LocationUpdate> locationUpdates);
+
     DriverDO updateOnlineStatus(long driverId, OnlineStatus onlineStatus);
 
+    List<NearbyDriver> findNearbyDrivers(double latitude, double longitude, int limit);
+
+    List<DriverMatch> matchDrivers(double latitude, double longitude, RideRequirements requirements, int limit);
+
+    List<HeatmapCell> getHeatmap();
+
+    List<TrajectoryPoint> getTrajectory(long driverId, Long fromMillis, Long toMillis, int limit);
+
+    DriverUpdateSubscription subscribeToUpdates(DriverUpdateFilter filter, DriverUpdateListener listener);
+
     DriverDO selectCarByDriver(long driverId, long carId);
 
     DriverDO deSelectCarByDriver(long driverId);
 
-    List<DriverDO> searchDrivers(Map<String, String> queryParams);
+    DriverPage searchDrivers(Map<String, String> queryParams, String cursor, int limit);
+
+    long streamDrivers(Map<String, String> queryParams, Consumer<DriverDO> consumer);
 
 }
@@ -0,0 +1,242 @@
+package com.freenow.service.driver;
+
+import com.freenow.dataaccessobject.DriverLocationRepository.PositionUpdate;
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainvalue.GeoCoordinate;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in write-behind buffer for driver locations.
+ * <p/>
+ * Keeps only the newest location per driver in memory and writes the buffered locations with one JDBC batch every
+ * flush interval, or earlier once the flush size is reached. Memory is bounded by the maximum number of pending
+ * drivers; {@link #offer} refuses new drivers beyond it and the caller writes through instead. Pending locations stay
+ * visible through {@link #get} until they are committed, and are flushed on shutdown.
+ */
+@Component
+public class LocationWriteBehindBuffer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocationWriteBehindBuffer.class);
+    private static final String METRIC_PREFIX = "driver.location.write-behind";
+
+    private final DriverRepository driverRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long flushIntervalMillis;
+    private final int flushSize;
+    private final int maxPending;
+
+    private final ConcurrentMap<Long, PendingLocation> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private ScheduledExecutorService scheduler;
+
+
+    public LocationWriteBehindBuffer(DriverRepository driverRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${driver.location.write-behind.enabled:false}") boolean enabled,
+                                     @Value("${driver.location.write-behind.flush-interval-ms:1000}") long flushIntervalMillis,
+                                     @Value("${driver.location.write-behind.flush-size:1000}") int flushSize,
+                                     @Value("${driver.location.write-behind.max-pending:100000}") int maxPending) {
+        this.driverRepository = driverRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushSize = flushSize;
+        this.maxPending = maxPending;
+
+        FunctionCounter.builder(METRIC_PREFIX + ".updates", received, LongAdder::sum)
+                .tag("result", "received").register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".updates", coalesced, LongAdder::sum)
+                .tag("result", "coalesced").register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".updates", written, LongAdder::sum)
+                .tag("result", "written").register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".updates", rejected, LongAdder::sum)
+                .tag("result", "rejected").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".pending", pending, Map::size).register(meterRegistry);
+    }
+
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "location-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        LOGGER.info("Driver location write-behind enabled, flushing every {} ms or {} locations.",
+                flushIntervalMillis, flushSize);
+    }
+
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(flushIntervalMillis + 5000, TimeUnit.MILLISECONDS);
+        }
+        flush();
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * Buffers a location, replacing an older buffered location of the same driver. Inside a transaction the location
+     * is buffered once the transaction committed, so a rolled back location is never flushed; the capacity is checked
+     * up front, transactions committing at the same time may take the buffer slightly past the maximum.
+     *
+     * @return false when the buffer is full and the location has to be written directly
+     */
+    public boolean offer(long driverId, GeoCoordinate coordinate, long epochMillis) {
+        if (pending.size() >= maxPending && !pending.containsKey(driverId)) {
+            rejected.increment();
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    put(driverId, coordinate, epochMillis);
+                }
+            });
+        } else {
+            put(driverId, coordinate, epochMillis);
+        }
+        return true;
+    }
+
+
+    private void put(long driverId, GeoCoordinate coordinate, long epochMillis) {
+        received.increment();
+        PendingLocation location = new PendingLocation(coordinate, epochMillis);
+        boolean[] replaced = {false};
+        pending.compute(driverId, (id, previous) -> {
+            if (previous == null) {
+                return location;
+            }
+            replaced[0] = true;
+            return previous.epochMillis > epochMillis ? previous : location;
+        });
+        if (replaced[0]) {
+            coalesced.increment();
+        }
+        if (pending.size() >= flushSize && scheduler != null && !flushing.get()) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+
+    /**
+     * @return the buffered, not yet committed location of a driver or null
+     */
+    public GeoCoordinate get(long driverId) {
+        PendingLocation location = pending.get(driverId);
+        return location == null ? null : location.coordinate;
+    }
+
+
+    public int size() {
+        return pending.size();
+    }
+
+
+    /**
+     * Writes all buffered locations in one batch. Locations are only removed from the buffer after the batch
+     * committed, so readers never fall back to an older database value in between.
+     *
+     * @return number of written locations
+     */
+    public int flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            List<Map.Entry<Long, PendingLocation>> snapshot = new ArrayList<>(pending.entrySet());
+            if (snapshot.isEmpty()) {
+                return 0;
+            }
+            List<PositionUpdate> positions = new ArrayList<>(snapshot.size());
+            for (Map.Entry<Long, PendingLocation> entry : snapshot) {
+                PendingLocation location = entry.getValue();
+                positions.add(new PositionUpdate(entry.getKey(), location.coordinate, location.epochMillis));
+            }
+            transactionTemplate.execute(status -> driverRepository.updateLocations(positions));
+            for (Map.Entry<Long, PendingLocation> entry : snapshot) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+            written.add(positions.size());
+            return positions.size();
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not flush {} buffered driver locations, retrying with the next flush.", pending.size(), e);
+        }
+    }
+
+
+    private static final class PendingLocation {
+        private final GeoCoordinate coordinate;
+        private final long epochMillis;
+
+        private PendingLocation(GeoCoordinate coordinate, long epochMillis) {
+            this.coordinate = coordinate;
+            this.epochMillis = epochMillis;
+        }
+    }
+}
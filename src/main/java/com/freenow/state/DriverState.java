@@ -0,0 +1,82 @@
+package com.freenow.state;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.OnlineStatus;
+
+/**
+ * Hot state of one driver as kept by {@link DriverStateStore}.
+ */
+public class DriverState {
+
+    private final long driverId;
+    private final double latitude;
+    private final double longitude;
+    private final OnlineStatus onlineStatus;
+    private final Long carId;
+    private final CarProfile car;
+    private final long updatedEpochMillis;
+
+
+    /**
+     * @param latitude  NaN when the position is unknown
+     * @param longitude NaN when the position is unknown
+     * @param carId     null without a car
+     * @param car       attributes of the car, null without a car
+     */
+    public DriverState(long driverId, double latitude, double longitude, OnlineStatus onlineStatus, Long carId,
+                       CarProfile car, long updatedEpochMillis) {
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.onlineStatus = onlineStatus;
+        this.carId = carId;
+        this.car = car;
+        this.updatedEpochMillis = updatedEpochMillis;
+    }
+
+
+    public long getDriverId() {
+        return driverId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public boolean isLocated() {
+        return !Double.isNaN(latitude);
+    }
+
+    public OnlineStatus getOnlineStatus() {
+        return onlineStatus;
+    }
+
+    public Long getCarId() {
+        return carId;
+    }
+
+    public CarProfile getCar() {
+        return car;
+    }
+
+    public long getUpdatedEpochMillis() {
+        return updatedEpochMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "DriverState{" +
+                "driverId=" + driverId +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", onlineStatus=" + onlineStatus +
+                ", carId=" + carId +
+                ", car=" + car +
+                ", updatedEpochMillis=" + updatedEpochMillis +
+                '}';
+    }
+}
@@ -0,0 +1,308 @@
+package com.freenow.state;
+
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import com.freenow.journal.DriverJournal;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Position, online status, car and time of the last change of every non-deleted driver in primitive arrays.
+ * <p/>
+ * A loaded {@link com.freenow.domainobject.DriverDO} takes several hundred bytes with its dates, boxed flag,
+ * coordinate and car. Here the driver id is the index into parallel arrays of doubles, longs, ints and bytes, the car
+ * attributes packed into one int, which takes {@value #BYTES_PER_DRIVER} bytes per driver. The arrays are allocated in chunks of {@value #CHUNK_SIZE} drivers as
+ * the ids grow; ids come from a sequence, so the chunks are densely used.
+ * <p/>
+ * The store is loaded from the driver journal or the driver table once the context is up and follows the committed
+ * {@link DriverEvent}s published by the driver service afterwards. The batch location update of the driver service
+ * looks up the drivers' online status and car here instead of in the table. Every chunk has its own lock: writers of different
+ * chunks never wait for each other and readers never block, they retry when a write to the chunk interleaved.
+ */
+@Component
+public class DriverStateStore {
+
+    static final int CHUNK_SIZE = 1 << 12;
+    static final int BYTES_PER_DRIVER = 8 + 8 + 8 + 4 + 8 + 1;
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final long MAX_DRIVER_ID = (long) Integer.MAX_VALUE * CHUNK_SIZE;
+    private static final byte ABSENT = 0;
+    private static final long NO_CAR = 0;
+    private static final OnlineStatus[] STATUSES = OnlineStatus.values();
+    private static final EngineType[] ENGINE_TYPES = EngineType.values();
+    private static final Rating[] RATINGS = Rating.values();
+    private static final Manufacturer[] MANUFACTURERS = Manufacturer.values();
+    private static final int CONVERTIBLE = 1 << 16;
+    private static final int ENGINE_TYPE_SHIFT = 17;
+    private static final int RATING_SHIFT = 21;
+    private static final int MANUFACTURER_SHIFT = 25;
+    private static final int ENUM_MASK = 0xF;
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverStateStore.class);
+
+    private final DriverRepository driverRepository;
+    private final DriverJournal driverJournal;
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int allocatedChunks;
+
+
+    public DriverStateStore(DriverRepository driverRepository, DriverJournal driverJournal,
+                            MeterRegistry meterRegistry) {
+        this.driverRepository = driverRepository;
+        this.driverJournal = driverJournal;
+        Gauge.builder("driver.state.drivers", size, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("driver.state.bytes", this, DriverStateStore::getFootprintBytes).register(meterRegistry);
+    }
+
+
+    /**
+     * Reads all drivers from the table in one pass, without loading entities, or takes them from the
+     * {@link DriverJournal} when it recovered them.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void load() {
+        long started = System.nanoTime();
+        if (driverJournal.isRecovered()) {
+            driverJournal.forEachDriver(driver -> put(driver.toDriverState()));
+        } else {
+            driverRepository.scanDriverStates(this::put);
+        }
+        LOGGER.info("Loaded the state of {} drivers in {} ms, {} bytes.", size.get(),
+                (System.nanoTime() - started) / 1_000_000, getFootprintBytes());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        long changed = event.getEpochMillis();
+        GeoCoordinate coordinate = event.getCoordinate();
+        double latitude = coordinate == null ? Double.NaN : coordinate.getLatitude();
+        double longitude = coordinate == null ? Double.NaN : coordinate.getLongitude();
+        switch (event.getType()) {
+            case SNAPSHOT:
+                // the table was read by load()
+                break;
+            case DELETED:
+                remove(event.getDriverId());
+                break;
+            default:
+                write(event.getDriverId(), latitude, longitude, event.getOnlineStatus(), carId(event.getCarId()),
+                        pack(event.getCar()), changed);
+                break;
+        }
+    }
+
+
+    /**
+     * Rating changes are rare, the driver holding the car is found by scanning the car ids instead of keeping a map
+     * from car to driver.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarEvent(CarEvent event) {
+        if (event.getType() != CarEvent.Type.RATING_UPDATED) {
+            return;
+        }
+        for (Chunk chunk : chunks) {
+            if (chunk != null) {
+                chunk.updateRating(event.getCarId(), event.getRating());
+            }
+        }
+    }
+
+
+    public void put(DriverState state) {
+        write(state.getDriverId(), state.getLatitude(), state.getLongitude(), state.getOnlineStatus(),
+                carId(state.getCarId()), pack(state.getCar()), state.getUpdatedEpochMillis());
+    }
+
+
+    public void remove(long driverId) {
+        Chunk chunk = chunk(driverId, false);
+        if (chunk == null) {
+            return;
+        }
+        int slot = (int) (driverId & CHUNK_MASK);
+        long stamp = chunk.lock.writeLock();
+        try {
+            if (chunk.statuses[slot] != ABSENT) {
+                chunk.statuses[slot] = ABSENT;
+                size.decrementAndGet();
+            }
+        } finally {
+            chunk.lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * @return the driver's state, null for unknown and deleted drivers
+     */
+    public DriverState get(long driverId) {
+        Chunk chunk = chunk(driverId, false);
+        if (chunk == null) {
+            return null;
+        }
+        int slot = (int) (driverId & CHUNK_MASK);
+        long stamp = chunk.lock.tryOptimisticRead();
+        DriverState state = chunk.read(driverId, slot);
+        if (!chunk.lock.validate(stamp)) {
+            stamp = chunk.lock.readLock();
+            try {
+                state = chunk.read(driverId, slot);
+            } finally {
+                chunk.lock.unlockRead(stamp);
+            }
+        }
+        return state;
+    }
+
+
+    /**
+     * @return number of stored drivers
+     */
+    public int size() {
+        return size.get();
+    }
+
+
+    /**
+     * @return bytes taken by the driver arrays, without the few bytes of object headers per chunk
+     */
+    public long getFootprintBytes() {
+        return (long) allocatedChunks * CHUNK_SIZE * BYTES_PER_DRIVER;
+    }
+
+
+    private void write(long driverId, double latitude, double longitude, OnlineStatus onlineStatus, long carId,
+                       int car, long epochMillis) {
+        Chunk chunk = chunk(driverId, true);
+        if (chunk == null) {
+            return;
+        }
+        int slot = (int) (driverId & CHUNK_MASK);
+        long stamp = chunk.lock.writeLock();
+        try {
+            if (chunk.statuses[slot] == ABSENT) {
+                size.incrementAndGet();
+            }
+            chunk.latitudes[slot] = latitude;
+            chunk.longitudes[slot] = longitude;
+            chunk.statuses[slot] = (byte) (onlineStatus.ordinal() + 1);
+            chunk.carIds[slot] = carId;
+            chunk.cars[slot] = car;
+            chunk.updatedMillis[slot] = epochMillis;
+        } finally {
+            chunk.lock.unlockWrite(stamp);
+        }
+    }
+
+
+    private Chunk chunk(long driverId, boolean create) {
+        if (driverId < 0 || driverId >= MAX_DRIVER_ID) {
+            return null;
+        }
+        int index = (int) (driverId >>> CHUNK_SHIFT);
+        Chunk[] current = chunks;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        return create ? createChunk(index) : null;
+    }
+
+
+    private synchronized Chunk createChunk(int index) {
+        Chunk[] current = chunks;
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(index + 1, current.length + (current.length >> 1)));
+        } else if (current[index] != null) {
+            return current[index];
+        } else {
+            current = current.clone();
+        }
+        Chunk chunk = new Chunk();
+        current[index] = chunk;
+        chunks = current;
+        allocatedChunks++;
+        return chunk;
+    }
+
+
+    private static long carId(Long carId) {
+        return carId == null ? NO_CAR : carId;
+    }
+
+
+    /**
+     * @return seat count in the low 16 bits, then the convertible flag and the ordinals of engine type, rating and
+     * manufacturer
+     */
+    private static int pack(CarProfile car) {
+        if (car == null) {
+            return 0;
+        }
+        return (car.getSeatCount() & 0xFFFF) | (car.isConvertible() ? CONVERTIBLE : 0)
+                | car.getEngineType().ordinal() << ENGINE_TYPE_SHIFT
+                | car.getRating().ordinal() << RATING_SHIFT
+                | car.getManufacturer().ordinal() << MANUFACTURER_SHIFT;
+    }
+
+
+    private static CarProfile unpack(int car) {
+        return new CarProfile(ENGINE_TYPES[car >>> ENGINE_TYPE_SHIFT & ENUM_MASK], (short) car,
+                (car & CONVERTIBLE) != 0, RATINGS[car >>> RATING_SHIFT & ENUM_MASK],
+                MANUFACTURERS[car >>> MANUFACTURER_SHIFT & ENUM_MASK]);
+    }
+
+
+    private static final class Chunk {
+        private final StampedLock lock = new StampedLock();
+        private final double[] latitudes = new double[CHUNK_SIZE];
+        private final double[] longitudes = new double[CHUNK_SIZE];
+        private final long[] carIds = new long[CHUNK_SIZE];
+        private final int[] cars = new int[CHUNK_SIZE];
+        private final long[] updatedMillis = new long[CHUNK_SIZE];
+        private final byte[] statuses = new byte[CHUNK_SIZE];
+
+        private DriverState read(long driverId, int slot) {
+            byte status = statuses[slot];
+            if (status == ABSENT) {
+                return null;
+            }
+            long carId = carIds[slot];
+            boolean withCar = carId != NO_CAR;
+            return new DriverState(driverId, latitudes[slot], longitudes[slot], STATUSES[status - 1],
+                    withCar ? carId : null, withCar ? unpack(cars[slot]) : null, updatedMillis[slot]);
+        }
+
+        private void updateRating(long carId, Rating rating) {
+            long stamp = lock.writeLock();
+            try {
+                for (int slot = 0; slot < CHUNK_SIZE; slot++) {
+                    if (carIds[slot] == carId && statuses[slot] != ABSENT) {
+                        cars[slot] = cars[slot] & ~(ENUM_MASK << RATING_SHIFT) | rating.ordinal() << RATING_SHIFT;
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.freenow.stream;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.event.DriverEvent;
+import com.freenow.exception.ParseValueException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Drivers a subscriber of {@link DriverUpdateStream} is interested in: the drivers inside a bounding box, a set of
+ * driver ids, or both.
+ */
+public class DriverUpdateFilter {
+
+    private static final int MAX_DRIVER_IDS = 1000;
+
+    private final boolean boxed;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxLatitude;
+    private final double maxLongitude;
+    private final Set<Long> driverIds;
+
+
+    private DriverUpdateFilter(boolean boxed, double minLatitude, double minLongitude, double maxLatitude,
+                               double maxLongitude, Set<Long> driverIds) {
+        this.boxed = boxed;
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+        this.driverIds = driverIds;
+    }
+
+
+    /**
+     * @param minLatitude  southern edge of the box, all four edges or none have to be given
+     * @param minLongitude western edge of the box, may be greater than the eastern edge for a box across the
+     *                     antimeridian
+     * @param driverIds    ids of drivers to follow wherever they are, may be null
+     * @throws ParseValueException when neither a complete box nor driver ids are given or a value is out of range
+     */
+    public static DriverUpdateFilter of(Double minLatitude, Double minLongitude, Double maxLatitude,
+                                        Double maxLongitude, Collection<Long> driverIds) {
+        int edges = (minLatitude == null ? 0 : 1) + (minLongitude == null ? 0 : 1)
+                + (maxLatitude == null ? 0 : 1) + (maxLongitude == null ? 0 : 1);
+        if (edges != 0 && edges != 4) {
+            throw new ParseValueException("A bounding box needs minLatitude, minLongitude, maxLatitude and maxLongitude.");
+        }
+        Set<Long> ids = driverIds == null ? Collections.emptySet() : new HashSet<>(driverIds);
+        if (edges == 0 && ids.isEmpty()) {
+            throw new ParseValueException("Subscribe to a bounding box, to driver ids or to both.");
+        }
+        if (ids.size() > MAX_DRIVER_IDS) {
+            throw new ParseValueException("At most " + MAX_DRIVER_IDS + " driver ids can be followed but got "
+                    + ids.size() + ".");
+        }
+        if (edges == 0) {
+            return new DriverUpdateFilter(false, 0, 0, 0, 0, Collections.unmodifiableSet(ids));
+        }
+        try {
+            // validates the ranges like every other coordinate of the API
+            new GeoCoordinate(minLatitude, minLongitude);
+            new GeoCoordinate(maxLatitude, maxLongitude);
+        } catch (IllegalArgumentException e) {
+            throw new ParseValueException(e.getMessage());
+        }
+        if (minLatitude > maxLatitude) {
+            throw new ParseValueException("minLatitude must not be greater than maxLatitude.");
+        }
+        return new DriverUpdateFilter(true, minLatitude, minLongitude, maxLatitude, maxLongitude,
+                Collections.unmodifiableSet(ids));
+    }
+
+
+    public boolean isBoxed() {
+        return boxed;
+    }
+
+
+    public boolean isFollowed(long driverId) {
+        return driverIds.contains(driverId);
+    }
+
+
+    /**
+     * @return true when the event has a position inside the bounding box
+     */
+    public boolean isInside(DriverEvent event) {
+        GeoCoordinate coordinate = event.getCoordinate();
+        if (!boxed || coordinate == null) {
+            return false;
+        }
+        double latitude = coordinate.getLatitude();
+        double longitude = coordinate.getLongitude();
+        if (latitude < minLatitude || latitude > maxLatitude) {
+            return false;
+        }
+        return minLongitude <= maxLongitude
+                ? longitude >= minLongitude && longitude <= maxLongitude
+                : longitude >= minLongitude || longitude <= maxLongitude;
+    }
+}
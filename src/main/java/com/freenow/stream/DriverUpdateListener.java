@@ -0,0 +1,25 @@
+package com.freenow.stream;
+
+import com.freenow.event.DriverEvent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the driver changes of one {@link DriverUpdateSubscription}. Calls are made one at a time on a sender thread
+ * of {@link DriverUpdateStream}, never on the thread that changed the driver.
+ */
+public interface DriverUpdateListener {
+
+    /**
+     * @param updates newest state of every matching driver changed since the last call, empty for a heartbeat
+     * @throws IOException when the subscriber cannot be reached, the subscription is closed then
+     */
+    void onUpdates(List<DriverEvent> updates) throws IOException;
+
+    /**
+     * Called once when the subscription ends for another reason than {@link DriverUpdateSubscription#cancel()}. May be
+     * called while a send of a stalled subscriber still blocks, so it must not send anything itself.
+     */
+    void onClose(DriverUpdateSubscription.CloseReason reason);
+}
@@ -0,0 +1,245 @@
+package com.freenow.stream;
+
+import com.freenow.event.DriverEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes committed driver location and status changes to subscribers.
+ * <p/>
+ * The thread that changed a driver only puts the change into the buffer of each matching
+ * {@link DriverUpdateSubscription}. Every flush interval a scheduler hands the subscriptions with buffered changes to
+ * a small pool of sender threads, idle subscriptions get a heartbeat so broken connections are noticed. A subscriber
+ * that cannot keep up is downsampled to the newest change per driver and closed once its buffer overflows, writers
+ * never wait for it. A subscriber whose send blocks longer than the send timeout is closed by the flush thread.
+ * <p/>
+ * The blocked write of a stalled subscriber only returns once the container gives up on the connection, so its
+ * thread is handed over: the sender pool grows by one thread while the stalled send still runs and shrinks back once
+ * it returns. Slow clients thus never hold the sender threads the other subscribers are served with.
+ * <p/>
+ * Listeners of overflowed and stalled subscriptions are told on separate closer threads, as many as needed: a
+ * listener may block on the send still in progress.
+ */
+@Component
+public class DriverUpdateStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverUpdateStream.class);
+    private static final String METRIC_PREFIX = "driver.updates";
+
+    private final int maxPending;
+    private final long flushIntervalMillis;
+    private final long heartbeatIntervalNanos;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+
+    private final Set<DriverUpdateSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder stalled = new LongAdder();
+    private ScheduledExecutorService scheduler;
+    private ThreadPoolExecutor senders;
+    private ExecutorService closers;
+
+
+    public DriverUpdateStream(MeterRegistry meterRegistry,
+                              @Value("${driver.updates.max-pending:1000}") int maxPending,
+                              @Value("${driver.updates.flush-interval-ms:250}") long flushIntervalMillis,
+                              @Value("${driver.updates.heartbeat-interval-ms:15000}") long heartbeatIntervalMillis,
+                              @Value("${driver.updates.send-timeout-ms:10000}") long sendTimeoutMillis,
+                              @Value("${driver.updates.sender-threads:4}") int senderThreads) {
+        this.maxPending = maxPending;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.heartbeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatIntervalMillis);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.senderThreads = senderThreads;
+
+        FunctionCounter.builder(METRIC_PREFIX + ".changes", queued, LongAdder::sum)
+                .tag("result", "queued").register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".changes", coalesced, LongAdder::sum)
+                .tag("result", "coalesced").register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".changes", sent, LongAdder::sum)
+                .tag("result", "sent").register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".overflowed", overflowed, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".stalled", stalled, LongAdder::sum).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".subscribers", subscriptions, Set::size).register(meterRegistry);
+    }
+
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger senderCount = new AtomicInteger();
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "driver-updates-sender-" + senderCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        AtomicInteger closerCount = new AtomicInteger();
+        closers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "driver-updates-closer-" + closerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "driver-updates-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            senders.shutdownNow();
+            closers.shutdownNow();
+        }
+        subscriptions.forEach(subscription -> subscription.close(DriverUpdateSubscription.CloseReason.SHUTDOWN));
+        subscriptions.clear();
+    }
+
+
+    public DriverUpdateSubscription subscribe(DriverUpdateFilter filter, DriverUpdateListener listener) {
+        DriverUpdateSubscription subscription = new DriverUpdateSubscription(filter, listener, maxPending);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverEvent(DriverEvent event) {
+        if (event.getType() == DriverEvent.Type.SNAPSHOT) {
+            return;
+        }
+        for (DriverUpdateSubscription subscription : subscriptions) {
+            switch (subscription.offer(event)) {
+                case QUEUED:
+                    queued.increment();
+                    break;
+                case COALESCED:
+                    coalesced.increment();
+                    break;
+                case OVERFLOW:
+                    overflowed.increment();
+                    close(subscription, DriverUpdateSubscription.CloseReason.OVERFLOW);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+
+    /**
+     * Sends the buffered changes of all subscriptions, and heartbeats to the ones idle for the heartbeat interval,
+     * on the sender threads. Subscriptions stuck in a send for the send timeout are closed and their sender thread
+     * is replaced.
+     */
+    void flush() {
+        long now = System.nanoTime();
+        for (DriverUpdateSubscription subscription : subscriptions) {
+            if (subscription.isClosed()) {
+                subscriptions.remove(subscription);
+            } else if (subscription.detachStalledSend(now, sendTimeoutNanos)) {
+                stalled.increment();
+                resizeSenders(1);
+                close(subscription, DriverUpdateSubscription.CloseReason.STALLED);
+            } else if ((subscription.hasPending() || now - subscription.getLastSentNanos() >= heartbeatIntervalNanos)
+                    && subscription.schedule()) {
+                execute(subscription);
+            }
+        }
+    }
+
+
+    private void execute(DriverUpdateSubscription subscription) {
+        try {
+            senders.execute(() -> {
+                try {
+                    sent.add(subscription.send());
+                } finally {
+                    if (subscription.isSendDetached()) {
+                        resizeSenders(-1);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Driver update senders are shut down, dropping a send.");
+        }
+    }
+
+
+    /**
+     * Grows the sender pool by one thread for every send detached by a stall and shrinks it back once that send
+     * returned, the maximum is always raised first and lowered last.
+     */
+    private synchronized void resizeSenders(int delta) {
+        int size = senders.getCorePoolSize() + delta;
+        if (delta > 0) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+
+    /**
+     * @return number of sender threads, including the ones still blocked in a stalled send
+     */
+    int getSenderThreads() {
+        return senders.getCorePoolSize();
+    }
+
+
+    private void close(DriverUpdateSubscription subscription, DriverUpdateSubscription.CloseReason reason) {
+        subscriptions.remove(subscription);
+        if (subscription.end()) {
+            try {
+                closers.execute(() -> subscription.notifyClosed(reason));
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Driver update closers are shut down, not telling a {} subscriber.", reason);
+            }
+        }
+    }
+
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not flush driver updates to {} subscribers.", subscriptions.size(), e);
+        }
+    }
+}
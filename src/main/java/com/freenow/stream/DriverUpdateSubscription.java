@@ -0,0 +1,205 @@
+package com.freenow.stream;
+
+import com.freenow.event.DriverEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One subscriber of {@link DriverUpdateStream}.
+ * <p/>
+ * Changes are buffered per driver, a newer change of a driver replaces the buffered one, so a subscriber that reads
+ * slower than drivers move gets fewer, newer positions instead of a growing backlog. The buffer holds at most
+ * {@code capacity} drivers; a subscriber that falls further behind is closed with {@link CloseReason#OVERFLOW}.
+ * Offering never waits for the subscriber.
+ */
+public class DriverUpdateSubscription {
+
+    public enum CloseReason {
+        OVERFLOW, STALLED, FAILED, SHUTDOWN
+    }
+
+    enum Offer {
+        IGNORED, QUEUED, COALESCED, OVERFLOW
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverUpdateSubscription.class);
+    private static final int SEND_IDLE = 0;
+    private static final int SEND_RUNNING = 1;
+    private static final int SEND_DETACHED = 2;
+
+    private final DriverUpdateFilter filter;
+    private final DriverUpdateListener listener;
+    private final int capacity;
+    private final ConcurrentMap<Long, DriverEvent> pending = new ConcurrentHashMap<>();
+    // drivers last reported inside the box, they get one more update when they leave it
+    private final Set<Long> inside = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long lastSentNanos = System.nanoTime();
+    private final AtomicInteger sendState = new AtomicInteger(SEND_IDLE);
+    private volatile long sendStartedNanos;
+
+
+    DriverUpdateSubscription(DriverUpdateFilter filter, DriverUpdateListener listener, int capacity) {
+        this.filter = filter;
+        this.listener = listener;
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Ends the subscription without notifying the listener, e.g. after the subscriber disconnected.
+     */
+    public void cancel() {
+        closed.set(true);
+        pending.clear();
+    }
+
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+
+    Offer offer(DriverEvent event) {
+        if (closed.get()) {
+            return Offer.IGNORED;
+        }
+        long driverId = event.getDriverId();
+        boolean relevant = filter.isFollowed(driverId);
+        if (filter.isBoxed()) {
+            if (filter.isInside(event)) {
+                inside.add(driverId);
+                relevant = true;
+            } else if (inside.remove(driverId)) {
+                relevant = true;
+            }
+        }
+        if (!relevant) {
+            return Offer.IGNORED;
+        }
+        if (pending.size() >= capacity && !pending.containsKey(driverId)) {
+            return Offer.OVERFLOW;
+        }
+        return pending.put(driverId, event) == null ? Offer.QUEUED : Offer.COALESCED;
+    }
+
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+
+    long getLastSentNanos() {
+        return lastSentNanos;
+    }
+
+
+    /**
+     * Marks the current send as detached from its sender thread once the listener has been writing it for at least
+     * {@code timeoutNanos}. Only one call per send succeeds, and none after the send returned.
+     *
+     * @return true when this call detached the send
+     */
+    boolean detachStalledSend(long nowNanos, long timeoutNanos) {
+        return sendState.get() == SEND_RUNNING && nowNanos - sendStartedNanos >= timeoutNanos
+                && sendState.compareAndSet(SEND_RUNNING, SEND_DETACHED);
+    }
+
+
+    /**
+     * @return true when a send was detached by {@link #detachStalledSend}, it stays so after the send returned
+     */
+    boolean isSendDetached() {
+        return sendState.get() == SEND_DETACHED;
+    }
+
+
+    /**
+     * Claims the next {@link #send()}, so at most one send per subscriber is waiting for or running on a sender.
+     *
+     * @return false when a send is already scheduled
+     */
+    boolean schedule() {
+        return scheduled.compareAndSet(false, true);
+    }
+
+
+    /**
+     * Hands the buffered changes, or a heartbeat when there are none, to the listener. Only to be called after a
+     * successful {@link #schedule()}.
+     *
+     * @return number of sent changes
+     */
+    int send() {
+        if (closed.get()) {
+            scheduled.set(false);
+            return 0;
+        }
+        try {
+            List<Map.Entry<Long, DriverEvent>> snapshot = new ArrayList<>(pending.entrySet());
+            List<DriverEvent> updates = new ArrayList<>(snapshot.size());
+            for (Map.Entry<Long, DriverEvent> entry : snapshot) {
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    updates.add(entry.getValue());
+                }
+            }
+            sendStartedNanos = System.nanoTime();
+            sendState.set(SEND_RUNNING);
+            listener.onUpdates(updates);
+            lastSentNanos = System.nanoTime();
+            return updates.size();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not send driver updates, closing the subscription.", e);
+            close(CloseReason.FAILED);
+            return 0;
+        } finally {
+            sendState.compareAndSet(SEND_RUNNING, SEND_IDLE);
+            scheduled.set(false);
+        }
+    }
+
+
+    /**
+     * Ends the subscription and tells the listener why, only the first call has an effect.
+     */
+    void close(CloseReason reason) {
+        if (end()) {
+            notifyClosed(reason);
+        }
+    }
+
+
+    /**
+     * Ends the subscription without telling the listener yet, so the caller can leave {@link #notifyClosed} to
+     * another thread.
+     *
+     * @return false when the subscription was already closed
+     */
+    boolean end() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        pending.clear();
+        return true;
+    }
+
+
+    void notifyClosed(CloseReason reason) {
+        try {
+            listener.onClose(reason);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Listener failed on closing its driver update subscription.", e);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.freenow.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous access log.
+ * <p/>
+ * Request threads copy the request data into pre-allocated entries of a ring buffer; a single background thread
+ * formats them as key=value lines and hands them to the {@code access} logger. Request threads never wait for log
+ * output: when the ring is full the entry is dropped, with {@link OverflowPolicy#WAIT} only after waiting up to the
+ * configured time for the writer to make room. Dropped entries are counted and reported with the next written line.
+ * The writer parks while the ring is empty and is unparked by the request thread publishing the next entry.
+ */
+@Component
+public class AccessLog {
+
+    public enum OverflowPolicy {
+        DROP, WAIT
+    }
+
+    private static final Logger ACCESS_LOGGER = LoggerFactory.getLogger("access");
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessLog.class);
+    private static final String METRIC = "access.log.entries";
+    private static final int MAX_DRAIN = 256;
+    private static final long OVERFLOW_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Entry[] ring;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+    private final long overflowWaitNanos;
+    private final Consumer<CharSequence> sink;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private long reportedDropped;
+    private final StringBuilder line = new StringBuilder(256);
+    private volatile boolean running;
+    private volatile boolean writerParked;
+    private Thread writer;
+
+
+    @Autowired
+    public AccessLog(MeterRegistry meterRegistry,
+                     @Value("${access-log.capacity:8192}") int capacity,
+                     @Value("${access-log.overflow-policy:drop}") String overflowPolicy,
+                     @Value("${access-log.overflow-wait-ms:5}") long overflowWaitMillis) {
+        this(capacity, OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase()), overflowWaitMillis,
+                line -> ACCESS_LOGGER.info(line.toString()));
+        FunctionCounter.builder(METRIC, written, LongAdder::sum).tag("result", "written").register(meterRegistry);
+        FunctionCounter.builder(METRIC, dropped, LongAdder::sum).tag("result", "dropped").register(meterRegistry);
+    }
+
+
+    /**
+     * @param capacity number of entries in the ring, rounded up to a power of two
+     * @param sink     receives the formatted lines on the writer thread, the character sequence is reused afterwards
+     */
+    public AccessLog(int capacity, OverflowPolicy overflowPolicy, long overflowWaitMillis, Consumer<CharSequence> sink) {
+        if (capacity < 1 || capacity > 1 << 20) {
+            throw new IllegalArgumentException("Access log capacity must be between 1 and 1048576 but was " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.ring = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Entry(i - size);
+        }
+        this.mask = size - 1;
+        this.overflowPolicy = overflowPolicy;
+        this.overflowWaitNanos = TimeUnit.MILLISECONDS.toNanos(overflowWaitMillis);
+        this.sink = sink;
+    }
+
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        drain(Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Records a finished request. Never blocks on log output.
+     *
+     * @param startMillis   wall clock time the request started at
+     * @param durationNanos time spent handling the request
+     * @param error         exception the request failed with or null
+     * @return false when the entry was dropped because the ring is full
+     */
+    public boolean record(String method, String uri, int status, String remoteAddress, long startMillis,
+                          long durationNanos, Throwable error) {
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return false;
+        }
+        Entry entry = ring[(int) sequence & mask];
+        entry.method = method;
+        entry.uri = uri;
+        entry.status = status;
+        entry.remoteAddress = remoteAddress;
+        entry.startMillis = startMillis;
+        entry.durationNanos = durationNanos;
+        entry.error = error == null ? null : error.getClass().getName();
+        entry.published = sequence;
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+
+    /**
+     * Writes the published entries on the calling thread, only to be used by the writer thread or once it stopped.
+     *
+     * @return number of written lines
+     */
+    int drain(int maxEntries) {
+        int count = 0;
+        long next = consumed;
+        while (count < maxEntries) {
+            Entry entry = ring[(int) next & mask];
+            if (entry.published != next) {
+                break;
+            }
+            try {
+                write(entry);
+            } catch (RuntimeException e) {
+                LOGGER.error("Could not write access log entry.", e);
+            }
+            entry.clear();
+            next++;
+            count++;
+            consumed = next;
+        }
+        written.add(count);
+        return count;
+    }
+
+
+    private long claim() {
+        long deadline = 0;
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed < ring.length) {
+                if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    return sequence;
+                }
+                continue;
+            }
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                return -1;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + overflowWaitNanos;
+            } else if (now - deadline >= 0) {
+                return -1;
+            }
+            LockSupport.parkNanos(this, Math.min(OVERFLOW_PARK_NANOS, deadline - now));
+        }
+    }
+
+
+    private void drainLoop() {
+        while (running) {
+            if (drain(MAX_DRAIN) == 0) {
+                // announce the park before checking the ring again, a producer publishing in between sees the
+                // flag and unparks
+                writerParked = true;
+                if (running && !published()) {
+                    LockSupport.park(this);
+                }
+                writerParked = false;
+            }
+        }
+    }
+
+
+    private boolean published() {
+        long next = consumed;
+        return ring[(int) next & mask].published == next;
+    }
+
+
+    private void write(Entry entry) {
+        line.setLength(0);
+        line.append("method=").append(entry.method)
+                .append(" uri=").append(entry.uri)
+                .append(" status=").append(entry.status)
+                .append(" duration_us=").append(entry.durationNanos / 1000)
+                .append(" start_ms=").append(entry.startMillis)
+                .append(" remote=").append(entry.remoteAddress);
+        if (entry.error != null) {
+            line.append(" error=").append(entry.error);
+        }
+        long droppedSoFar = dropped.sum();
+        if (droppedSoFar != reportedDropped) {
+            line.append(" dropped_before=").append(droppedSoFar - reportedDropped);
+            reportedDropped = droppedSoFar;
+        }
+        sink.accept(line);
+    }
+
+
+    /**
+     * Reusable ring slot. {@code published} holds the sequence of the request written into the slot last; the
+     * volatile write after all other fields hands the entry over to the writer.
+     */
+    private static final class Entry {
+        private String method;
+        private String uri;
+        private int status;
+        private String remoteAddress;
+        private long startMillis;
+        private long durationNanos;
+        private String error;
+        private volatile long published;
+
+        private Entry(long published) {
+            this.published = published;
+        }
+
+        private void clear() {
+            method = null;
+            uri = null;
+            remoteAddress = null;
+            error = null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.freenow.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Hands every finished request to the {@link AccessLog}. Only a sample of the successful requests is logged,
+ * requests failing with an exception or a server error status are always logged.
+ */
+@Component
+public class AccessLogInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String START_ATTRIBUTE = AccessLogInterceptor.class.getName() + ".start";
+
+    private final AccessLog accessLog;
+    private final double sampleRate;
+
+
+    public AccessLogInterceptor(AccessLog accessLog, @Value("${access-log.sample-rate:1.0}") double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Access log sample rate must be between 0 and 1 but was " + sampleRate);
+        }
+        this.accessLog = accessLog;
+        this.sampleRate = sampleRate;
+    }
+
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null || (ex == null && response.getStatus() < 500 && !sampled())) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - (Long) start;
+        accessLog.record(request.getMethod(), request.getRequestURI(), response.getStatus(), request.getRemoteAddr(),
+                System.currentTimeMillis() - durationNanos / 1_000_000, durationNanos, ex);
+    }
+
+
+    private boolean sampled() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+}
@@ -27,18 +27,16 @@ insert into driver (id, date_created, deleted, online_status, password, username
 
 -- Create 1 OFFLINE driver with coordinate(longitude=9.5&latitude=55.954)
 
-insert into driver (id, coordinate, date_coordinate_updated, date_created, deleted, online_status, password, username)
+insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted, online_status, password, username)
 values
- (7,
- 'aced0005737200226f72672e737072696e676672616d65776f726b2e646174612e67656f2e506f696e7431b9e90ef11a4006020002440001784400017978704023000000000000404bfa1cac083127', now(), now(), false, 'OFFLINE',
+ (7, 55.954, 9.5, now(), now(), false, 'OFFLINE',
 'driver07pw', 'driver07');
 
 -- Create 1 ONLINE driver with coordinate(longitude=9.5&latitude=55.954)
 
-insert into driver (id, coordinate, date_coordinate_updated, date_created, deleted, online_status, password, username)
+insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted, online_status, password, username)
 values
- (8,
- 'aced0005737200226f72672e737072696e676672616d65776f726b2e646174612e67656f2e506f696e7431b9e90ef11a4006020002440001784400017978704023000000000000404bfa1cac083127', now(), now(), false, 'ONLINE',
+ (8, 55.954, 9.5, now(), now(), false, 'ONLINE',
 'driver08pw', 'driver08');
 
 -- Create 4 cars for testing
@@ -49,15 +47,18 @@ values (2, true, true, now(), now(), false, 'GAS','GMB12',  'MERCEDES', 'FOUR',
        (5, false, true, now(), now(), false, 'GAS','POR22',  'PORSCHE', 'FIVE', 5);
 
 -- Assign a car to a driver
-insert into driver (id, coordinate, date_coordinate_updated, date_created, deleted, online_status, password, username, car_id)
+insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted, online_status, password, username, car_id)
 values
- (9,
- 'aced0005737200226f72672e737072696e676672616d65776f726b2e646174612e67656f2e506f696e7431b9e90ef11a4006020002440001784400017978704023000000000000404bfa1cac083127', now(), now(), false, 'ONLINE',
+ (9, 55.954, 9.5, now(), now(), false, 'ONLINE',
 'driver09pw', 'driver09', 3);
 
 -- Assign a car to a driver
-insert into driver (id, coordinate, date_coordinate_updated, date_created, deleted, online_status, password, username, car_id)
+insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted, online_status, password, username, car_id)
 values
- (10,
- 'aced0005737200226f72672e737072696e676672616d65776f726b2e646174612e67656f2e506f696e7431b9e90ef11a4006020002440001784400017978704023000000000000404bfa1cac083127', now(), now(), false, 'ONLINE',
+ (10, 55.954, 9.5, now(), now(), false, 'ONLINE',
 'driver10pw', 'driver10', 2);
+
+-- Move the id sequences past the ids above. Each value is the last id of a block of 50 (allocationSize),
+-- so the first generated ids are 51 to 100
+alter sequence driver_seq restart with 100;
+alter sequence car_seq restart with 100;
@@ -0,0 +1,79 @@
+package com.freenow.cache;
+
+import com.freenow.TestBase;
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+public class EntityCacheInvalidatorTest extends TestBase {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReadThroughCache<Long, DriverDO> driverCache;
+    private ReadThroughCache<Long, CarDO> carCache;
+    private EntityCacheInvalidator invalidator;
+
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        driverCache = new ReadThroughCache<>("drivers", 10, Duration.ofMinutes(1), meterRegistry);
+        carCache = new ReadThroughCache<>("cars", 10, Duration.ofMinutes(1), meterRegistry);
+        invalidator = new EntityCacheInvalidator(driverCache, carCache);
+    }
+
+
+    @Test
+    public void carEventDropsCarAndDriversHoldingIt() {
+        DriverDO driverDO = getDriverDO();
+        driverCache.get(driverDO.getId(), id -> driverDO);
+        carCache.get(driverDO.getCarDO().getId(), id -> driverDO.getCarDO());
+
+        invalidator.onCarEvent(new CarEvent(CarEvent.Type.RATING_UPDATED, driverDO.getCarDO().getId()));
+
+        Assertions.assertThat(driverCache.size()).isZero();
+        Assertions.assertThat(carCache.size()).isZero();
+    }
+
+
+    @Test
+    public void driverEventDropsDriverAndItsCar() {
+        DriverDO driverDO = getDriverDO();
+        driverCache.get(driverDO.getId(), id -> driverDO);
+        carCache.get(driverDO.getCarDO().getId(), id -> driverDO.getCarDO());
+
+        invalidator.onDriverEvent(DriverEvent.of(DriverEvent.Type.CAR_SELECTED, driverDO));
+
+        Assertions.assertThat(driverCache.size()).isZero();
+        Assertions.assertThat(carCache.size()).isZero();
+    }
+
+
+    @Test
+    public void releasedCarIsDropped() {
+        DriverDO driverDO = getDriverDO();
+        carCache.get(driverDO.getCarDO().getId(), id -> driverDO.getCarDO());
+
+        invalidator.onCarEvent(new CarEvent(CarEvent.Type.RELEASED, driverDO.getCarDO().getId()));
+
+        Assertions.assertThat(carCache.size()).isZero();
+    }
+
+
+    @Test
+    public void cacheReportsHitsAndMisses() {
+        driverCache.get(1L, id -> getDriverDO());
+        driverCache.get(1L, id -> getDriverDO());
+
+        Assertions.assertThat(meterRegistry.get("cache.gets").tags("cache", "drivers", "result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("cache.gets").tags("cache", "drivers", "result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+}
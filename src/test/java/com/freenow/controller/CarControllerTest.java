@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.freenow.TestBase;
 import com.freenow.datatransferobject.CarDTO;
 import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.CarImportResult;
+import com.freenow.domainvalue.CarImportRow;
+import com.freenow.domainvalue.CarImportStatus;
 import com.freenow.domainvalue.EngineType;
 import com.freenow.domainvalue.Rating;
 import com.freenow.exception.ConstraintsViolationException;
@@ -15,6 +18,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -23,6 +27,11 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -41,6 +50,12 @@ public class CarControllerTest extends TestBase {
     @Mock
     private CarService carService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @Before
     public void init() {
         mvc = MockMvcBuilders.standaloneSetup(carController).dispatchOptions(true).build();
@@ -148,4 +163,64 @@ public class CarControllerTest extends TestBase {
                 .andExpect(MockMvcResultMatchers.status().isBadRequest()).andReturn();
     }
 
+    @Test
+    public void importCarsFromCsvReportsEveryRow() throws Exception {
+        echoImportedRows();
+        String csv = "licensePlate,seatCount,convertible,engineType,rating,manufacturer\n" +
+                "B AB 1,4,false,ELECTRIC,FOUR,BMW\n" +
+                "B AB 2,5,true,gas,,AUDI\n" +
+                "B AB 3,2,true,DIESEL,FIVE,PORSCHE\n";
+        MvcResult result = mvc.perform(post(BASE_URI + "/import")
+                .contentType("text/csv").content(csv))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson"))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        Assertions.assertThat(lines).hasSize(3);
+        Assertions.assertThat(MAPPER.readTree(lines[0]).get("status").asText()).isEqualTo("CREATED");
+        Assertions.assertThat(MAPPER.readTree(lines[1]).get("status").asText()).isEqualTo("INVALID");
+        Assertions.assertThat(MAPPER.readTree(lines[1]).get("message").asText()).isEqualTo("rating can not be null!");
+        Assertions.assertThat(MAPPER.readTree(lines[2]).get("licensePlate").asText()).isEqualTo("B AB 3");
+    }
+
+    @Test
+    public void importCarsFromNdjsonGoesOnAfterUnmappableRow() throws Exception {
+        echoImportedRows();
+        String ndjson = MAPPER.writeValueAsString(getCarDTO()) + "\n" +
+                "{\"licensePlate\":\"B AB 2\",\"seatCount\":\"many\"}\n" +
+                MAPPER.writeValueAsString(getCarDTO()) + "\n";
+        MvcResult result = mvc.perform(post(BASE_URI + "/import")
+                .contentType("application/x-ndjson").content(ndjson))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        Assertions.assertThat(lines).hasSize(3);
+        Assertions.assertThat(MAPPER.readTree(lines[1]).get("status").asText()).isEqualTo("INVALID");
+        Assertions.assertThat(MAPPER.readTree(lines[2]).get("row").asLong()).isEqualTo(3L);
+        Assertions.assertThat(MAPPER.readTree(lines[2]).get("status").asText()).isEqualTo("CREATED");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void echoImportedRows() {
+        doAnswer(invocation -> {
+            Iterator<CarImportRow> rows = invocation.getArgument(0);
+            Consumer<CarImportResult> consumer = invocation.getArgument(1);
+            long created = 0;
+            while (rows.hasNext()) {
+                CarImportRow row = rows.next();
+                if (row.isValid()) {
+                    created++;
+                    consumer.accept(new CarImportResult(row.getRow(), row.getLicensePlate(), CarImportStatus.CREATED,
+                            created, null));
+                } else {
+                    consumer.accept(new CarImportResult(row.getRow(), row.getLicensePlate(), CarImportStatus.INVALID,
+                            null, row.getError()));
+                }
+            }
+            return created;
+        }).when(carService).importCars(any(Iterator.class), any(Consumer.class));
+    }
+
 }
@@ -3,16 +3,31 @@ package com.freenow.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.freenow.TestBase;
 import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.datatransferobject.LocationUpdateDTO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.LocationUpdateResult;
+import com.freenow.domainvalue.LocationUpdateStatus;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.Rating;
 import com.freenow.exception.CarAlreadyInUseException;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
+import com.freenow.exception.ParseValueException;
+import com.freenow.geo.NearbyDriver;
+import com.freenow.history.TrajectoryPoint;
+import com.freenow.match.DriverMatch;
+import com.freenow.search.DriverPage;
 import com.freenow.service.driver.DriverService;
+import com.freenow.stream.DriverUpdateSubscription;
+import org.assertj.core.api.Assertions;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -21,8 +36,10 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,6 +62,9 @@ public class DriverControllerTest extends TestBase {
     @Mock
     private DriverService driverService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private DriverController driverController;
 
@@ -179,11 +199,153 @@ public class DriverControllerTest extends TestBase {
                 {"carseat", "4"},
         }).collect(Collectors.toMap(data -> data[0], data -> data[1]));
 
-        doReturn(Collections.singletonList(getDriverDO())).when(driverService).searchDrivers(queryMap);
+        doReturn(new DriverPage(Collections.singletonList(getDriverDO()), null))
+                .when(driverService).searchDrivers(queryMap, null, 50);
         mvc.perform(get(BASE_URI + "/search")
                 .param("username", "user1")
                 .param("carseat", "4"))
-                .andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("X-Next-Cursor")).andReturn();
+    }
+
+    @Test
+    public void searchDriversPassesCursorAndReturnsNextCursor() throws Exception {
+        doReturn(new DriverPage(Collections.singletonList(getDriverDO()), "next"))
+                .when(driverService).searchDrivers(Collections.singletonMap("onlinestatus", "ONLINE"), "current", 1);
+        mvc.perform(get(BASE_URI + "/search")
+                .param("onlinestatus", "ONLINE")
+                .param("cursor", "current")
+                .param("limit", "1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("X-Next-Cursor", "next"));
+    }
+
+    @Test
+    public void searchDriversWithoutAcceptHeaderReturnsJsonList() throws Exception {
+        doReturn(new DriverPage(Collections.singletonList(getDriverDO()), null))
+                .when(driverService).searchDrivers(Collections.singletonMap("onlinestatus", "ONLINE"), null, 50);
+        mvc.perform(get(BASE_URI + "/search")
+                .param("onlinestatus", "ONLINE")
+                .accept(MediaType.ALL))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void streamDriversWritesOneJsonDocumentPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<DriverDO> consumer = invocation.getArgument(1);
+            consumer.accept(getDriverDO());
+            consumer.accept(getDriverDO());
+            return 2L;
+        }).when(driverService).streamDrivers(eq(Collections.singletonMap("onlinestatus", "ONLINE")), any(Consumer.class));
+        MvcResult result = mvc.perform(get(BASE_URI + "/search")
+                .param("onlinestatus", "ONLINE")
+                .accept("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson"))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        Assertions.assertThat(lines).hasSize(2);
+        Assertions.assertThat(MAPPER.readTree(lines[0]).get("id").asLong()).isEqualTo(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void streamDriversReportsInvalidCriteria() throws Exception {
+        doThrow(new ParseValueException("Could not perform search with provided query variables"))
+                .when(driverService).streamDrivers(any(), any(Consumer.class));
+        mvc.perform(get(BASE_URI + "/search")
+                .param("fail", "value")
+                .accept("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void findNearbyDrivers() throws Exception {
+        doReturn(Collections.singletonList(new NearbyDriver(1L, 52.52, 13.40, 12.5)))
+                .when(driverService).findNearbyDrivers(52.5201, 13.4001, 5);
+        mvc.perform(get(BASE_URI + "/nearby")
+                .param(LATITUDE, "52.5201")
+                .param(LONGITUDE, "13.4001")
+                .param("limit", "5"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].distance").value(12.5))
+                .andExpect(jsonPath("$[0].coordinate.latitude").value(52.52));
+    }
+
+    @Test
+    public void matchDriversPassesRequirements() throws Exception {
+        CarProfile car = new CarProfile(EngineType.ELECTRIC, (short) 5, false, Rating.FIVE, Manufacturer.AUDI);
+        doReturn(Collections.singletonList(new DriverMatch(1L, 7L, car, 52.52, 13.40, 12.5)))
+                .when(driverService).matchDrivers(eq(52.5201), eq(13.4001), any(), eq(1));
+        mvc.perform(get(BASE_URI + "/match")
+                .param(LATITUDE, "52.5201")
+                .param(LONGITUDE, "13.4001")
+                .param("minSeatCount", "5")
+                .param("engineType", "ELECTRIC")
+                .param("minRating", "FOUR"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].carId").value(7))
+                .andExpect(jsonPath("$[0].engineType").value("ELECTRIC"))
+                .andExpect(jsonPath("$[0].distance").value(12.5));
+        verify(driverService).matchDrivers(eq(52.5201), eq(13.4001), argThat(requirements ->
+                requirements.getMinSeatCount() == 5 && requirements.getEngineType() == EngineType.ELECTRIC
+                        && requirements.getConvertible() == null && requirements.getMinRating() == Rating.FOUR), eq(1));
+    }
+
+    @Test
+    public void getTrajectoryPassesThePeriod() throws Exception {
+        doReturn(Arrays.asList(new TrajectoryPoint(1540000000000L, 52.52, 13.40),
+                new TrajectoryPoint(1540000001000L, 52.53, 13.41)))
+                .when(driverService).getTrajectory(1L, 1540000000000L, null, 1000);
+        mvc.perform(get(BASE_URI + "/1/trajectory")
+                .param("from", "1540000000000"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$[1].timestamp").value(1540000001000L))
+                .andExpect(jsonPath("$[0].timestamp").value(1540000000000L))
+                .andExpect(jsonPath("$[1].coordinate.latitude").value(52.53));
+    }
+
+    @Test
+    public void updateLocationsReturnsOneResultPerItem() throws Exception {
+        String jsonInString = MAPPER.writeValueAsString(Arrays.asList(
+                new LocationUpdateDTO(8L, 55.95, 9.5, 1540000000000L),
+                new LocationUpdateDTO(222L, 55.95, 9.5, null)));
+        doReturn(Arrays.asList(
+                new LocationUpdateResult(8L, LocationUpdateStatus.UPDATED, null),
+                new LocationUpdateResult(222L, LocationUpdateStatus.NOT_FOUND, "Could not find driver with id: 222")))
+                .when(driverService).updateLocations(any());
+        mvc.perform(put(BASE_URI + "/locations")
+                .contentType(MediaType.APPLICATION_JSON_UTF8).content(jsonInString))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$[0].status").value("UPDATED"))
+                .andExpect(jsonPath("$[1].driverId").value(222))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    public void subscribeToUpdatesStartsEventStream() throws Exception {
+        doReturn(mock(DriverUpdateSubscription.class)).when(driverService).subscribeToUpdates(any(), any());
+        mvc.perform(get(BASE_URI + "/updates")
+                .param("driverIds", "1", "2")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted());
+        verify(driverService).subscribeToUpdates(argThat(filter -> filter.isFollowed(2L) && !filter.isBoxed()), any());
+    }
+
+    @Test
+    public void subscribeToUpdatesRejectsIncompleteBox() throws Exception {
+        mvc.perform(get(BASE_URI + "/updates")
+                .param("minLatitude", "52.4")
+                .param("minLongitude", "13.2")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(driverService, never()).subscribeToUpdates(any(), any());
     }
 
 }
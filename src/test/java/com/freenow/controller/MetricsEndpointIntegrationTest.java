@@ -0,0 +1,33 @@
+package com.freenow.controller;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class MetricsEndpointIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void scrapeContainsLatencyHistogramPerControllerMethodAndSearchSizes() {
+        restTemplate.getForEntity("/v1/drivers/1", String.class);
+        restTemplate.getForEntity("/v1/drivers/search?onlineStatus=online", String.class);
+
+        ResponseEntity<String> scrape = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        Assertions.assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(scrape.getBody())
+                .containsPattern("http_server_requests_seconds_bucket\\{[^}]*handler=\"DriverController.getDriver\"")
+                .contains("driver_search_results_count{mode=\"page\",}")
+                .contains("driver_operations_total{operation=\"car_selection\",outcome=\"success\",reason=\"none\",}");
+    }
+}
@@ -0,0 +1,102 @@
+package com.freenow.geo;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.event.DriverEvent;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class DriverGeoIndexTest {
+
+    private DriverGeoIndex index;
+
+    @Before
+    public void init() {
+        index = new DriverGeoIndex(0.01, 50);
+    }
+
+    @Test
+    public void nearestReturnsDriversOrderedByDistance() {
+        index.put(1L, 52.5200, 13.4050);
+        index.put(2L, 52.5300, 13.4050);
+        index.put(3L, 52.5210, 13.4050);
+        index.put(4L, 48.1351, 11.5820);
+
+        List<NearbyDriver> nearest = index.nearest(52.5201, 13.4050, 3);
+
+        Assertions.assertThat(nearest).extracting(NearbyDriver::getDriverId).containsExactly(1L, 3L, 2L);
+        Assertions.assertThat(nearest.get(0).getDistanceMeters()).isLessThan(20);
+    }
+
+    @Test
+    public void nearestIsLimited() {
+        for (long id = 1; id <= 20; id++) {
+            index.put(id, 52.5 + id * 0.001, 13.4);
+        }
+        List<NearbyDriver> nearest = index.nearest(52.5, 13.4, 5);
+        Assertions.assertThat(nearest).extracting(NearbyDriver::getDriverId).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    public void nearestFindsCloserDriverInNeighbourCell() {
+        // first driver shares the query cell but is further away than the one across the cell border
+        index.put(1L, 52.5099, 13.4001);
+        index.put(2L, 52.5101, 13.4099);
+
+        List<NearbyDriver> nearest = index.nearest(52.5099, 13.4099, 1);
+        Assertions.assertThat(nearest).extracting(NearbyDriver::getDriverId).containsExactly(2L);
+    }
+
+    @Test
+    public void movedDriverIsOnlyReturnedAtItsNewPosition() {
+        index.put(1L, 52.52, 13.40);
+        index.put(1L, 48.13, 11.58);
+
+        List<NearbyDriver> nearest = index.nearest(48.13, 11.58, 10);
+        Assertions.assertThat(nearest).hasSize(1);
+        Assertions.assertThat(nearest.get(0).getLatitude()).isEqualTo(48.13);
+        Assertions.assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void offlineOrDeletedDriversAreRemoved() {
+        GeoCoordinate coordinate = new GeoCoordinate(52.52, 13.40);
+        index.onDriverEvent(new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, 1L, OnlineStatus.ONLINE, false, coordinate, null));
+        index.onDriverEvent(new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, 2L, OnlineStatus.ONLINE, false, coordinate, null));
+        Assertions.assertThat(index.size()).isEqualTo(2);
+
+        index.onDriverEvent(new DriverEvent(DriverEvent.Type.ONLINE_STATUS_UPDATED, 1L, OnlineStatus.OFFLINE, false, coordinate, null));
+        index.onDriverEvent(new DriverEvent(DriverEvent.Type.DELETED, 2L, OnlineStatus.ONLINE, true, coordinate, null));
+
+        Assertions.assertThat(index.size()).isZero();
+        Assertions.assertThat(index.nearest(52.52, 13.40, 10)).isEmpty();
+    }
+
+    @Test
+    public void concurrentUpdatesKeepOneEntryPerDriver() throws InterruptedException {
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final int offset = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    long driverId = i % 100;
+                    index.put(driverId, 52.0 + ((i + offset) % 50) * 0.01, 13.0);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        List<Long> ids = index.nearest(52.25, 13.0, 100).stream()
+                .map(NearbyDriver::getDriverId)
+                .collect(Collectors.toList());
+        Assertions.assertThat(index.size()).isEqualTo(100);
+        Assertions.assertThat(ids).hasSize(100).doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,92 @@
+package com.freenow.geo;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.event.DriverEvent;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class DriverHeatmapTest {
+
+    private DriverHeatmap heatmap;
+
+    @Before
+    public void init() {
+        heatmap = new DriverHeatmap(0.01);
+    }
+
+    @Test
+    public void countsOnlineDriversPerCellAndCar() {
+        heatmap.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 1L, OnlineStatus.ONLINE, 52.5201, 13.4051, EngineType.ELECTRIC, 4));
+        heatmap.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 2L, OnlineStatus.ONLINE, 52.5202, 13.4052, EngineType.GAS, 4));
+        heatmap.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 3L, OnlineStatus.ONLINE, 52.5203, 13.4053, null, 0));
+        heatmap.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 4L, OnlineStatus.OFFLINE, 52.5204, 13.4054, EngineType.GAS, 7));
+
+        List<HeatmapCell> cells = heatmap.cells();
+
+        Assertions.assertThat(cells).hasSize(1);
+        HeatmapCell cell = cells.get(0);
+        Assertions.assertThat(cell.getOnline()).isEqualTo(3);
+        Assertions.assertThat(cell.getWithoutCar()).isEqualTo(1);
+        Assertions.assertThat(cell.getByEngineType())
+                .containsEntry(EngineType.ELECTRIC, 1).containsEntry(EngineType.GAS, 1).hasSize(2);
+        Assertions.assertThat(cell.getBySeatCount()).containsEntry(4, 2).hasSize(1);
+        Assertions.assertThat(cell.getMinLatitude()).isLessThanOrEqualTo(52.5201);
+        Assertions.assertThat(cell.getMaxLatitude()).isGreaterThan(52.5204);
+    }
+
+    @Test
+    public void movedDriverIsOnlyCountedInItsNewCell() {
+        heatmap.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 1L, OnlineStatus.ONLINE, 52.52, 13.40, EngineType.GAS, 4));
+        heatmap.onDriverEvent(event(DriverEvent.Type.LOCATION_UPDATED, 1L, OnlineStatus.ONLINE, 48.13, 11.58, EngineType.GAS, 4));
+
+        List<HeatmapCell> cells = heatmap.cells();
+
+        Assertions.assertThat(cells).hasSize(1);
+        Assertions.assertThat(cells.get(0).getMinLatitude()).isLessThanOrEqualTo(48.13);
+        Assertions.assertThat(cells.get(0).getByEngineType()).containsEntry(EngineType.GAS, 1);
+    }
+
+    @Test
+    public void offlineAndDeletedDriversAreNotCounted() {
+        heatmap.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 1L, OnlineStatus.ONLINE, 52.52, 13.40, null, 0));
+        heatmap.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 2L, OnlineStatus.ONLINE, 52.52, 13.40, null, 0));
+        heatmap.onDriverEvent(event(DriverEvent.Type.ONLINE_STATUS_UPDATED, 1L, OnlineStatus.OFFLINE, 52.52, 13.40, null, 0));
+        heatmap.onDriverEvent(new DriverEvent(DriverEvent.Type.DELETED, 2L, OnlineStatus.ONLINE, true,
+                new GeoCoordinate(52.52, 13.40), null));
+
+        Assertions.assertThat(heatmap.cells()).isEmpty();
+    }
+
+    @Test
+    public void carSelectionMovesDriverBetweenCounters() {
+        heatmap.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 1L, OnlineStatus.ONLINE, 52.52, 13.40, null, 0));
+        heatmap.onDriverEvent(event(DriverEvent.Type.CAR_SELECTED, 1L, OnlineStatus.ONLINE, 52.52, 13.40, EngineType.ELECTRIC, 12));
+
+        HeatmapCell selected = heatmap.cells().get(0);
+        Assertions.assertThat(selected.getWithoutCar()).isZero();
+        Assertions.assertThat(selected.getBySeatCount()).containsEntry(DriverHeatmap.SEAT_SLOTS - 1, 1);
+
+        heatmap.onDriverEvent(event(DriverEvent.Type.CAR_DESELECTED, 1L, OnlineStatus.ONLINE, 52.52, 13.40, null, 0));
+
+        HeatmapCell deselected = heatmap.cells().get(0);
+        Assertions.assertThat(deselected.getOnline()).isEqualTo(1);
+        Assertions.assertThat(deselected.getWithoutCar()).isEqualTo(1);
+        Assertions.assertThat(deselected.getByEngineType()).isEmpty();
+    }
+
+    private static DriverEvent event(DriverEvent.Type type, long driverId, OnlineStatus status, double latitude,
+                                     double longitude, EngineType engineType, int seatCount) {
+        return new DriverEvent(type, driverId, status, false, new GeoCoordinate(latitude, longitude),
+                engineType == null ? null : driverId,
+                engineType == null ? null : new CarProfile(engineType, (short) seatCount, false, Rating.FOUR,
+                        Manufacturer.BMW));
+    }
+}
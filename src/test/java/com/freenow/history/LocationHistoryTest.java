@@ -0,0 +1,188 @@
+package com.freenow.history;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.event.DriverEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.Offset;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class LocationHistoryTest {
+
+    private static final long BASE = System.currentTimeMillis();
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocationHistory history;
+
+    @Before
+    public void init() throws IOException {
+        history = newHistory();
+    }
+
+    @After
+    public void stop() {
+        history.stop();
+    }
+
+    @Test
+    public void returnsTheLocationsOfOneDriverInThePeriod() {
+        history.append(1L, BASE, 52.5200001, 13.4049999);
+        history.append(2L, BASE + 10, 48.1351, 11.5820);
+        history.append(1L, BASE + 20, 52.5210, 13.4060);
+        history.append(1L, BASE + 30, 52.5220, 13.4070);
+
+        List<TrajectoryPoint> points = history.getTrajectory(1L, BASE, BASE + 20, 100);
+
+        Assertions.assertThat(points).extracting(TrajectoryPoint::getEpochMillis).containsExactly(BASE, BASE + 20);
+        Assertions.assertThat(points.get(0).getLatitude()).isCloseTo(52.5200001, Offset.offset(1e-7));
+        Assertions.assertThat(points.get(0).getLongitude()).isCloseTo(13.4049999, Offset.offset(1e-7));
+        Assertions.assertThat(history.getTrajectory(2L, BASE, BASE + 30, 100)).hasSize(1)
+                .first().satisfies(point -> Assertions.assertThat(point.getLongitude()).isCloseTo(11.5820, Offset.offset(1e-7)));
+    }
+
+    @Test
+    public void limitKeepsTheOldestPoints() {
+        for (int i = 0; i < 10; i++) {
+            history.append(1L, BASE + i, 52.52, 13.40);
+        }
+
+        Assertions.assertThat(history.getTrajectory(1L, BASE, BASE + 9, 3))
+                .extracting(TrajectoryPoint::getEpochMillis).containsExactly(BASE, BASE + 1, BASE + 2);
+    }
+
+    @Test
+    public void startsANewSegmentEverySegmentDuration() {
+        history.append(1L, BASE, 52.52, 13.40);
+        history.append(1L, BASE + HOUR - 1, 52.53, 13.41);
+        history.append(1L, BASE + HOUR, 52.54, 13.42);
+
+        Assertions.assertThat(history.getSegmentCount()).isEqualTo(2);
+        Assertions.assertThat(history.getTrajectory(1L, BASE, BASE + HOUR, 100)).hasSize(3);
+        Assertions.assertThat(history.getTrajectory(1L, BASE + HOUR, BASE + 2 * HOUR, 100)).hasSize(1);
+    }
+
+    @Test
+    public void startsANewSegmentWhenTheActiveOneIsFull() {
+        // a record takes about eleven bytes here, so the records do not fit into one megabyte
+        int records = 50_000;
+        for (int i = 0; i < records * 3; i++) {
+            history.append(i % 1000, BASE + i, 52.52 + i % 100 * 1e-4, 13.40 - i % 100 * 1e-4);
+        }
+
+        Assertions.assertThat(history.getSegmentCount()).isGreaterThan(1);
+        Assertions.assertThat(history.getTrajectory(7L, BASE, BASE + records * 3, 10000)).hasSize(records * 3 / 1000);
+    }
+
+    @Test
+    public void readsTheSegmentsOfAnEarlierRun() throws IOException {
+        history.append(1L, BASE, 52.52, 13.40);
+        history.append(1L, BASE + 1, 52.53, 13.41);
+        history.stop();
+
+        history = newHistory();
+        history.append(1L, BASE + 2, 52.54, 13.42);
+
+        Assertions.assertThat(history.getSegmentCount()).isEqualTo(2);
+        Assertions.assertThat(history.getTrajectory(1L, BASE, BASE + 2, 100))
+                .extracting(TrajectoryPoint::getEpochMillis).containsExactly(BASE, BASE + 1, BASE + 2);
+    }
+
+    @Test
+    public void aRecordCutOffByACrashIsDropped() throws IOException {
+        history.append(1L, BASE, 52.52, 13.40);
+        long complete = history.getSizeBytes();
+        history.append(1L, BASE + 1, 52.53, 13.41);
+        long torn = history.getSizeBytes();
+        history.stop();
+        // only the first byte of the second record reached the file, the rest of it is still zero-filled
+        try (RandomAccessFile file = new RandomAccessFile(folder.getRoot().listFiles()[0], "rw")) {
+            file.seek(complete + 1);
+            file.write(new byte[(int) (torn - complete - 1)]);
+        }
+
+        history = newHistory();
+
+        Assertions.assertThat(history.getTrajectory(1L, BASE, BASE + 1, 100))
+                .extracting(TrajectoryPoint::getEpochMillis).containsExactly(BASE);
+    }
+
+    @Test
+    public void recordsAfterTheClockSteppedBackKeepTheTimeOfTheLastOne() throws IOException {
+        history.append(1L, BASE + 10, 52.52, 13.40);
+        history.append(1L, BASE, 52.53, 13.41);
+        history.stop();
+        history = newHistory();
+        history.append(1L, BASE + 5, 52.54, 13.42);
+
+        Assertions.assertThat(history.getTrajectory(1L, BASE, BASE + 10, 100))
+                .extracting(TrajectoryPoint::getEpochMillis).containsExactly(BASE + 10, BASE + 10, BASE + 10);
+    }
+
+    @Test
+    public void deletesSegmentsOlderThanTheRetention() {
+        history.append(1L, BASE, 52.52, 13.40);
+        history.append(1L, BASE + HOUR, 52.53, 13.41);
+
+        history.expire(BASE + 2 * HOUR);
+
+        Assertions.assertThat(history.getSegmentCount()).isEqualTo(1);
+        Assertions.assertThat(folder.getRoot().listFiles()).hasSize(1);
+        Assertions.assertThat(history.getTrajectory(1L, BASE, BASE + HOUR, 100))
+                .extracting(TrajectoryPoint::getEpochMillis).containsExactly(BASE + HOUR);
+    }
+
+    @Test
+    public void onlyLocationUpdatesAreRecorded() {
+        long before = System.currentTimeMillis();
+        history.onDriverEvent(new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, 1L, OnlineStatus.ONLINE, false,
+                new GeoCoordinate(52.52, 13.40), null));
+        history.onDriverEvent(new DriverEvent(DriverEvent.Type.ONLINE_STATUS_UPDATED, 1L, OnlineStatus.OFFLINE, false,
+                new GeoCoordinate(52.53, 13.41), null));
+
+        Assertions.assertThat(history.getTrajectory(1L, before, System.currentTimeMillis(), 100)).hasSize(1);
+    }
+
+    @Test
+    public void disabledHistoryRecordsNothing() throws IOException {
+        File directory = new File(folder.getRoot(), "disabled");
+        LocationHistory disabled = new LocationHistory(new SimpleMeterRegistry(), false,
+                directory.getAbsolutePath(), 60, 1, 1);
+        disabled.start();
+        disabled.onDriverEvent(new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, 1L, OnlineStatus.ONLINE, false,
+                new GeoCoordinate(52.52, 13.40), null));
+
+        Assertions.assertThat(disabled.getTrajectory(1L, 0, Long.MAX_VALUE, 100)).isEmpty();
+        Assertions.assertThat(directory).doesNotExist();
+        disabled.stop();
+    }
+
+    @Test
+    public void segmentsMustFitIntoAMappedBuffer() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                new LocationHistory(new SimpleMeterRegistry(), true, folder.getRoot().getAbsolutePath(), 60, 1, 2048));
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                new LocationHistory(new SimpleMeterRegistry(), true, folder.getRoot().getAbsolutePath(), 60, 1, 0));
+    }
+
+    private LocationHistory newHistory() throws IOException {
+        // one hour segments, one hour retention, one megabyte per segment
+        LocationHistory locationHistory = new LocationHistory(new SimpleMeterRegistry(), true,
+                folder.getRoot().getAbsolutePath(), 60, 1, 1);
+        locationHistory.start();
+        return locationHistory;
+    }
+}
@@ -0,0 +1,150 @@
+package com.freenow.journal;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DriverJournalTest {
+
+    private static final CarProfile CAR = new CarProfile(EngineType.ELECTRIC, (short) 4, false, Rating.THREE,
+            Manufacturer.BMW);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DriverJournal journal;
+
+    @After
+    public void stop() throws InterruptedException {
+        journal.stop();
+    }
+
+    @Test
+    public void withoutCheckpointTheTableIsRead() throws Exception {
+        journal = start();
+        journal.onDriverEvent(event(DriverEvent.Type.LOCATION_UPDATED, 1L, 52.52, 13.40, null, null));
+
+        journal = restart();
+
+        Assertions.assertThat(journal.isRecovered()).isFalse();
+        Assertions.assertThat(journal.size()).isZero();
+    }
+
+    @Test
+    public void recoversTheCheckpointAndTheChangesAfterIt() throws Exception {
+        journal = start();
+        journal.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 1L, 52.52, 13.40, 7L, CAR));
+        journal.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 2L, 48.13, 11.58, null, null));
+        journal.checkpoint();
+        journal.onDriverEvent(event(DriverEvent.Type.LOCATION_UPDATED, 1L, 52.53, 13.41, 7L, CAR));
+        journal.onDriverEvent(new DriverEvent(DriverEvent.Type.ONLINE_STATUS_UPDATED, 2L, OnlineStatus.OFFLINE, false,
+                new GeoCoordinate(48.13, 11.58), null));
+        journal.onCarEvent(new CarEvent(CarEvent.Type.RATING_UPDATED, 7L, Rating.FIVE));
+
+        journal = restart();
+
+        Assertions.assertThat(journal.isRecovered()).isTrue();
+        Map<Long, DriverRecord> drivers = drivers();
+        Assertions.assertThat(drivers).hasSize(2);
+        DriverRecord moved = drivers.get(1L);
+        Assertions.assertThat(moved.getLatitude()).isEqualTo(52.53);
+        Assertions.assertThat(moved.getCarId()).isEqualTo(7L);
+        Assertions.assertThat(moved.getCar()).isEqualTo(CAR.withRating(Rating.FIVE));
+        Assertions.assertThat(drivers.get(2L).getOnlineStatus()).isEqualTo(OnlineStatus.OFFLINE);
+        Assertions.assertThat(drivers.get(2L).getCarId()).isNull();
+    }
+
+    @Test
+    public void deselectedCarsAndDeletedDriversAreNotRecovered() throws Exception {
+        journal = start();
+        journal.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 1L, 52.52, 13.40, 7L, CAR));
+        journal.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 2L, 48.13, 11.58, null, null));
+        journal.checkpoint();
+        journal.onDriverEvent(event(DriverEvent.Type.CAR_DESELECTED, 1L, 52.52, 13.40, null, null));
+        journal.onDriverEvent(event(DriverEvent.Type.DELETED, 2L, 48.13, 11.58, null, null));
+
+        journal = restart();
+
+        Assertions.assertThat(drivers()).containsOnlyKeys(1L);
+        Assertions.assertThat(drivers().get(1L).getCarId()).isNull();
+        Assertions.assertThat(drivers().get(1L).toSnapshotEvent().getCar()).isNull();
+    }
+
+    @Test
+    public void aCheckpointReplacesTheJournalBeforeIt() throws Exception {
+        journal = start();
+        journal.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 1L, 52.52, 13.40, null, null));
+        journal.checkpoint();
+        journal.onDriverEvent(event(DriverEvent.Type.LOCATION_UPDATED, 1L, 52.53, 13.41, null, null));
+        journal.checkpoint();
+        journal.onDriverEvent(event(DriverEvent.Type.LOCATION_UPDATED, 1L, 52.54, 13.42, null, null));
+
+        journal = restart();
+
+        Assertions.assertThat(folder.getRoot().list()).containsExactlyInAnyOrder(
+                "checkpoint-00000000000000000001.bin", "journal-00000000000000000002.log",
+                "journal-00000000000000000003.log");
+        Assertions.assertThat(drivers().get(1L).getLatitude()).isEqualTo(52.54);
+    }
+
+    @Test
+    public void anEntryCutOffByACrashIsDropped() throws Exception {
+        journal = start();
+        journal.onDriverEvent(event(DriverEvent.Type.SNAPSHOT, 1L, 52.52, 13.40, null, null));
+        journal.checkpoint();
+        journal.onDriverEvent(event(DriverEvent.Type.LOCATION_UPDATED, 1L, 52.53, 13.41, null, null));
+        journal.stop();
+        File journalFile = new File(folder.getRoot(), "journal-00000000000000000001.log");
+        Files.write(journalFile.toPath(), new byte[]{40, 0, 0, 0, 1, 2}, StandardOpenOption.APPEND);
+        long intact = journalFile.length() - 6;
+
+        journal = start();
+        journal.onDriverEvent(event(DriverEvent.Type.LOCATION_UPDATED, 1L, 52.54, 13.42, null, null));
+
+        Assertions.assertThat(journalFile.length()).isEqualTo(intact);
+        journal = restart();
+        Assertions.assertThat(drivers().get(1L).getLatitude()).isEqualTo(52.54);
+    }
+
+    private DriverJournal start() throws IOException {
+        DriverJournal driverJournal = new DriverJournal(new SimpleMeterRegistry(), true,
+                folder.getRoot().getAbsolutePath(), 3600, 1000, 100);
+        driverJournal.start();
+        return driverJournal;
+    }
+
+    private DriverJournal restart() throws Exception {
+        journal.stop();
+        return start();
+    }
+
+    private Map<Long, DriverRecord> drivers() {
+        Map<Long, DriverRecord> drivers = new HashMap<>();
+        journal.forEachDriver(driver -> drivers.put(driver.getDriverId(), driver));
+        return drivers;
+    }
+
+    private static DriverEvent event(DriverEvent.Type type, long driverId, double latitude, double longitude,
+                                     Long carId, CarProfile car) {
+        return new DriverEvent(type, driverId, OnlineStatus.ONLINE, type == DriverEvent.Type.DELETED,
+                new GeoCoordinate(latitude, longitude), carId, car);
+    }
+}
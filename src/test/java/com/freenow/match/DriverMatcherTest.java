@@ -0,0 +1,114 @@
+package com.freenow.match;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class DriverMatcherTest {
+
+    private static final CarProfile ELECTRIC_FOUR_SEATS =
+            new CarProfile(EngineType.ELECTRIC, (short) 4, false, Rating.FOUR, Manufacturer.BMW);
+    private static final CarProfile GAS_SEVEN_SEATS =
+            new CarProfile(EngineType.GAS, (short) 7, true, Rating.FIVE, Manufacturer.MERCEDES);
+
+    private DriverMatcher matcher;
+
+    @Before
+    public void init() {
+        matcher = new DriverMatcher(0.01, 50);
+    }
+
+    @Test
+    public void matchReturnsClosestDriversWithMatchingCar() {
+        matcher.onDriverEvent(online(1L, 52.5200, 13.4050, 11L, ELECTRIC_FOUR_SEATS));
+        matcher.onDriverEvent(online(2L, 52.5210, 13.4050, 12L, GAS_SEVEN_SEATS));
+        matcher.onDriverEvent(online(3L, 52.5400, 13.4050, 13L, GAS_SEVEN_SEATS));
+
+        List<DriverMatch> matches = matcher.match(52.5201, 13.4050, new RideRequirements(5, null, null, null), 5);
+
+        Assertions.assertThat(matches).extracting(DriverMatch::getDriverId).containsExactly(2L, 3L);
+        Assertions.assertThat(matches.get(0).getCarId()).isEqualTo(12L);
+    }
+
+    @Test
+    public void matchFiltersOnEveryRequirement() {
+        matcher.onDriverEvent(online(1L, 52.52, 13.40, 11L, ELECTRIC_FOUR_SEATS));
+        matcher.onDriverEvent(online(2L, 52.52, 13.40, 12L, GAS_SEVEN_SEATS));
+
+        Assertions.assertThat(matcher.match(52.52, 13.40, new RideRequirements(0, EngineType.ELECTRIC, null, null), 5))
+                .extracting(DriverMatch::getDriverId).containsExactly(1L);
+        Assertions.assertThat(matcher.match(52.52, 13.40, new RideRequirements(0, null, true, null), 5))
+                .extracting(DriverMatch::getDriverId).containsExactly(2L);
+        Assertions.assertThat(matcher.match(52.52, 13.40, new RideRequirements(0, null, null, Rating.FIVE), 5))
+                .extracting(DriverMatch::getDriverId).containsExactly(2L);
+        Assertions.assertThat(matcher.match(52.52, 13.40, new RideRequirements(8, null, null, null), 5)).isEmpty();
+    }
+
+    @Test
+    public void matchFindsDriverRingsAway() {
+        matcher.onDriverEvent(online(1L, 52.52, 13.40, 11L, ELECTRIC_FOUR_SEATS));
+        matcher.onDriverEvent(online(2L, 52.60, 13.40, 12L, GAS_SEVEN_SEATS));
+
+        List<DriverMatch> matches = matcher.match(52.52, 13.40, new RideRequirements(0, EngineType.GAS, null, null), 1);
+
+        Assertions.assertThat(matches).extracting(DriverMatch::getDriverId).containsExactly(2L);
+        Assertions.assertThat(matches.get(0).getDistanceMeters()).isBetween(8_000.0, 10_000.0);
+    }
+
+    @Test
+    public void driversWithoutCarOrOfflineAreNotMatched() {
+        matcher.onDriverEvent(new DriverEvent(DriverEvent.Type.SNAPSHOT, 1L, OnlineStatus.ONLINE, false,
+                new GeoCoordinate(52.52, 13.40), null));
+        matcher.onDriverEvent(online(2L, 52.52, 13.40, 12L, GAS_SEVEN_SEATS));
+        matcher.onDriverEvent(new DriverEvent(DriverEvent.Type.ONLINE_STATUS_UPDATED, 2L, OnlineStatus.OFFLINE, false,
+                new GeoCoordinate(52.52, 13.40), 12L, GAS_SEVEN_SEATS));
+
+        Assertions.assertThat(matcher.match(52.52, 13.40, RideRequirements.ANY, 5)).isEmpty();
+        Assertions.assertThat(matcher.size()).isZero();
+    }
+
+    @Test
+    public void locationUpdateMovesTheCandidate() {
+        matcher.onDriverEvent(online(1L, 52.52, 13.40, 11L, ELECTRIC_FOUR_SEATS));
+        matcher.onDriverEvent(new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, 1L, OnlineStatus.ONLINE, false,
+                new GeoCoordinate(48.13, 11.58), 11L, ELECTRIC_FOUR_SEATS));
+
+        Assertions.assertThat(matcher.match(52.52, 13.40, RideRequirements.ANY, 5)).isEmpty();
+        List<DriverMatch> matches = matcher.match(48.13, 11.58, RideRequirements.ANY, 5);
+        Assertions.assertThat(matches).extracting(DriverMatch::getCarId).containsExactly(11L);
+        Assertions.assertThat(matcher.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void deselectedCarIsNotMatched() {
+        matcher.onDriverEvent(online(1L, 52.52, 13.40, 11L, ELECTRIC_FOUR_SEATS));
+        matcher.onDriverEvent(new DriverEvent(DriverEvent.Type.CAR_DESELECTED, 1L, OnlineStatus.ONLINE, false,
+                new GeoCoordinate(52.52, 13.40), null));
+
+        Assertions.assertThat(matcher.match(52.52, 13.40, RideRequirements.ANY, 5)).isEmpty();
+    }
+
+    @Test
+    public void ratingUpdateOfSelectedCarIsMatched() {
+        matcher.onDriverEvent(online(1L, 52.52, 13.40, 11L, ELECTRIC_FOUR_SEATS));
+        matcher.onCarEvent(new CarEvent(CarEvent.Type.RATING_UPDATED, 11L, Rating.FIVE));
+
+        List<DriverMatch> matches = matcher.match(52.52, 13.40, new RideRequirements(0, null, null, Rating.FIVE), 5);
+        Assertions.assertThat(matches).extracting(DriverMatch::getDriverId).containsExactly(1L);
+    }
+
+    private static DriverEvent online(long driverId, double latitude, double longitude, long carId, CarProfile car) {
+        return new DriverEvent(DriverEvent.Type.SNAPSHOT, driverId, OnlineStatus.ONLINE, false,
+                new GeoCoordinate(latitude, longitude), carId, car);
+    }
+}
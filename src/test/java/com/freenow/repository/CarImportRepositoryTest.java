@@ -0,0 +1,75 @@
+package com.freenow.repository;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.dataaccessobject.CarRepository;
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.Rating;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This test class is based on the data inserted in the DB by data.sql file under resources
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class)
+@Transactional
+public class CarImportRepositoryTest {
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Test
+    public void findTakenLicensePlatesSkipsFreePlates() {
+        Assertions.assertThat(carRepository.findTakenLicensePlates(Arrays.asList("GMB12", "POR22", "FREE1")))
+                .containsExactlyInAnyOrder("GMB12", "POR22");
+    }
+
+    @Test
+    public void insertCarsWritesAllCarsInOneBatch() {
+        List<CarDO> cars = Arrays.asList(car("IMP1"), car("IMP2"));
+        carRepository.insertCars(cars);
+
+        Assertions.assertThat(cars.get(1).getId()).isEqualTo(cars.get(0).getId() + 1);
+        CarDO carDO = carRepository.findById(cars.get(1).getId()).orElseThrow(IllegalStateException::new);
+        Assertions.assertThat(carDO.getLicensePlate()).isEqualTo("IMP2");
+        Assertions.assertThat(carDO.getManufacturer()).isEqualTo(Manufacturer.AUDI);
+        Assertions.assertThat(carDO.isCarSelectedByDriver()).isFalse();
+    }
+
+    @Test
+    public void insertCarsTakesIdsOutsideTheBlocksOfHibernate() {
+        CarDO saved = carRepository.save(car("JPA1"));
+        List<CarDO> cars = new ArrayList<>();
+        for (int i = 0; i < CarDO.ID_ALLOCATION_SIZE + 1; i++) {
+            cars.add(car("IMP" + i));
+        }
+        carRepository.insertCars(cars);
+        CarDO savedAfter = carRepository.save(car("JPA2"));
+
+        Assertions.assertThat(cars).extracting(CarDO::getId).doesNotHaveDuplicates()
+                .doesNotContain(saved.getId(), savedAfter.getId());
+    }
+
+    @Test
+    public void insertCarsFailsOnTakenLicensePlate() {
+        Assertions.assertThatExceptionOfType(DataIntegrityViolationException.class)
+                .isThrownBy(() -> carRepository.insertCars(Collections.singletonList(car("GSR19"))));
+    }
+
+    private static CarDO car(String licensePlate) {
+        return new CarDO(licensePlate, (short) 4, false, EngineType.ELECTRIC, Manufacturer.AUDI, Rating.THREE);
+    }
+}
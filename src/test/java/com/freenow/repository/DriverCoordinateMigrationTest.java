@@ -0,0 +1,68 @@
+package com.freenow.repository;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.dataaccessobject.DriverCoordinateMigration;
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainobject.DriverDO;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.geo.Point;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+/**
+ * Runs against its own database because it alters the driver table.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class,
+        properties = "spring.datasource.url=jdbc:h2:mem:coordinatemigration;DB_CLOSE_ON_EXIT=FALSE")
+public class DriverCoordinateMigrationTest {
+
+    @Autowired
+    private DriverCoordinateMigration migration;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @After
+    public void dropLegacyColumn() {
+        jdbcTemplate.execute("alter table driver drop column if exists coordinate");
+    }
+
+    @Test
+    public void migrateWithoutLegacyColumnDoesNothing() {
+        Assertions.assertThat(migration.migrate()).isZero();
+    }
+
+    @Test
+    public void migrateMovesSerializedPointIntoNumericColumns() throws IOException {
+        jdbcTemplate.execute("alter table driver add column coordinate varbinary");
+        jdbcTemplate.update("update driver set coordinate = ?, latitude = null, longitude = null where id = 1",
+                (Object) serialize(new Point(9.5, 55.954)));
+
+        Assertions.assertThat(migration.migrate()).isEqualTo(1);
+
+        DriverDO driverDO = driverRepository.findById(1L).orElseThrow(IllegalStateException::new);
+        Assertions.assertThat(driverDO.getCoordinate().getLatitude()).isEqualTo(55.954);
+        Assertions.assertThat(driverDO.getCoordinate().getLongitude()).isEqualTo(9.5);
+    }
+
+    private static byte[] serialize(Point point) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(point);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,85 @@
+package com.freenow.repository;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.dataaccessobject.DriverLocationRepository.PositionUpdate;
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.state.DriverState;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This test class is based on the data inserted in the DB by data.sql file under resources
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class)
+@Transactional
+public class DriverLocationRepositoryTest {
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Test
+    public void updateLocationsWritesAllPositionsInOneBatch() {
+        long now = System.currentTimeMillis();
+        int[] updated = driverRepository.updateLocations(Arrays.asList(
+                new PositionUpdate(1L, new GeoCoordinate(52.52, 13.40), now),
+                new PositionUpdate(222L, new GeoCoordinate(52.52, 13.40), now),
+                new PositionUpdate(2L, new GeoCoordinate(48.13, 11.58), now)));
+
+        Assertions.assertThat(updated).containsExactly(1, 0, 1);
+        DriverDO driverDO = driverRepository.findById(2L).orElseThrow(IllegalStateException::new);
+        Assertions.assertThat(driverDO.getCoordinate()).isEqualTo(new GeoCoordinate(48.13, 11.58));
+    }
+
+    @Test
+    public void updateLocationsIgnoresOlderPositions() {
+        long now = System.currentTimeMillis();
+        driverRepository.updateLocations(Arrays.asList(new PositionUpdate(3L, new GeoCoordinate(52.52, 13.40), now)));
+        int[] updated = driverRepository.updateLocations(
+                Arrays.asList(new PositionUpdate(3L, new GeoCoordinate(48.13, 11.58), now - 60_000)));
+
+        Assertions.assertThat(updated).containsExactly(0);
+    }
+
+    @Test
+    public void scanDriverStatesReadsEveryLiveDriver() {
+        Map<Long, DriverState> states = new HashMap<>();
+        driverRepository.scanDriverStates(state -> states.put(state.getDriverId(), state));
+
+        Assertions.assertThat(states).containsKeys(1L, 8L);
+        Assertions.assertThat(states.get(1L).getOnlineStatus()).isEqualTo(OnlineStatus.OFFLINE);
+        Assertions.assertThat(states.get(8L).isLocated()).isTrue();
+        Assertions.assertThat(states.get(8L).getLongitude()).isEqualTo(9.5);
+        Assertions.assertThat(states.get(8L).getUpdatedEpochMillis()).isPositive();
+        Assertions.assertThat(states.get(8L).getCar()).isNull();
+        Assertions.assertThat(states.get(9L).getCarId()).isEqualTo(3L);
+        Assertions.assertThat(states.get(9L).getCar())
+                .isEqualTo(new CarProfile(EngineType.GAS, (short) 4, true, Rating.FIVE, Manufacturer.MERCEDES));
+    }
+
+    @Test
+    public void findDriverStatesReadsTheGivenDrivers() {
+        List<DriverState> states = driverRepository.findDriverStates(Arrays.asList(8L, 9L, 222L));
+
+        Assertions.assertThat(states).extracting(DriverState::getDriverId).containsExactlyInAnyOrder(8L, 9L);
+        Assertions.assertThat(states).filteredOn(state -> state.getDriverId() == 9L).extracting(DriverState::getCar)
+                .containsExactly(new CarProfile(EngineType.GAS, (short) 4, true, Rating.FIVE, Manufacturer.MERCEDES));
+    }
+}
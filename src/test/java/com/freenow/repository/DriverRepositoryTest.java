@@ -5,6 +5,7 @@ import com.freenow.TestBase;
 import com.freenow.dataaccessobject.DriverRepository;
 import com.freenow.domainobject.DriverDO;
 import com.freenow.exception.ParseValueException;
+import com.freenow.search.DriverSearchFilter;
 import com.freenow.search.SearchCriteria;
 import com.google.common.collect.Lists;
 import org.assertj.core.api.Assertions;
@@ -13,7 +14,11 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -114,6 +119,37 @@ public class DriverRepositoryTest extends TestBase {
         Assertions.assertThat(drivers.size()).isEqualTo(1);
     }
 
+    @Test
+    public void findByFilterPagesThroughDriversByKeyset() {
+        DriverSearchFilter online = DriverSearchFilter.of(Collections.singletonMap("onlineStatus", "online"));
+
+        List<DriverDO> firstPage = driverRepository.findByFilter(online, null, 2);
+        Long lastId = firstPage.get(1).getId();
+        List<DriverDO> secondPage = driverRepository.findByFilter(online, lastId, 100);
+
+        Assertions.assertThat(firstPage).extracting(DriverDO::getId).hasSize(2).isSortedAccordingTo(Comparator.reverseOrder());
+        Assertions.assertThat(secondPage).extracting(DriverDO::getId)
+                .isNotEmpty()
+                .isSortedAccordingTo(Comparator.reverseOrder())
+                .allMatch(id -> id < lastId);
+        Assertions.assertThat(firstPage.size() + secondPage.size())
+                .isEqualTo(driverRepository.findAll(SearchCriteria.getDriversBySpecification(online)).size());
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    public void scrollByFilterVisitsEveryMatchingDriverOnce() {
+        DriverSearchFilter online = DriverSearchFilter.of(Collections.singletonMap("onlineStatus", "online"));
+        List<Long> ids = new ArrayList<>();
+
+        long count = driverRepository.scrollByFilter(online, driverDO -> ids.add(driverDO.getId()));
+
+        Assertions.assertThat(count).isEqualTo(ids.size());
+        Assertions.assertThat(ids).isSortedAccordingTo(Comparator.reverseOrder())
+                .containsExactlyElementsOf(driverRepository.findByFilter(online, null, 100).stream()
+                        .map(DriverDO::getId).collect(Collectors.toList()));
+    }
+
     @Test
     public void getDriversShouldThrowExceptionIfTypeIsNotParsable() {
         Map<String, String> queryMap = Stream.of(new String[][]{
@@ -0,0 +1,62 @@
+package com.freenow.repository;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.List;
+
+/**
+ * Checks the indexes generated from the entity mappings and that H2 picks them for driver searches.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class)
+public class SearchIndexTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+
+    @Test
+    public void searchableColumnsAreIndexed() {
+        Assertions.assertThat(indexedColumns("DRIVER")).contains(
+                "IDX_DRIVER_STATUS_ID:1:ONLINE_STATUS", "IDX_DRIVER_STATUS_ID:2:DELETED", "IDX_DRIVER_CAR:1:CAR_ID",
+                "IDX_DRIVER_CAR:2:DELETED");
+        Assertions.assertThat(indexedColumns("CAR")).contains(
+                "IDX_CAR_ENGINE_SEATS:1:ENGINE_TYPE", "IDX_CAR_ENGINE_SEATS:4:DELETED", "IDX_CAR_SEATS:1:SEAT_COUNT",
+                "IDX_CAR_MANUFACTURER_RATING:1:MANUFACTURER", "IDX_CAR_RATING:1:RATING", "IDX_CAR_RATING:2:DELETED");
+    }
+
+
+    @Test
+    public void statusSearchUsesStatusIndex() {
+        Assertions.assertThat(explain("select d.id from driver d left outer join car c on d.car_id = c.id"
+                + " where d.deleted = false and d.online_status = 'ONLINE' and d.id < 100 order by d.id desc limit 51"))
+                .contains("IDX_DRIVER_STATUS_ID");
+    }
+
+
+    @Test
+    public void carSearchJoinsDriversByCarIndex() {
+        Assertions.assertThat(explain("select d.id from driver d inner join car c on d.car_id = c.id"
+                + " where d.deleted = false and c.deleted = false and c.engine_type = 'ELECTRIC' and c.seat_count = 4"
+                + " order by d.id desc limit 51"))
+                .contains("IDX_CAR_ENGINE_SEATS", "IDX_DRIVER_CAR");
+    }
+
+
+    private List<String> indexedColumns(String table) {
+        return jdbcTemplate.queryForList("select index_name || ':' || ordinal_position || ':' || column_name"
+                + " from information_schema.indexes where table_name = ?", String.class, table);
+    }
+
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+}
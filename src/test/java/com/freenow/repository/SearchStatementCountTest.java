@@ -0,0 +1,118 @@
+package com.freenow.repository;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.controller.mapper.DriverMapper;
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.search.DriverSearchFilter;
+import com.freenow.search.SearchCriteria;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Counts the SQL statements of driver searches, based on the data inserted by data.sql.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class)
+public class SearchStatementCountTest {
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+
+    @Before
+    public void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+
+    @After
+    public void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+
+    @Test
+    public void multiAttributeSearchIsOneStatementIncludingCars() {
+        DriverSearchFilter filter = DriverSearchFilter.of(search(
+                "seatcount", "4", "enginetype", "gas", "convertible", "true", "onlineStatus", "online"));
+
+        List<DriverDTO> drivers = DriverMapper.makeDriverDTOList(driverRepository.findByFilter(filter, null, 50));
+
+        Assertions.assertThat(drivers).isNotEmpty().allMatch(driver -> driver.getCar() != null);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+
+    @Test
+    public void searchWithoutCarAttributesLoadsCarsWithTheSameStatement() {
+        DriverSearchFilter filter = DriverSearchFilter.of(search("onlineStatus", "online"));
+
+        List<DriverDTO> drivers = DriverMapper.makeDriverDTOList(driverRepository.findByFilter(filter, null, 50));
+
+        Assertions.assertThat(drivers).anyMatch(driver -> driver.getCar() != null);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+
+    @Test
+    public void pageOfBitmapSearchIsLoadedWithOneStatementIncludingCars() {
+        List<DriverDO> drivers = driverRepository.findByIds(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L));
+
+        Assertions.assertThat(drivers).isNotEmpty().extracting(DriverDO::getId)
+                .isSortedAccordingTo(Comparator.reverseOrder());
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+
+    @Test
+    public void carPredicatesShareOneJoin() {
+        Specification<DriverDO> specification = SearchCriteria.getDriversBySpecification(search(
+                "seatcount", "4", "enginetype", "gas", "convertible", "false", "licenseplate", "GMB124"));
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DriverDO> query = criteriaBuilder.createQuery(DriverDO.class);
+        Root<DriverDO> root = query.from(DriverDO.class);
+
+        specification.toPredicate(root, query, criteriaBuilder);
+
+        Assertions.assertThat(root.getJoins().size() + root.getFetches().size()).isEqualTo(1);
+    }
+
+
+    private static Map<String, String> search(String... keysAndValues) {
+        return Stream.iterate(0, i -> i + 2).limit(keysAndValues.length / 2)
+                .collect(Collectors.toMap(i -> keysAndValues[i], i -> keysAndValues[i + 1]));
+    }
+}
@@ -0,0 +1,120 @@
+package com.freenow.repository;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.dataaccessobject.CarRepository;
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.search.DriverSearchFilter;
+import com.freenow.search.SearchCriteria;
+import com.google.common.collect.Lists;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Soft-deleted drivers and cars must not come back from any read path. Runs on its own database, the rows are
+ * deleted directly in the tables.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class,
+        properties = "spring.datasource.url=jdbc:h2:mem:softdelete;DB_CLOSE_ON_EXIT=FALSE")
+public class SoftDeleteTest {
+
+    private static final long DELETED_DRIVER = 101;
+    private static final long DELETED_CAR = 100;
+    private static final long SELECTED_CAR = 103;
+    private static final long LIVE_DRIVER = 102;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+
+    @Before
+    public void insertDeletedRows() {
+        jdbcTemplate.update("merge into car (id, car_selected_by_driver, convertible, date_car_created, deleted," +
+                " engine_type, license_plate, manufacturer, rating, seat_count) key (id)" +
+                " values (?, false, false, now(), true, 'GAS', 'DEL-1', 'AUDI', 'ONE', 4)", DELETED_CAR);
+        jdbcTemplate.update("merge into driver (id, date_created, deleted, online_status, password, username)" +
+                " key (id) values (?, now(), true, 'ONLINE', 'deletedpw', 'deleted')," +
+                " (?, now(), false, 'ONLINE', 'livepw', 'live')", DELETED_DRIVER, LIVE_DRIVER);
+    }
+
+
+    @Test
+    public void lookupsByIdSkipDeletedRows() {
+        Assertions.assertThat(driverRepository.findById(DELETED_DRIVER)).isEmpty();
+        Assertions.assertThat(carRepository.findById(DELETED_CAR)).isEmpty();
+    }
+
+
+    @Test
+    public void findAllSkipsDeletedRows() {
+        Assertions.assertThat(driverIds(driverRepository.findAll())).doesNotContain(DELETED_DRIVER);
+        Assertions.assertThat(Lists.newArrayList(carRepository.findAll()))
+                .extracting(CarDO::getId).doesNotContain(DELETED_CAR);
+    }
+
+
+    @Test
+    public void searchesSkipDeletedRows() {
+        DriverSearchFilter online = DriverSearchFilter.of(Collections.singletonMap("onlineStatus", "online"));
+        DriverSearchFilter deletedCarRating = DriverSearchFilter.of(Collections.singletonMap("rating", "one"));
+
+        Assertions.assertThat(driverIds(driverRepository.findByFilter(online, null, 100)))
+                .doesNotContain(DELETED_DRIVER).contains(LIVE_DRIVER);
+        Assertions.assertThat(driverIds(driverRepository.findAll(SearchCriteria.getDriversBySpecification(online))))
+                .doesNotContain(DELETED_DRIVER);
+        Assertions.assertThat(driverRepository.findByFilter(deletedCarRating, null, 100)).isEmpty();
+        List<Long> streamed = new ArrayList<>();
+        transactionTemplate.execute(status -> driverRepository.scrollByFilter(online, driver -> streamed.add(driver.getId())));
+        Assertions.assertThat(streamed).doesNotContain(DELETED_DRIVER).contains(LIVE_DRIVER);
+    }
+
+
+    @Test
+    public void deletedCarCannotBeClaimed() {
+        int claimed = transactionTemplate.execute(status -> carRepository.claim(DELETED_CAR));
+
+        Assertions.assertThat(claimed).isZero();
+    }
+
+
+    @Test
+    public void selectedCarIsNotDeleted() {
+        jdbcTemplate.update("merge into car (id, car_selected_by_driver, convertible, date_car_created, deleted," +
+                " engine_type, license_plate, manufacturer, rating, seat_count) key (id)" +
+                " values (?, true, false, now(), false, 'GAS', 'SEL-1', 'AUDI', 'ONE', 4)", SELECTED_CAR);
+
+        int deleted = transactionTemplate.execute(status -> carRepository.markDeleted(SELECTED_CAR));
+
+        Assertions.assertThat(deleted).isZero();
+        Assertions.assertThat(carRepository.findById(SELECTED_CAR)).isPresent();
+    }
+
+
+
+    private static List<Long> driverIds(Iterable<DriverDO> drivers) {
+        return Lists.newArrayList(drivers).stream().map(DriverDO::getId).collect(Collectors.toList());
+    }
+}
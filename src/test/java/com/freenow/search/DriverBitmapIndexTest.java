@@ -0,0 +1,88 @@
+package com.freenow.search;
+
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DriverBitmapIndexTest {
+
+    private static final CarProfile ELECTRIC = new CarProfile(EngineType.ELECTRIC, (short) 4, false, Rating.FIVE,
+            Manufacturer.BMW);
+    private static final CarProfile GAS = new CarProfile(EngineType.GAS, (short) 4, true, Rating.THREE,
+            Manufacturer.AUDI);
+
+    private DriverBitmapIndex index;
+
+    @Before
+    public void init() {
+        index = new DriverBitmapIndex(true);
+        index.put(1L, OnlineStatus.ONLINE, 11L, ELECTRIC);
+        index.put(2L, OnlineStatus.OFFLINE, 12L, ELECTRIC);
+        index.put(3L, OnlineStatus.ONLINE, 13L, GAS);
+        index.put(4L, OnlineStatus.ONLINE, null, null);
+        index.put(5L, OnlineStatus.ONLINE, 15L, ELECTRIC);
+    }
+
+    @Test
+    public void searchIntersectsValuesHighestIdsFirst() {
+        Map<String, String> params = new HashMap<>();
+        params.put("enginetype", "electric");
+        params.put("rating", "five");
+        params.put("onlinestatus", "online");
+
+        Assertions.assertThat(index.search(DriverSearchFilter.of(params), null, 10)).containsExactly(5L, 1L);
+    }
+
+    @Test
+    public void searchContinuesBelowCursorWithinLimit() {
+        DriverSearchFilter filter = filter("seatcount", "4");
+
+        Assertions.assertThat(index.search(filter, null, 2)).containsExactly(5L, 3L);
+        Assertions.assertThat(index.search(filter, 3L, 2)).containsExactly(2L, 1L);
+        Assertions.assertThat(index.search(filter, 1L, 2)).isEmpty();
+    }
+
+    @Test
+    public void driversWithoutCarOnlyMatchDriverAttributes() {
+        Assertions.assertThat(index.search(filter("onlinestatus", "online"), null, 10)).containsExactly(5L, 4L, 3L, 1L);
+        Assertions.assertThat(index.search(filter("convertible", "false"), null, 10)).containsExactly(5L, 2L, 1L);
+    }
+
+    @Test
+    public void eventsMoveDriversBetweenBitmaps() {
+        index.onDriverEvent(new DriverEvent(DriverEvent.Type.CAR_DESELECTED, 5L, OnlineStatus.ONLINE, false, null,
+                null, null));
+        index.onDriverEvent(new DriverEvent(DriverEvent.Type.DELETED, 1L, OnlineStatus.ONLINE, true, null, 11L,
+                ELECTRIC));
+        index.onDriverEvent(new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, 2L, OnlineStatus.OFFLINE, false,
+                new GeoCoordinate(52.52, 13.40), 12L, ELECTRIC));
+        index.onCarEvent(new CarEvent(CarEvent.Type.RATING_UPDATED, 13L, Rating.FIVE));
+
+        Assertions.assertThat(index.search(filter("enginetype", "electric"), null, 10)).containsExactly(2L);
+        Assertions.assertThat(index.search(filter("rating", "five"), null, 10)).containsExactly(3L, 2L);
+        Assertions.assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void coversOnlyIndexedAttributes() {
+        Assertions.assertThat(index.covers(filter("manufacturer", "bmw"))).isTrue();
+        Assertions.assertThat(index.covers(filter("username", "driver01"))).isFalse();
+        Assertions.assertThat(new DriverBitmapIndex(false).covers(filter("manufacturer", "bmw"))).isFalse();
+    }
+
+    private static DriverSearchFilter filter(String parameter, String value) {
+        return DriverSearchFilter.of(Collections.singletonMap(parameter, value));
+    }
+}
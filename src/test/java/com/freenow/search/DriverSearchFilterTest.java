@@ -0,0 +1,74 @@
+package com.freenow.search;
+
+import com.freenow.TestBase;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.exception.ParseValueException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class DriverSearchFilterTest extends TestBase {
+
+    @Test
+    public void filterIgnoresParameterOrderAndCase() {
+        Map<String, String> first = new LinkedHashMap<>();
+        first.put("onlineStatus", "online");
+        first.put("enginetype", "GAS");
+        Map<String, String> second = new LinkedHashMap<>();
+        second.put("EngineType", "gas");
+        second.put("onlinestatus", "ONLINE");
+
+        DriverSearchFilter filter = DriverSearchFilter.of(first);
+
+        Assertions.assertThat(filter).isEqualTo(DriverSearchFilter.of(second));
+        Assertions.assertThat(filter.getAttributes())
+                .containsExactly(SearchAttribute.ONLINE_STATUS, SearchAttribute.ENGINE_TYPE);
+        Assertions.assertThat(filter.getValue(SearchAttribute.ONLINE_STATUS)).isEqualTo(OnlineStatus.ONLINE);
+        Assertions.assertThat(filter.getValue(SearchAttribute.ENGINE_TYPE)).isEqualTo(EngineType.GAS);
+    }
+
+
+    @Test
+    public void filterRejectsUnknownDuplicateAndMissingParameters() {
+        Map<String, String> duplicate = new LinkedHashMap<>();
+        duplicate.put("username", "driver01");
+        duplicate.put("Username", "driver02");
+
+        assertExceptionThrown(ParseValueException.class, () ->
+                DriverSearchFilter.of(Collections.singletonMap("FAIL", "driver09")));
+        assertExceptionThrown(ParseValueException.class, () -> DriverSearchFilter.of(duplicate));
+        assertExceptionThrown(ParseValueException.class, () -> DriverSearchFilter.of(Collections.emptyMap()));
+    }
+
+
+    @Test
+    public void planCacheCompilesOncePerShape() {
+        DriverSearchPlanCache cache = new DriverSearchPlanCache(new SimpleMeterRegistry(), 10);
+        DriverSearchFilter first = DriverSearchFilter.of(Collections.singletonMap("seatcount", "4"));
+        DriverSearchFilter second = DriverSearchFilter.of(Collections.singletonMap("SeatCount", "2"));
+
+        DriverSearchPlan plan = cache.get(first.getAttributes(), false);
+
+        Assertions.assertThat(cache.get(second.getAttributes(), false)).isSameAs(plan);
+        Assertions.assertThat(cache.get(second.getAttributes(), true)).isNotSameAs(plan);
+        Assertions.assertThat(plan.getJpql()).isEqualTo("select d from DriverDO d join fetch d.carDO c "
+                + "where c.seatCount = :seatCount order by d.id desc");
+    }
+
+
+    @Test
+    public void planCacheIsBounded() {
+        DriverSearchPlanCache cache = new DriverSearchPlanCache(new SimpleMeterRegistry(), 2);
+
+        for (SearchAttribute attribute : SearchAttribute.values()) {
+            cache.get(Collections.singleton(attribute), false);
+        }
+
+        Assertions.assertThat(cache.size()).isLessThanOrEqualTo(2);
+    }
+}
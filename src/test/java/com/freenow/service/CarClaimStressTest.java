@@ -0,0 +1,145 @@
+package com.freenow.service;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.exception.CarAlreadyInUseException;
+import com.freenow.service.car.CarService;
+import com.freenow.service.driver.DriverService;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets several drivers race for the same car over and over, and a rating update race a claim. Runs against its own database because it creates
+ * drivers and selects cars.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class,
+        properties = "spring.datasource.url=jdbc:h2:mem:carclaimstress;DB_CLOSE_ON_EXIT=FALSE")
+public class CarClaimStressTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CarClaimStressTest.class);
+    private static final long FREE_CAR_ID = 4L;
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 200;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private CarService carService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> driverIds = new ArrayList<>();
+
+
+    @Before
+    public void createOnlineDrivers() {
+        for (int i = 0; i < THREADS; i++) {
+            DriverDO driverDO = driverService.create(new DriverDO("claimer" + System.nanoTime() + i, "pw"));
+            driverService.updateOnlineStatus(driverDO.getId(), OnlineStatus.ONLINE);
+            driverIds.add(driverDO.getId());
+        }
+    }
+
+
+    @Test
+    public void exactlyOneDriverWinsEveryRace() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        long start = System.nanoTime();
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                List<Future<Long>> attempts = new ArrayList<>(THREADS);
+                for (long driverId : driverIds) {
+                    attempts.add(executor.submit(claim(barrier, driverId)));
+                }
+                List<Long> winners = new ArrayList<>();
+                for (Future<Long> attempt : attempts) {
+                    Long winner = attempt.get(30, TimeUnit.SECONDS);
+                    if (winner != null) {
+                        winners.add(winner);
+                    }
+                }
+
+                Assertions.assertThat(winners).as("winners of round %d", round).hasSize(1);
+                Assertions.assertThat(jdbcTemplate.queryForObject(
+                        "select count(*) from driver where car_id = ?", Integer.class, FREE_CAR_ID)).isEqualTo(1);
+                driverService.deSelectCarByDriver(winners.get(0));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        LOGGER.info("{} contended claims by {} drivers in {} s, {} claims/s.", ROUNDS * THREADS, THREADS,
+                String.format("%.2f", seconds), Math.round(ROUNDS * THREADS / seconds));
+
+        Assertions.assertThat(jdbcTemplate.queryForObject(
+                "select car_selected_by_driver from car where id = ?", Boolean.class, FREE_CAR_ID)).isFalse();
+    }
+
+
+    @Test
+    public void ratingUpdateKeepsAClaimCommittedMeanwhile() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        long driverId = driverIds.get(0);
+        try {
+            transactionTemplate.execute(status -> {
+                // the car is loaded unselected, then claimed and committed before this transaction flushes
+                carService.updateRating(FREE_CAR_ID, Rating.FIVE);
+                try {
+                    executor.submit(() -> driverService.selectCarByDriver(driverId, FREE_CAR_ID))
+                            .get(30, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            });
+
+            Assertions.assertThat(jdbcTemplate.queryForObject(
+                    "select car_selected_by_driver from car where id = ?", Boolean.class, FREE_CAR_ID)).isTrue();
+            Assertions.assertThat(jdbcTemplate.queryForObject(
+                    "select rating from car where id = ?", String.class, FREE_CAR_ID)).isEqualTo("FIVE");
+        } finally {
+            executor.shutdownNow();
+            driverService.deSelectCarByDriver(driverId);
+        }
+    }
+
+
+    private Callable<Long> claim(CyclicBarrier barrier, long driverId) {
+        return () -> {
+            barrier.await(30, TimeUnit.SECONDS);
+            try {
+                driverService.selectCarByDriver(driverId, FREE_CAR_ID);
+                return driverId;
+            } catch (CarAlreadyInUseException e) {
+                return null;
+            }
+        };
+    }
+}
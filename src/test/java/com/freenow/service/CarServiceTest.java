@@ -1,19 +1,39 @@
 package com.freenow.service;
 
 import com.freenow.TestBase;
+import com.freenow.cache.EntityCacheInvalidator;
+import com.freenow.cache.ReadThroughCache;
 import com.freenow.dataaccessobject.CarRepository;
 import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.CarImportResult;
+import com.freenow.domainvalue.CarImportRow;
+import com.freenow.domainvalue.CarImportStatus;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.Manufacturer;
 import com.freenow.domainvalue.Rating;
+import com.freenow.event.CarEvent;
+import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
 import com.freenow.service.car.DefaultCarService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -25,6 +45,16 @@ public class CarServiceTest extends TestBase {
     @Mock
     private CarRepository carRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private ReadThroughCache<Long, CarDO> carCache =
+            new ReadThroughCache<>("cars", 10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
     @InjectMocks
     private DefaultCarService carService;
 
@@ -62,10 +92,32 @@ public class CarServiceTest extends TestBase {
     public void verifyFindByIdIsCalledForDelete() {
         CarDO carDO = getCarDO();
         when(carRepository.findById(3L)).thenReturn(Optional.of(carDO));
+        when(carRepository.markDeleted(3L)).thenReturn(1);
         carService.delete(3L);
         verify(carRepository, times(1)).findById(3L);
     }
 
+    @Test
+    public void findIsServedFromCacheUntilRatingIsUpdated() {
+        CarDO carDO = getCarDO();
+        when(carRepository.findById(7L)).thenReturn(Optional.of(carDO));
+        carService.find(7L);
+        carService.find(7L);
+        verify(carRepository, times(1)).findById(7L);
+
+        EntityCacheInvalidator invalidator = new EntityCacheInvalidator(
+                new ReadThroughCache<>("drivers", 10, Duration.ofMinutes(1), new SimpleMeterRegistry()), carCache);
+        doAnswer(invocation -> {
+            invalidator.onCarEvent(invocation.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(CarEvent.class));
+        carService.updateRating(7L, Rating.FIVE);
+        clearInvocations(carRepository);
+
+        carService.find(7L);
+        verify(carRepository, times(1)).findById(7L);
+    }
+
     @Test
     public void findShouldThrowExceptionWhenIdDoesNotExist() {
         when(carRepository.findById(4L)).thenReturn(Optional.empty());
@@ -78,10 +130,54 @@ public class CarServiceTest extends TestBase {
         assertExceptionThrown(EntityNotFoundException.class, () -> carService.delete(5L));
     }
 
+    @Test
+    public void deleteShouldThrowExceptionWhenCarIsSelected() {
+        CarDO carDO = getCarDO();
+        carDO.setCarSelectedByDriver(true);
+        when(carRepository.findById(8L)).thenReturn(Optional.of(carDO));
+        when(carRepository.markDeleted(8L)).thenReturn(0);
+        assertExceptionThrown(ConstraintsViolationException.class, () -> carService.delete(8L));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     public void updateShouldShouldThrowExceptionWhenIdDoesNotExist(){
         when(carRepository.findById(6L)).thenReturn(Optional.empty());
         assertExceptionThrown(EntityNotFoundException.class, () -> carService.updateRating(6L, Rating.FIVE));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void importCarsReportsDuplicatesPerRowAndInsertsTheRest() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(carRepository.findTakenLicensePlates(any())).thenReturn(Collections.singleton("GMB12"));
+        doAnswer(invocation -> {
+            long id = 10;
+            for (CarDO car : invocation.<List<CarDO>>getArgument(0)) {
+                car.setId(id++);
+            }
+            return null;
+        }).when(carRepository).insertCars(any());
+        List<CarImportResult> results = new ArrayList<>();
+
+        long created = carService.importCars(Arrays.asList(
+                CarImportRow.valid(1, car("NEW1")),
+                CarImportRow.valid(2, car("GMB12")),
+                CarImportRow.invalid(3, null, "rating can not be null!"),
+                CarImportRow.valid(4, car("NEW1")),
+                CarImportRow.valid(5, car("NEW2"))).iterator(), results::add);
+
+        Assertions.assertThat(created).isEqualTo(2);
+        Assertions.assertThat(results).extracting(CarImportResult::getStatus).containsExactly(
+                CarImportStatus.CREATED, CarImportStatus.DUPLICATE, CarImportStatus.INVALID,
+                CarImportStatus.DUPLICATE, CarImportStatus.CREATED);
+        Assertions.assertThat(results).extracting(CarImportResult::getCarId).containsExactly(10L, null, null, null, 11L);
+        verify(carRepository, times(1)).insertCars(argThat((List<CarDO> cars) -> cars.size() == 2));
+    }
+
+    private static CarDO car(String licensePlate) {
+        return new CarDO(licensePlate, (short) 4, false, EngineType.ELECTRIC, Manufacturer.BMW, Rating.FOUR);
+    }
+
 }
@@ -1,23 +1,57 @@
 package com.freenow.service;
 
 import com.freenow.TestBase;
+import com.freenow.cache.ReadThroughCache;
 import com.freenow.dataaccessobject.CarRepository;
 import com.freenow.dataaccessobject.DriverRepository;
 import com.freenow.domainobject.CarDO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.LocationUpdate;
+import com.freenow.domainvalue.LocationUpdateResult;
+import com.freenow.domainvalue.LocationUpdateStatus;
+import com.freenow.domainvalue.Manufacturer;
 import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
 import com.freenow.exception.CarAlreadyInUseException;
 import com.freenow.exception.ConstraintsViolationException;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
 import com.freenow.exception.EntityNotFoundException;
+import com.freenow.exception.ParseValueException;
+import com.freenow.geo.DriverGeoIndex;
+import com.freenow.history.LocationHistory;
+import com.freenow.journal.DriverJournal;
+import com.freenow.metrics.DriverOperationMetrics;
+import com.freenow.search.DriverBitmapIndex;
+import com.freenow.search.DriverPage;
+import com.freenow.search.SearchCursor;
+import com.freenow.service.car.CarClaims;
 import com.freenow.service.driver.DefaultDriverService;
+import com.freenow.service.driver.LocationWriteBehindBuffer;
+import com.freenow.state.DriverState;
+import com.freenow.state.DriverStateStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
 
+import javax.persistence.EntityManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -30,6 +64,30 @@ public class DriverServiceTest extends TestBase {
     private DriverRepository driverRepository;
     @Mock
     private CarRepository carRepository;
+    @Mock
+    private DriverGeoIndex driverGeoIndex;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private LocationWriteBehindBuffer locationBuffer;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private DriverBitmapIndex bitmapIndex;
+    @Mock
+    private LocationHistory locationHistory;
+    @Mock
+    private DriverJournal driverJournal;
+    @Mock
+    private DriverStateStore driverStateStore;
+    @Spy
+    private CarClaims carClaims = new CarClaims();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy
+    private DriverOperationMetrics operationMetrics = new DriverOperationMetrics(meterRegistry);
+    @Spy
+    private ReadThroughCache<Long, DriverDO> driverCache =
+            new ReadThroughCache<>("drivers", 10, Duration.ofMinutes(1), new SimpleMeterRegistry());
 
     @InjectMocks
     private DefaultDriverService driverService;
@@ -88,6 +146,19 @@ public class DriverServiceTest extends TestBase {
         assertExceptionThrown(ConstraintsViolationException.class, () -> driverService.selectCarByDriver(8L, 9L));
     }
 
+    @Test
+    public void selectCarByDriverShouldThrowExceptionWhenConditionalClaimFails() {
+        DriverDO driver = getDriverDO();
+        driver.setCarDO(null);
+        CarDO car = getCarDO();
+        when(driverRepository.findById(11L)).thenReturn(Optional.of(driver));
+        when(carRepository.findById(12L)).thenReturn(Optional.of(car));
+        when(carRepository.claim(12L)).thenReturn(0);
+        assertExceptionThrown(CarAlreadyInUseException.class, () -> driverService.selectCarByDriver(11L, 12L));
+        Assertions.assertThat(driver.getCarDO()).isNull();
+        Assertions.assertThat(failures("car_selection", "CarAlreadyInUseException")).isEqualTo(1);
+    }
+
     @Test
     public void deselectingACarByDriverShouldThrowExceptionWhenDriverHasNoCar() {
         DriverDO driver = getDriverDO();
@@ -96,6 +167,21 @@ public class DriverServiceTest extends TestBase {
         assertExceptionThrown(ConstraintsViolationException.class, () -> driverService.deSelectCarByDriver(10L));
     }
 
+    @Test
+    public void deselectionIsPublishedWithoutTheCarAndReleasesIt() {
+        DriverDO driver = getDriverDO();
+        long carId = driver.getCarDO().getId();
+        when(driverRepository.findById(10L)).thenReturn(Optional.of(driver));
+
+        driverService.deSelectCarByDriver(10L);
+
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof DriverEvent
+                && ((DriverEvent) event).getType() == DriverEvent.Type.CAR_DESELECTED
+                && ((DriverEvent) event).getCarId() == null && ((DriverEvent) event).getCar() == null));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof CarEvent
+                && ((CarEvent) event).getType() == CarEvent.Type.RELEASED && ((CarEvent) event).getCarId() == carId));
+    }
+
     @Test
     public void verifyFindByIdIsCalledForFind() {
         DriverDO driver = getDriverDO();
@@ -131,4 +217,225 @@ public class DriverServiceTest extends TestBase {
         verify(driverRepository, times(1)).findById(13L);
     }
 
+
+    @Test
+    public void updateLocationPublishesDriverEvent() {
+        DriverDO driverDO = getDriverDO();
+        when(driverRepository.findById(14L)).thenReturn(Optional.of(driverDO));
+        driverService.updateLocation(14L, 13.4, 52.5);
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof DriverEvent && ((DriverEvent) event).getType() == DriverEvent.Type.LOCATION_UPDATED));
+    }
+
+
+    @Test
+    public void updateLocationBuffersDetachedDriverInWriteBehindMode() {
+        DriverDO driverDO = getDriverDO();
+        when(driverRepository.findById(15L)).thenReturn(Optional.of(driverDO));
+        when(locationBuffer.isEnabled()).thenReturn(true);
+        when(locationBuffer.offer(eq(15L), any(GeoCoordinate.class), anyLong())).thenReturn(true);
+        when(entityManager.contains(driverDO)).thenReturn(true);
+        driverService.updateLocation(15L, 13.4, 52.5);
+        verify(entityManager, times(1)).detach(driverDO);
+        Assertions.assertThat(driverDO.getCoordinate()).isEqualTo(new GeoCoordinate(52.5, 13.4));
+    }
+
+
+    @Test
+    public void findReturnsBufferedLocation() {
+        DriverDO driverDO = getDriverDO();
+        when(driverRepository.findById(16L)).thenReturn(Optional.of(driverDO));
+        when(locationBuffer.get(16L)).thenReturn(new GeoCoordinate(52.5, 13.4));
+        Assertions.assertThat(driverService.find(16L).getCoordinate()).isEqualTo(new GeoCoordinate(52.5, 13.4));
+    }
+
+
+    @Test
+    public void searchDriversReturnsCursorOnlyWhenMoreDriversMatch() {
+        DriverDO first = getDriverDO();
+        DriverDO second = getDriverDO();
+        DriverDO third = getDriverDO();
+        first.setId(9L);
+        second.setId(8L);
+        third.setId(7L);
+        when(driverRepository.findByFilter(any(), isNull(), eq(3))).thenReturn(Arrays.asList(first, second, third));
+
+        DriverPage page = driverService.searchDrivers(Collections.singletonMap("onlinestatus", "ONLINE"), null, 2);
+
+        Assertions.assertThat(page.getDrivers()).containsExactly(first, second);
+        Assertions.assertThat(SearchCursor.decode(page.getNextCursor())).isEqualTo(second.getId());
+    }
+
+
+    @Test
+    public void searchDriversLoadsPageFoundByBitmapIndex() {
+        DriverDO first = getDriverDO();
+        DriverDO second = getDriverDO();
+        first.setId(9L);
+        second.setId(8L);
+        when(bitmapIndex.covers(any())).thenReturn(true);
+        when(bitmapIndex.search(any(), eq(10L), eq(3))).thenReturn(Arrays.asList(9L, 8L, 7L));
+        when(driverRepository.findByIds(Arrays.asList(9L, 8L))).thenReturn(Arrays.asList(first, second));
+
+        DriverPage page = driverService.searchDrivers(Collections.singletonMap("enginetype", "electric"),
+                SearchCursor.encode(10L), 2);
+
+        Assertions.assertThat(page.getDrivers()).containsExactly(first, second);
+        Assertions.assertThat(SearchCursor.decode(page.getNextCursor())).isEqualTo(8L);
+        verify(driverRepository, never()).findByFilter(any(), any(), anyInt());
+    }
+
+
+    @Test
+    public void searchDriversShouldThrowExceptionWhenLimitIsOutOfRange() {
+        assertExceptionThrown(ConstraintsViolationException.class, () ->
+                driverService.searchDrivers(Collections.singletonMap("onlinestatus", "ONLINE"), null, 501));
+        verifyZeroInteractions(driverRepository);
+    }
+
+
+    @Test
+    public void searchDriversShouldThrowExceptionWhenCursorIsInvalid() {
+        assertExceptionThrown(ParseValueException.class, () ->
+                driverService.searchDrivers(Collections.singletonMap("onlinestatus", "ONLINE"), "not-a-cursor", 10));
+    }
+
+
+    @Test
+    public void findIsServedFromCacheAfterFirstLoad() {
+        DriverDO driverDO = getDriverDO();
+        when(driverRepository.findById(17L)).thenReturn(Optional.of(driverDO));
+        driverService.find(17L);
+        Assertions.assertThat(driverService.find(17L)).isSameAs(driverDO);
+        verify(driverRepository, times(1)).findById(17L);
+    }
+
+
+    @Test
+    public void selectCarByDriverPublishesEventWithCarId() {
+        DriverDO driver = getDriverDO();
+        driver.setCarDO(null);
+        CarDO car = getCarDO();
+        when(driverRepository.findById(18L)).thenReturn(Optional.of(driver));
+        when(carRepository.findById(car.getId())).thenReturn(Optional.of(car));
+        when(carRepository.claim(car.getId())).thenReturn(1);
+        driverService.selectCarByDriver(18L, car.getId());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof DriverEvent
+                && ((DriverEvent) event).getType() == DriverEvent.Type.CAR_SELECTED
+                && car.getId().equals(((DriverEvent) event).getCarId())));
+    }
+
+
+    @Test
+    public void findNearbyDriversShouldThrowExceptionWhenLimitIsOutOfRange() {
+        assertExceptionThrown(ConstraintsViolationException.class, () -> driverService.findNearbyDrivers(52.5, 13.4, 0));
+        verifyZeroInteractions(driverGeoIndex);
+    }
+
+
+    @Test
+    public void getTrajectoryShouldThrowExceptionWhenThePeriodEndsBeforeItStarts() {
+        assertExceptionThrown(ConstraintsViolationException.class, () -> driverService.getTrajectory(1L, 2000L, 1000L, 10));
+        verifyZeroInteractions(locationHistory);
+    }
+
+
+    @Test
+    public void getTrajectoryDefaultsToTheLastHour() {
+        driverService.getTrajectory(1L, null, 1540000000000L, 10);
+        verify(locationHistory).getTrajectory(1L, 1540000000000L - 3600000L, 1540000000000L, 10);
+    }
+
+
+    @Test
+    public void publishDriverSnapshotsSeedsTheJournalFromTheTable() {
+        DriverDO driverDO = new DriverDO("driver", "password");
+        driverDO.setId(1L);
+        when(driverRepository.findAll()).thenReturn(Collections.singletonList(driverDO));
+
+        driverService.publishDriverSnapshots();
+
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof DriverEvent
+                && ((DriverEvent) event).getType() == DriverEvent.Type.SNAPSHOT));
+        verify(driverJournal).checkpoint();
+    }
+
+
+    @Test
+    public void updateLocationsReportsTheOutcomePerItem() {
+        CarProfile car = new CarProfile(EngineType.ELECTRIC, (short) 4, false, Rating.FIVE, Manufacturer.BMW);
+        when(driverStateStore.get(1L)).thenReturn(new DriverState(1L, 52.0, 13.0, OnlineStatus.ONLINE, 7L, car, 0L));
+        when(driverRepository.updateLocations(any())).thenReturn(new int[]{1});
+        when(driverRepository.findDriverStates(Collections.singletonList(1L))).thenReturn(Collections.singletonList(
+                new DriverState(1L, 52.53, 13.40, OnlineStatus.ONLINE, 7L, car, 0L)));
+
+        List<LocationUpdateResult> results = driverService.updateLocations(Arrays.asList(
+                new LocationUpdate(1L, 52.52, 13.40, 1000L),
+                new LocationUpdate(1L, 52.53, 13.40, 2000L),
+                new LocationUpdate(2L, 52.52, 13.40, 1000L),
+                new LocationUpdate(3L, 91.0, 13.40, 1000L)));
+
+        Assertions.assertThat(results).extracting(LocationUpdateResult::getStatus).containsExactly(
+                LocationUpdateStatus.STALE,
+                LocationUpdateStatus.UPDATED,
+                LocationUpdateStatus.NOT_FOUND,
+                LocationUpdateStatus.INVALID);
+        verify(driverRepository, times(1)).updateLocations(argThat(positions -> positions.size() == 1
+                && positions.get(0).getCoordinate().getLatitude() == 52.53));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof DriverEvent
+                && ((DriverEvent) event).getCarId() == 7L && car.equals(((DriverEvent) event).getCar())));
+        Assertions.assertThat(failures("location_update", "stale")).isEqualTo(1);
+        Assertions.assertThat(failures("location_update", "not_found")).isEqualTo(1);
+        Assertions.assertThat(failures("location_update", "invalid")).isEqualTo(1);
+    }
+
+
+    @Test
+    public void updateLocationsPublishesTheCarSelectedBeforeTheCommit() {
+        CarProfile car = new CarProfile(EngineType.ELECTRIC, (short) 4, false, Rating.FIVE, Manufacturer.BMW);
+        // the store has not seen the selection yet, it commits while the batch is running
+        when(driverStateStore.get(1L)).thenReturn(new DriverState(1L, 52.0, 13.0, OnlineStatus.ONLINE, null, null, 0L));
+        when(driverRepository.updateLocations(any())).thenReturn(new int[]{1});
+        when(driverRepository.findDriverStates(Collections.singletonList(1L))).thenReturn(Collections.singletonList(
+                new DriverState(1L, 52.52, 13.40, OnlineStatus.ONLINE, 7L, car, 0L)));
+
+        driverService.updateLocations(Collections.singletonList(new LocationUpdate(1L, 52.52, 13.40, 1000L)));
+
+        InOrder inOrder = inOrder(driverRepository);
+        inOrder.verify(driverRepository).updateLocations(any());
+        inOrder.verify(driverRepository).findDriverStates(Collections.singletonList(1L));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof DriverEvent
+                && ((DriverEvent) event).getCarId() == 7L && car.equals(((DriverEvent) event).getCar())));
+    }
+
+
+    @Test
+    public void updateLocationsRejectsTimestampsAheadOfTheServerClock() {
+        List<LocationUpdateResult> results = driverService.updateLocations(Collections.singletonList(
+                new LocationUpdate(1L, 52.52, 13.40, System.currentTimeMillis() + 3_600_000L)));
+
+        Assertions.assertThat(results).extracting(LocationUpdateResult::getStatus)
+                .containsExactly(LocationUpdateStatus.INVALID);
+        verify(driverRepository, never()).updateLocations(any());
+    }
+
+
+    @Test
+    public void updateLocationsStampsThePositionWithTheServerClock() {
+        when(driverStateStore.get(1L)).thenReturn(new DriverState(1L, 52.0, 13.0, OnlineStatus.ONLINE, null, null, 0L));
+        when(driverRepository.updateLocations(any())).thenReturn(new int[]{1});
+        long before = System.currentTimeMillis();
+
+        driverService.updateLocations(Collections.singletonList(new LocationUpdate(1L, 52.52, 13.40, 1000L)));
+
+        verify(driverRepository).updateLocations(argThat(positions -> positions.get(0).getEpochMillis() >= before));
+    }
+
+
+    private double failures(String operation, String reason) {
+        return meterRegistry.get("driver.operations")
+                .tag("operation", operation).tag("outcome", "failure").tag("reason", reason)
+                .counter().count();
+    }
+
 }
@@ -0,0 +1,122 @@
+package com.freenow.service;
+
+import com.freenow.dataaccessobject.DriverLocationRepository.PositionUpdate;
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.service.driver.LocationWriteBehindBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocationWriteBehindBufferTest {
+
+    @Mock
+    private DriverRepository driverRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LocationWriteBehindBuffer buffer;
+
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new LocationWriteBehindBuffer(driverRepository, transactionManager, meterRegistry,
+                true, 60000, 1000, 2);
+    }
+
+
+    @Test
+    public void locationOfATransactionIsBufferedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(buffer.offer(1L, new GeoCoordinate(52.5, 13.4), 1000)).isTrue();
+            assertThat(buffer.get(1L)).isNull();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(buffer.get(1L)).isEqualTo(new GeoCoordinate(52.5, 13.4));
+    }
+
+
+    @Test
+    public void locationOfARolledBackTransactionIsNeverBuffered() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            buffer.offer(1L, new GeoCoordinate(52.5, 13.4), 1000);
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(buffer.get(1L)).isNull();
+        assertThat(buffer.flush()).isZero();
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushWritesOnlyNewestLocationPerDriver() {
+        buffer.offer(1L, new GeoCoordinate(52.5, 13.4), 1000);
+        buffer.offer(1L, new GeoCoordinate(52.6, 13.5), 3000);
+        buffer.offer(1L, new GeoCoordinate(52.7, 13.6), 2000);
+        assertThat(buffer.get(1L)).isEqualTo(new GeoCoordinate(52.6, 13.5));
+
+        assertThat(buffer.flush()).isEqualTo(1);
+
+        ArgumentCaptor<List<PositionUpdate>> positions = ArgumentCaptor.forClass(List.class);
+        verify(driverRepository, times(1)).updateLocations(positions.capture());
+        assertThat(positions.getValue()).hasSize(1);
+        assertThat(positions.getValue().get(0).getCoordinate()).isEqualTo(new GeoCoordinate(52.6, 13.5));
+        assertThat(buffer.get(1L)).isNull();
+        assertThat(buffer.getReceived()).isEqualTo(3);
+        assertThat(buffer.getCoalesced()).isEqualTo(2);
+        assertThat(buffer.getWritten()).isEqualTo(1);
+        assertThat(meterRegistry.get("driver.location.write-behind.updates").tag("result", "coalesced")
+                .functionCounter().count()).isEqualTo(2);
+    }
+
+
+    @Test
+    public void offerRefusesNewDriversWhenFull() {
+        assertThat(buffer.offer(1L, new GeoCoordinate(52.5, 13.4), 1000)).isTrue();
+        assertThat(buffer.offer(2L, new GeoCoordinate(52.5, 13.4), 1000)).isTrue();
+        assertThat(buffer.offer(3L, new GeoCoordinate(52.5, 13.4), 1000)).isFalse();
+        assertThat(buffer.offer(2L, new GeoCoordinate(52.6, 13.4), 2000)).isTrue();
+        assertThat(buffer.size()).isEqualTo(2);
+    }
+
+
+    @Test
+    public void failedFlushKeepsLocations() {
+        buffer.offer(1L, new GeoCoordinate(52.5, 13.4), 1000);
+        when(driverRepository.updateLocations(anyList())).thenThrow(new IllegalStateException("database down"));
+
+        try {
+            buffer.flush();
+        } catch (IllegalStateException expected) {
+            // retried with the next flush
+        }
+
+        assertThat(buffer.get(1L)).isEqualTo(new GeoCoordinate(52.5, 13.4));
+        assertThat(buffer.getWritten()).isZero();
+    }
+}
@@ -0,0 +1,142 @@
+package com.freenow.state;
+
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainvalue.CarProfile;
+import com.freenow.domainvalue.EngineType;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.Manufacturer;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.Rating;
+import com.freenow.event.CarEvent;
+import com.freenow.event.DriverEvent;
+import com.freenow.journal.DriverJournal;
+import com.freenow.journal.DriverRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+
+public class DriverStateStoreTest {
+
+    private static final CarProfile CAR = new CarProfile(EngineType.DIESEL, (short) 7, true, Rating.THREE,
+            Manufacturer.PORSCHE);
+
+    private DriverRepository driverRepository;
+    private DriverJournal driverJournal;
+    private DriverStateStore store;
+
+    @Before
+    public void init() {
+        driverRepository = Mockito.mock(DriverRepository.class);
+        driverJournal = Mockito.mock(DriverJournal.class);
+        store = new DriverStateStore(driverRepository, driverJournal, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void loadReadsAllDriversFromTheTable() {
+        doAnswer(invocation -> {
+            Consumer<DriverState> consumer = invocation.getArgument(0);
+            consumer.accept(new DriverState(1L, 52.52, 13.40, OnlineStatus.ONLINE, 7L, CAR, 1000L));
+            consumer.accept(new DriverState(2L, Double.NaN, Double.NaN, OnlineStatus.OFFLINE, null, null, 2000L));
+            return null;
+        }).when(driverRepository).scanDriverStates(any());
+
+        store.load();
+
+        Assertions.assertThat(store.size()).isEqualTo(2);
+        DriverState first = store.get(1L);
+        Assertions.assertThat(first.getLatitude()).isEqualTo(52.52);
+        Assertions.assertThat(first.getCarId()).isEqualTo(7L);
+        Assertions.assertThat(first.getCar()).isEqualTo(CAR);
+        Assertions.assertThat(first.getUpdatedEpochMillis()).isEqualTo(1000L);
+        Assertions.assertThat(store.get(2L).isLocated()).isFalse();
+        Assertions.assertThat(store.get(2L).getCarId()).isNull();
+        Assertions.assertThat(store.get(3L)).isNull();
+    }
+
+    @Test
+    public void loadTakesTheDriversRecoveredByTheJournal() {
+        DriverRecord record = Mockito.mock(DriverRecord.class);
+        doReturn(new DriverState(1L, 52.52, 13.40, OnlineStatus.ONLINE, 7L, CAR, 1000L)).when(record).toDriverState();
+        doReturn(true).when(driverJournal).isRecovered();
+        doAnswer(invocation -> {
+            Consumer<DriverRecord> consumer = invocation.getArgument(0);
+            consumer.accept(record);
+            return null;
+        }).when(driverJournal).forEachDriver(any());
+
+        store.load();
+
+        Assertions.assertThat(store.get(1L).getCarId()).isEqualTo(7L);
+        Mockito.verify(driverRepository, Mockito.never()).scanDriverStates(any());
+    }
+
+    @Test
+    public void eventsUpdateTheStoredState() {
+        store.put(new DriverState(1L, 52.52, 13.40, OnlineStatus.ONLINE, 7L, CAR, 1000L));
+
+        store.onDriverEvent(new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, 1L, OnlineStatus.ONLINE, false,
+                new GeoCoordinate(48.13, 11.58), 7L, CAR));
+        DriverState moved = store.get(1L);
+        Assertions.assertThat(moved.getLatitude()).isEqualTo(48.13);
+        Assertions.assertThat(moved.getCarId()).isEqualTo(7L);
+        Assertions.assertThat(moved.getCar()).isEqualTo(CAR);
+        Assertions.assertThat(moved.getUpdatedEpochMillis()).isGreaterThan(1000L);
+
+        store.onDriverEvent(new DriverEvent(DriverEvent.Type.CAR_DESELECTED, 1L, OnlineStatus.OFFLINE, false,
+                new GeoCoordinate(48.13, 11.58), null));
+        Assertions.assertThat(store.get(1L).getCarId()).isNull();
+        Assertions.assertThat(store.get(1L).getCar()).isNull();
+        Assertions.assertThat(store.get(1L).getOnlineStatus()).isEqualTo(OnlineStatus.OFFLINE);
+
+        store.onDriverEvent(new DriverEvent(DriverEvent.Type.DELETED, 1L, OnlineStatus.OFFLINE, true, null, null));
+        Assertions.assertThat(store.get(1L)).isNull();
+        Assertions.assertThat(store.size()).isZero();
+    }
+
+    @Test
+    public void ratingUpdateReachesTheDriverHoldingTheCar() {
+        store.put(new DriverState(1L, 52.52, 13.40, OnlineStatus.ONLINE, 7L, CAR, 1000L));
+        store.put(new DriverState(2L, 52.52, 13.40, OnlineStatus.ONLINE, 8L, CAR, 1000L));
+
+        store.onCarEvent(new CarEvent(CarEvent.Type.RATING_UPDATED, 7L, Rating.ONE));
+
+        Assertions.assertThat(store.get(1L).getCar()).isEqualTo(CAR.withRating(Rating.ONE));
+        Assertions.assertThat(store.get(2L).getCar()).isEqualTo(CAR);
+    }
+
+    @Test
+    public void storedTimeIsTheTimeOfTheChange() {
+        store.onDriverEvent(new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, 1L, OnlineStatus.ONLINE, false,
+                new GeoCoordinate(48.13, 11.58), null, null, 5000L));
+
+        Assertions.assertThat(store.get(1L).getUpdatedEpochMillis()).isEqualTo(5000L);
+    }
+
+    @Test
+    public void createdDriverIsStoredWithoutPosition() {
+        store.onDriverEvent(new DriverEvent(DriverEvent.Type.CREATED, 5L, OnlineStatus.OFFLINE, false, null, null));
+
+        Assertions.assertThat(store.get(5L).isLocated()).isFalse();
+        Assertions.assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void chunksAreOnlyAllocatedForUsedIdRanges() {
+        store.put(new DriverState(1L, 52.52, 13.40, OnlineStatus.ONLINE, null, null, 1000L));
+        store.put(new DriverState(10L * DriverStateStore.CHUNK_SIZE + 1, 52.52, 13.40, OnlineStatus.ONLINE, null,
+                null, 1000L));
+
+        Assertions.assertThat(store.getFootprintBytes())
+                .isEqualTo(2L * DriverStateStore.CHUNK_SIZE * DriverStateStore.BYTES_PER_DRIVER);
+        Assertions.assertThat(store.get(10L * DriverStateStore.CHUNK_SIZE + 1)).isNotNull();
+        Assertions.assertThat(store.get(5L * DriverStateStore.CHUNK_SIZE)).isNull();
+    }
+}
@@ -0,0 +1,251 @@
+package com.freenow.stream;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.event.DriverEvent;
+import com.freenow.exception.ParseValueException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class DriverUpdateStreamTest {
+
+    private static final DriverUpdateFilter BERLIN = DriverUpdateFilter.of(52.4, 13.2, 52.6, 13.6, null);
+
+    private DriverUpdateStream stream;
+
+    @Before
+    public void init() {
+        // flushed by the tests only
+        stream = new DriverUpdateStream(new SimpleMeterRegistry(), 3, TimeUnit.HOURS.toMillis(1),
+                TimeUnit.HOURS.toMillis(1), 200, 2);
+        stream.start();
+    }
+
+    @After
+    public void tearDown() {
+        stream.stop();
+    }
+
+    @Test
+    public void boxSubscriberGetsDriversInsideAndALastUpdateWhenTheyLeave() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        stream.subscribe(BERLIN, listener);
+
+        stream.onDriverEvent(located(1L, 52.52, 13.40));
+        stream.onDriverEvent(located(2L, 48.13, 11.58));
+        Assertions.assertThat(listener.nextUpdates()).extracting(DriverEvent::getDriverId).containsExactly(1L);
+
+        stream.onDriverEvent(located(1L, 48.13, 11.58));
+        stream.onDriverEvent(located(1L, 48.14, 11.59));
+        List<DriverEvent> left = listener.nextUpdates();
+        Assertions.assertThat(left).extracting(DriverEvent::getDriverId).containsExactly(1L);
+        Assertions.assertThat(left.get(0).getCoordinate()).isEqualTo(new GeoCoordinate(48.13, 11.58));
+    }
+
+    @Test
+    public void followedDriversAreReportedWherever() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        stream.subscribe(DriverUpdateFilter.of(null, null, null, null, Arrays.asList(2L, 3L)), listener);
+
+        stream.onDriverEvent(located(1L, 52.52, 13.40));
+        stream.onDriverEvent(located(2L, 48.13, 11.58));
+        stream.onDriverEvent(new DriverEvent(DriverEvent.Type.ONLINE_STATUS_UPDATED, 3L, OnlineStatus.OFFLINE, false,
+                null, null));
+
+        Assertions.assertThat(listener.nextUpdates()).extracting(DriverEvent::getDriverId)
+                .containsExactlyInAnyOrder(2L, 3L);
+    }
+
+    @Test
+    public void slowSubscriberGetsOnlyTheNewestChangePerDriver() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        stream.subscribe(BERLIN, listener);
+
+        for (int i = 0; i < 100; i++) {
+            stream.onDriverEvent(located(1L, 52.50, 13.30 + i * 0.001));
+        }
+
+        List<DriverEvent> updates = listener.nextUpdates();
+        Assertions.assertThat(updates).hasSize(1);
+        Assertions.assertThat(updates.get(0).getCoordinate()).isEqualTo(new GeoCoordinate(52.50, 13.30 + 99 * 0.001));
+    }
+
+    @Test
+    public void subscriberIsClosedWhenItsBufferOverflows() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        stream.subscribe(BERLIN, listener);
+
+        for (long id = 1; id <= 4; id++) {
+            stream.onDriverEvent(located(id, 52.50, 13.40));
+        }
+
+        Assertions.assertThat(listener.closed.poll(5, TimeUnit.SECONDS))
+                .isEqualTo(DriverUpdateSubscription.CloseReason.OVERFLOW);
+        Assertions.assertThat(stream.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    public void failingSubscriberIsClosed() throws InterruptedException {
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void onUpdates(List<DriverEvent> updates) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        DriverUpdateSubscription subscription = stream.subscribe(BERLIN, listener);
+
+        stream.onDriverEvent(located(1L, 52.52, 13.40));
+        stream.flush();
+
+        Assertions.assertThat(listener.closed.poll(5, TimeUnit.SECONDS))
+                .isEqualTo(DriverUpdateSubscription.CloseReason.FAILED);
+        Assertions.assertThat(subscription.isClosed()).isTrue();
+    }
+
+    @Test
+    public void stalledSubscriberIsClosedByTheFlush() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void onUpdates(List<DriverEvent> updates) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        DriverUpdateSubscription subscription = stream.subscribe(BERLIN, listener);
+        stream.onDriverEvent(located(1L, 52.52, 13.40));
+        stream.flush();
+
+        for (int i = 0; i < 100 && !subscription.isClosed(); i++) {
+            Thread.sleep(50);
+            stream.flush();
+        }
+
+        Assertions.assertThat(listener.closed.poll(5, TimeUnit.SECONDS))
+                .isEqualTo(DriverUpdateSubscription.CloseReason.STALLED);
+        Assertions.assertThat(stream.getSubscriberCount()).isZero();
+        release.countDown();
+    }
+
+    @Test
+    public void stalledSubscribersDoNotHoldTheSenderThreads() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<RecordingListener> stalledListeners = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecordingListener stalledListener = new RecordingListener() {
+                @Override
+                public void onUpdates(List<DriverEvent> updates) throws IOException {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            stream.subscribe(BERLIN, stalledListener);
+            stalledListeners.add(stalledListener);
+        }
+        RecordingListener listener = new RecordingListener();
+        stream.subscribe(BERLIN, listener);
+
+        // three stalled subscribers, two sender threads
+        stream.onDriverEvent(located(1L, 52.52, 13.40));
+
+        Assertions.assertThat(listener.nextUpdates()).extracting(DriverEvent::getDriverId).containsExactly(1L);
+        for (int i = 0; i < 100 && stream.getSubscriberCount() > 1; i++) {
+            Thread.sleep(50);
+            stream.flush();
+        }
+        for (RecordingListener stalledListener : stalledListeners) {
+            Assertions.assertThat(stalledListener.closed.poll(5, TimeUnit.SECONDS))
+                    .isEqualTo(DriverUpdateSubscription.CloseReason.STALLED);
+        }
+        Assertions.assertThat(stream.getSenderThreads()).isEqualTo(5);
+
+        release.countDown();
+        for (int i = 0; i < 100 && stream.getSenderThreads() > 2; i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertThat(stream.getSenderThreads()).isEqualTo(2);
+    }
+
+    @Test
+    public void cancelledSubscriberGetsNothing() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        stream.subscribe(BERLIN, listener).cancel();
+
+        stream.onDriverEvent(located(1L, 52.52, 13.40));
+        stream.flush();
+
+        Assertions.assertThat(listener.updates.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        Assertions.assertThat(stream.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    public void filterNeedsACompleteBoxOrDriverIds() {
+        Assertions.assertThatExceptionOfType(ParseValueException.class)
+                .isThrownBy(() -> DriverUpdateFilter.of(52.4, 13.2, null, null, null));
+        Assertions.assertThatExceptionOfType(ParseValueException.class)
+                .isThrownBy(() -> DriverUpdateFilter.of(null, null, null, null, Collections.emptyList()));
+        Assertions.assertThatExceptionOfType(ParseValueException.class)
+                .isThrownBy(() -> DriverUpdateFilter.of(52.6, 13.2, 52.4, 13.6, null));
+    }
+
+    @Test
+    public void boxMayCrossTheAntimeridian() {
+        DriverUpdateFilter filter = DriverUpdateFilter.of(-20.0, 170.0, -10.0, -170.0, null);
+        Assertions.assertThat(filter.isInside(located(1L, -15.0, 179.0))).isTrue();
+        Assertions.assertThat(filter.isInside(located(1L, -15.0, -175.0))).isTrue();
+        Assertions.assertThat(filter.isInside(located(1L, -15.0, 0.0))).isFalse();
+    }
+
+    private static DriverEvent located(long driverId, double latitude, double longitude) {
+        return new DriverEvent(DriverEvent.Type.LOCATION_UPDATED, driverId, OnlineStatus.ONLINE, false,
+                new GeoCoordinate(latitude, longitude), null);
+    }
+
+    private class RecordingListener implements DriverUpdateListener {
+        final BlockingQueue<List<DriverEvent>> updates = new LinkedBlockingQueue<>();
+        final BlockingQueue<DriverUpdateSubscription.CloseReason> closed = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onUpdates(List<DriverEvent> updates) throws IOException {
+            this.updates.add(updates);
+        }
+
+        @Override
+        public void onClose(DriverUpdateSubscription.CloseReason reason) {
+            closed.add(reason);
+        }
+
+        /**
+         * Flushes until the changes arrive, a flush is skipped while the previous send still finishes.
+         */
+        List<DriverEvent> nextUpdates() throws InterruptedException {
+            for (int i = 0; i < 100; i++) {
+                stream.flush();
+                List<DriverEvent> next = updates.poll(50, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    return next;
+                }
+            }
+            throw new AssertionError("No driver updates were sent.");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.freenow.util;
+
+import com.freenow.util.AccessLog.OverflowPolicy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccessLogTest {
+
+    private final List<String> lines = new ArrayList<>();
+
+
+    @Test
+    public void drainWritesKeyValueLines() {
+        AccessLog accessLog = new AccessLog(4, OverflowPolicy.DROP, 0, line -> lines.add(line.toString()));
+
+        accessLog.record("PUT", "/v1/drivers/1", 200, "127.0.0.1", 1000L, 1_500_000L, null);
+        accessLog.record("GET", "/v1/drivers/2", 500, "127.0.0.1", 2000L, 20_000L, new IllegalStateException());
+
+        assertThat(accessLog.drain(Integer.MAX_VALUE)).isEqualTo(2);
+        assertThat(lines).containsExactly(
+                "method=PUT uri=/v1/drivers/1 status=200 duration_us=1500 start_ms=1000 remote=127.0.0.1",
+                "method=GET uri=/v1/drivers/2 status=500 duration_us=20 start_ms=2000 remote=127.0.0.1" +
+                        " error=java.lang.IllegalStateException");
+    }
+
+
+    @Test
+    public void fullRingDropsEntriesAndReportsThemWithTheNextLine() {
+        AccessLog accessLog = new AccessLog(2, OverflowPolicy.DROP, 0, line -> lines.add(line.toString()));
+
+        assertThat(accessLog.record("GET", "/a", 200, "r", 0, 0, null)).isTrue();
+        assertThat(accessLog.record("GET", "/b", 200, "r", 0, 0, null)).isTrue();
+        assertThat(accessLog.record("GET", "/c", 200, "r", 0, 0, null)).isFalse();
+        accessLog.drain(Integer.MAX_VALUE);
+        assertThat(accessLog.record("GET", "/d", 200, "r", 0, 0, null)).isTrue();
+        accessLog.drain(Integer.MAX_VALUE);
+
+        assertThat(accessLog.getDropped()).isEqualTo(1);
+        assertThat(accessLog.getWritten()).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).contains("uri=/a").endsWith("dropped_before=1");
+        assertThat(lines.get(2)).contains("uri=/d").doesNotContain("dropped_before");
+    }
+
+
+    @Test
+    public void waitPolicyGivesUpAfterTheWaitTime() {
+        AccessLog accessLog = new AccessLog(1, OverflowPolicy.WAIT, 1, line -> lines.add(line.toString()));
+
+        assertThat(accessLog.record("GET", "/a", 200, "r", 0, 0, null)).isTrue();
+        assertThat(accessLog.record("GET", "/b", 200, "r", 0, 0, null)).isFalse();
+        assertThat(accessLog.getDropped()).isEqualTo(1);
+    }
+
+
+    @Test
+    public void writerThreadLogsEveryEntryOfConcurrentProducers() throws Exception {
+        List<String> written = new ArrayList<>();
+        AccessLog accessLog = new AccessLog(64, OverflowPolicy.WAIT, 1000, line -> written.add(line.toString()));
+        accessLog.start();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    accessLog.record("GET", "/v1/drivers/" + i, 200, "r", 0, 0, null);
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        accessLog.stop();
+
+        assertThat(accessLog.getDropped()).isZero();
+        assertThat(written).hasSize(4000);
+    }
+
+
+    @Test
+    public void parkedWriterWakesUpForTheNextEntry() throws Exception {
+        CountDownLatch logged = new CountDownLatch(1);
+        AccessLog accessLog = new AccessLog(4, OverflowPolicy.DROP, 0, line -> logged.countDown());
+        accessLog.start();
+        Thread.sleep(50);
+
+        accessLog.record("GET", "/a", 200, "r", 0, 0, null);
+
+        assertThat(logged.await(5, TimeUnit.SECONDS)).isTrue();
+        accessLog.stop();
+    }
+}